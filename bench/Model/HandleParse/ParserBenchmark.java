@@ -0,0 +1,236 @@
+package Model.HandleParse;
+
+import Model.HandleParse.DataConfiguration.Stemmer;
+import Model.HandleReadFiles.QueryFileUtil;
+import Model.HandleReadFiles.ReadFile;
+import Model.HandleSearch.SearcherParse;
+import Model.ProgramStarter;
+import Model.TermsAndDocs.Docs.Document;
+import Model.TermsAndDocs.Pairs.TermDocPair;
+import Model.TermsAndDocs.Terms.Term;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Throughput benchmark for the parser.
+ * runs the parser's hot paths over the sample corpus in data\benchmark (FBIS, FT and LA files in the layout
+ * ReadFile expects) and prints docs/sec, tokens/sec and bytes allocated per document for each of them,
+ * so a parser change can be compared against the numbers of the previous commit.
+ * <p>
+ * usage: ParserBenchmark [corpus folder] [queries file] [stop words file without .txt] [iterations]
+ */
+public class ParserBenchmark {
+    private static final int warmupIterations = 50;
+
+    private ArrayList<Document> docs;
+    private int[] docTokens; //number of space separated tokens in each doc
+    private ArrayList<ArrayList<String>> queries;
+    private HashSet<String> stopWords;
+    private int iterations;
+    private com.sun.management.ThreadMXBean threadBean;
+
+    public ParserBenchmark(ArrayList<Document> docs, ArrayList<ArrayList<String>> queries, HashSet<String> stopWords, int iterations) {
+        this.docs = docs;
+        this.queries = queries;
+        this.stopWords = stopWords;
+        this.iterations = iterations;
+        this.threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.docTokens = new int[docs.size()];
+        for (int i = 0; i < docs.size(); i++) {
+            docTokens[i] = countTokens(docs.get(i).getText());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String corpusPath = args.length > 0 ? args[0] : "data\\benchmark\\corpus";
+        String queriesPath = args.length > 1 ? args[1] : "data\\benchmark\\queries.txt";
+        String stopWordsPath = args.length > 2 ? args[2] : "data\\05 stop_words";
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+
+        ArrayList<Document> docs = readSample(corpusPath);
+        ArrayList<ArrayList<String>> queries = new ArrayList<>();
+        for (Map.Entry<String, String> entry : QueryFileUtil.extractQueries(queriesPath).entrySet()) {
+            ArrayList<String> query = new ArrayList<>(Arrays.asList(entry.getValue().split(" ")));
+            queries.add(query);
+        }
+        ParserBenchmark benchmark = new ParserBenchmark(docs, queries, ProgramStarter.readStopWords(stopWordsPath), iterations);
+        System.out.println("docs: " + docs.size() + ", queries: " + queries.size() + ", iterations: " + iterations);
+        benchmark.runAll();
+    }
+
+    /**
+     * reads every file of the sample corpus the same way the WorkerThread does
+     *
+     * @param corpusPath
+     * @return list of the sample docs
+     */
+    public static ArrayList<Document> readSample(String corpusPath) {
+        ArrayList<Document> docs = new ArrayList<>();
+        String[] folders = new File(corpusPath).list();
+        if (folders == null)
+            throw new IllegalArgumentException("no sample corpus in " + corpusPath);
+        Arrays.sort(folders);
+        for (String folder : folders) {
+            ReadFile readFile = new ReadFile(corpusPath + "\\" + folder, docs);
+            readFile.readTheFile();
+        }
+        return docs;
+    }
+
+    /**
+     * runs every case and prints a line per case
+     */
+    public void runAll() {
+        System.out.println(String.format("%-34s %12s %14s %16s", "case", "docs/sec", "tokens/sec", "bytes/doc"));
+
+        final Parse parser = new Parse(stopWords, false);
+        run("Parse.parseDocument", docs.size(), docTokens, new Case() {
+            @Override
+            public void run(int i) {
+                parser.parseDocument(copy(docs.get(i)));
+            }
+        });
+
+        final Parse stemParser = new Parse(stopWords, true);
+        run("Parse.parseDocument (stemming)", docs.size(), docTokens, new Case() {
+            @Override
+            public void run(int i) {
+                stemParser.parseDocument(copy(docs.get(i)));
+            }
+        });
+
+        final SearcherParse searcherParse = new SearcherParse(stopWords, false);
+        int[] queryTokens = new int[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            queryTokens[i] = queries.get(i).size();
+        }
+        run("SearcherParse.parseForSearcher", queries.size(), queryTokens, new Case() {
+            @Override
+            public void run(int i) {
+                searcherParse.parseForSearcher(queries.get(i), i);
+            }
+        });
+
+        //inputs of the single steps are prepared once, outside the measured loop
+        final ArrayList<ArrayList<String>> rawWords = new ArrayList<>();
+        final ArrayList<ArrayList<String>> cleanWords = new ArrayList<>();
+        final ArrayList<String[]> lowerWords = new ArrayList<>();
+        for (Document doc : docs) {
+            ArrayList<String> split = parser.splitBySpaceToArrayList(Parse.deleteTitlesFunc(doc.getText()));
+            rawWords.add(split);
+            @SuppressWarnings("unchecked") //deleteEmptyWords returns a raw list of the words
+            ArrayList<String> clean = Parse.deleteEmptyWords(parser.handlePunctuation(new ArrayList<>(split)));
+            cleanWords.add(clean);
+            ArrayList<String> lower = new ArrayList<>();
+            for (String word : clean) {
+                if (Parse.words.matcher(word).matches())
+                    lower.add(word.toLowerCase());
+            }
+            lowerWords.add(lower.toArray(new String[0]));
+        }
+
+        run("Parse.handlePunctuation", docs.size(), docTokens, new Case() {
+            @Override
+            public void run(int i) {
+                parser.handlePunctuation(new ArrayList<>(rawWords.get(i)));
+            }
+        });
+
+        run("Parse.handleCapitalLetterSequence", docs.size(), docTokens, new Case() {
+            @Override
+            public void run(int i) {
+                ArrayList<String> words = cleanWords.get(i);
+                HashMap<Term, TermDocPair> target = new HashMap<>();
+                Document document = docs.get(i);
+                for (int k = 0; k < words.size(); k++) {
+                    String current = words.get(k);
+                    if (parser.startsWithCapital(current) && Parse.words.matcher(current).matches()) {
+                        int end = parser.handleCapitalLetterSequence(current, k, document, words, target, "text");
+                        if (end > k + 1)
+                            k = end - 1;
+                    }
+                }
+            }
+        });
+
+        run("Stemmer", docs.size(), docTokens, new Case() {
+            @Override
+            public void run(int i) {
+                for (String word : lowerWords.get(i)) {
+                    Stemmer stemmer = new Stemmer();
+                    stemmer.add(word.toCharArray(), word.length());
+                    stemmer.stem();
+                    stemmer.toString();
+                }
+            }
+        });
+    }
+
+    /**
+     * runs one case over all the inputs, first to warm up and then measured
+     *
+     * @param name   case name for the report
+     * @param units  number of inputs (docs or queries)
+     * @param tokens number of tokens in each input
+     * @param c      the code being measured
+     */
+    private void run(String name, int units, int[] tokens, Case c) {
+        for (int it = 0; it < warmupIterations; it++) {
+            for (int i = 0; i < units; i++) {
+                c.run(i);
+            }
+        }
+        long totalTokens = 0;
+        for (int t : tokens) {
+            totalTokens += t;
+        }
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int it = 0; it < iterations; it++) {
+            for (int i = 0; i < units; i++) {
+                c.run(i);
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        double seconds = nanos / 1e9;
+        double docsPerSec = ((double) units * iterations) / seconds;
+        double tokensPerSec = ((double) totalTokens * iterations) / seconds;
+        long bytesPerDoc = bytes / ((long) units * iterations);
+        System.out.println(String.format("%-34s %12.0f %14.0f %16d", name, docsPerSec, tokensPerSec, bytesPerDoc));
+    }
+
+    /**
+     * @param doc
+     * @return new doc with the same fields (parseDocument deletes the text of the doc it gets)
+     */
+    private static Document copy(Document doc) {
+        return new Document(doc.getDocNo(), doc.getText(), doc.getDate(), doc.getHeader());
+    }
+
+    private static int countTokens(String text) {
+        int count = 0;
+        boolean inToken = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean space = Character.isWhitespace(text.charAt(i));
+            if (!space && !inToken)
+                count++;
+            inToken = !space;
+        }
+        return count;
+    }
+
+    /**
+     * one measured piece of code, gets the index of the input to work on
+     */
+    private interface Case {
+        void run(int i);
+    }
+}
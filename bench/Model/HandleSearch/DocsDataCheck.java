@@ -0,0 +1,95 @@
+package Model.HandleSearch;
+
+import Model.HandleSearch.DocDataHolders.DocRankData;
+import Model.IndexerAndDictionary.Dictionary;
+import Model.OuputFiles.DocumentFile.DocumentFileObject;
+import Model.TermsAndDocs.Pairs.TermDocPair;
+import Model.TermsAndDocs.Terms.RegularTerm;
+import javafx.util.Pair;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks the tfs that Searcher.getDocsData reads from posting lines to the rank data of a query.
+ * a doc can have two postings in a line (its lower and upper case words, "Oil" and "oil"), their tfs are added -
+ * also when only some docs are ranked and a sorted line is read only at them.
+ * <p>
+ * usage: DocsDataCheck, throws if a tf is wrong
+ */
+public class DocsDataCheck {
+
+    public static void main(String[] args) {
+        ConcurrentHashMap<String, String> docsHolder = new ConcurrentHashMap<>();
+        for (String docNo : new String[]{"FBIS3-1", "FBIS3-2", "FBIS3-3"}) {
+            docsHolder.put(docNo, "100;50;oil;5;date;header");
+        }
+        DocumentFileObject.getInstance().setInstance(docsHolder);
+        Searcher searcher = new Searcher(false, false, new Dictionary(), new HashSet<String>(), new ArrayList<String>(), false, false);
+
+        //FBIS3-1 has "Oil" and "oil"
+        String line = "oil(FBIS3-1;2)(FBIS3-2;1)(FBIS3-1;3),df{3}";
+        DocRankData rankData = new DocRankData(1);
+        searcher.getDocsData(postingData("oil", line), rankData, 0, null, null);
+        check(rankData, "FBIS3-1", 5);
+        check(rankData, "FBIS3-2", 1);
+
+        //a sorted line with skips (blocks of 16 postings), the two postings of FBIS3-1015 are in two blocks
+        StringBuilder sorted = new StringBuilder("oil");
+        for (int i = 0; i < 40; i++) {
+            int doc = i <= 15 ? 1000 + i : 999 + i;
+            docsHolder.put("FBIS3-" + doc, "100;50;oil;5;date;header");
+            sorted.append("(FBIS3-").append(doc).append(';').append(i == 15 ? 2 : i == 16 ? 3 : 1).append(')');
+        }
+        sorted.append(",sk{").append(skips(sorted.toString(), 16)).append("},df{40}");
+        ArrayList<String> docs = new ArrayList<>();
+        docs.add("FBIS3-1003");
+        docs.add("FBIS3-1015");
+        docs.add("FBIS3-1038");
+        docs.add("FBIS3-2000"); //not in the line
+        rankData = new DocRankData(1);
+        searcher.getDocsData(postingData("oil", sorted.toString()), rankData, 0, new HashSet<>(docs), docs);
+        check(rankData, "FBIS3-1003", 1);
+        check(rankData, "FBIS3-1015", 5);
+        check(rankData, "FBIS3-1038", 1);
+        check(rankData, "FBIS3-2000", 0);
+        if (rankData.getNumOfCandidates() != 3)
+            throw new RuntimeException(rankData.getNumOfCandidates() + " candidates instead of 3");
+        System.out.println("tfs of duplicate postings are added, in whole lines and at the ranked docs of lines with skips");
+    }
+
+    /**
+     * @return the skips of the postings of the line, as gaps (see HandleMerge.appendSkips)
+     */
+    static String skips(String line, int blockSize) {
+        StringBuilder skips = new StringBuilder();
+        int posting = 0;
+        int previous = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) != '(')
+                continue;
+            if (posting % blockSize == 0) {
+                if (posting > 0)
+                    skips.append(',');
+                skips.append(i - previous);
+                previous = i;
+            }
+            posting++;
+        }
+        return skips.toString();
+    }
+
+    static ArrayList<Pair<TermDocPair, String>> postingData(String term, String line) {
+        ArrayList<Pair<TermDocPair, String>> postingData = new ArrayList<>();
+        postingData.add(new Pair<>(new TermDocPair(new RegularTerm(term), null), line));
+        return postingData;
+    }
+
+    static void check(DocRankData rankData, String docNo, int tf) {
+        int candidate = rankData.getCandidate(docNo);
+        int found = candidate < 0 ? 0 : rankData.getTf(candidate, 0);
+        if (found != tf)
+            throw new RuntimeException(docNo + ": tf " + found + " instead of " + tf);
+    }
+}
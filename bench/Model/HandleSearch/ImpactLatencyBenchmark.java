@@ -0,0 +1,119 @@
+package Model.HandleSearch;
+
+import Model.HandleSearch.DocDataHolders.DocRankData;
+import Model.IndexerAndDictionary.Dictionary;
+import Model.IndexerAndDictionary.HandleMerge;
+import Model.OuputFiles.DocumentFile.DocumentFileObject;
+import Model.TermsAndDocs.Pairs.TermDocPair;
+import Model.TermsAndDocs.Terms.RegularTerm;
+import javafx.util.Pair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times the ranking of a query of two words from their impact ordered lines (Searcher.scoreAtATime) and from their
+ * posting lines (Searcher.getDocsData, every doc of the words), as the words get more frequent.
+ * the impact lines are scored only until the segments that are left can't change the results, and the tfs are found
+ * only for the docs to rank, so the time of a query is bound by the depth more than by the df of its words.
+ * the lines are in memory - both are read from their files in one pass, which costs about the same.
+ * <p>
+ * usage: ImpactLatencyBenchmark [number of docs] [rank depth], the docs of the Ranker and 300 by default
+ */
+public class ImpactLatencyBenchmark {
+    private static final int rounds = 5;
+
+    public static void main(String[] args) {
+        Ranker ranker = new Ranker(false, false);
+        int numOfDocs = args.length > 0 ? Integer.parseInt(args[0]) : ranker.numOfDocs;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        Random random = new Random(7);
+        ConcurrentHashMap<String, String> docsHolder = new ConcurrentHashMap<>();
+        int[] lengths = new int[numOfDocs];
+        long sumOfLengths = 0;
+        for (int doc = 0; doc < numOfDocs; doc++) {
+            lengths[doc] = 20 + random.nextInt(2000);
+            sumOfLengths += lengths[doc];
+            docsHolder.put(docNo(doc), lengths[doc] + ";" + (lengths[doc] / 3) + ";oil;5;date;header");
+        }
+        HashMap<String, Float> relativeLengths = new HashMap<>();
+        for (int doc = 0; doc < numOfDocs; doc++) {
+            relativeLengths.put(docNo(doc), (float) (lengths[doc] / ((double) sumOfLengths / numOfDocs)));
+        }
+        DocumentFileObject.getInstance().setInstance(docsHolder);
+        Searcher searcher = new Searcher(false, false, new Dictionary(), new HashSet<String>(), new ArrayList<String>(), false, false);
+
+        System.out.println("df          posting lines ms   impact lines ms   same of the best 50");
+        //a word of over half of the docs has a negative idf, both rankings are then by the other parts of the rank
+        for (int df = 1000; df < ranker.numOfDocs / 2 && df <= numOfDocs; df *= 2) {
+            String[] terms = {"oil", "price"};
+            ArrayList<Pair<TermDocPair, String>> postingData = new ArrayList<>();
+            ArrayList<Pair<TermDocPair, String>> impactData = new ArrayList<>();
+            for (int t = 0; t < terms.length; t++) {
+                String line = postingLine(terms[t], t == 0 ? df : df / 4, numOfDocs, random);
+                String impactLine = HandleMerge.toImpactLine(line, relativeLengths, ranker, ranker.getMaxPlainBM25());
+                postingData.add(new Pair<>(new TermDocPair(new RegularTerm(terms[t]), null), line));
+                impactData.add(new Pair<>(new TermDocPair(new RegularTerm(terms[t]), null), impactLine));
+            }
+            long postingTime = Long.MAX_VALUE;
+            long impactTime = Long.MAX_VALUE;
+            ArrayList<Pair<String, Double>> fromPostings = null;
+            ArrayList<Pair<String, Double>> fromImpacts = null;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                DocRankData rankData = new DocRankData(terms.length);
+                searcher.getDocsData(postingData, rankData, 0, null, null);
+                fromPostings = searcher.rankDocs(rankData, ranker);
+                postingTime = Math.min(postingTime, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                rankData = new DocRankData(terms.length);
+                searcher.scoreAtATime(impactData, new ArrayList<Pair<TermDocPair, String>>(), rankData, ranker, depth);
+                fromImpacts = searcher.rankDocs(rankData, ranker);
+                impactTime = Math.min(impactTime, System.nanoTime() - start);
+            }
+            System.out.println(String.format("%-11d %-18.1f %-17.1f %d", df, postingTime / 1e6, impactTime / 1e6,
+                    sameResults(fromPostings, fromImpacts)));
+        }
+    }
+
+    /**
+     * @return "term(docNo;tf)(docNo;tf)...,df{..}" of random docs
+     */
+    private static String postingLine(String term, int df, int numOfDocs, Random random) {
+        TreeSet<Integer> docs = new TreeSet<>();
+        while (docs.size() < df) {
+            docs.add(random.nextInt(numOfDocs));
+        }
+        StringBuilder line = new StringBuilder(term);
+        for (int doc : docs) {
+            line.append('(').append(docNo(doc)).append(';').append(1 + (int) Math.abs(random.nextGaussian() * 4)).append(')');
+        }
+        line.append(",df{").append(df).append('}');
+        return line.toString();
+    }
+
+    /**
+     * @return how many of the best 50 docs of the two rankings are the same
+     */
+    private static int sameResults(ArrayList<Pair<String, Double>> ranking, ArrayList<Pair<String, Double>> other) {
+        HashSet<String> best = new HashSet<>();
+        for (int i = 0; i < 50 && i < ranking.size(); i++) {
+            best.add(ranking.get(i).getKey());
+        }
+        int same = 0;
+        for (int i = 0; i < 50 && i < other.size(); i++) {
+            if (best.contains(other.get(i).getKey()))
+                same++;
+        }
+        return same;
+    }
+
+    private static String docNo(int doc) {
+        return "FBIS3-" + doc;
+    }
+}
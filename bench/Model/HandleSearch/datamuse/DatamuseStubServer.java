@@ -0,0 +1,110 @@
+package Model.HandleSearch.datamuse;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local server that answers like the Datamuse api, for running DatamuseClient without the internet.
+ * /words?rd=word is answered after a delay with three made up words: word1, word2, word3.
+ * run alone it compares asking the words one by one with asking them in one batch, and a second batch from the cache.
+ * <p>
+ * usage: DatamuseStubServer [delay in milliseconds] [words]
+ */
+public class DatamuseStubServer {
+    private HttpServer server;
+    private ExecutorService executor;
+    private AtomicInteger requests;
+
+    /**
+     * @param delay milliseconds before every answer
+     */
+    public DatamuseStubServer(final long delay) throws java.io.IOException {
+        requests = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/words", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws java.io.IOException {
+                requests.incrementAndGet();
+                String query = exchange.getRequestURI().getQuery();
+                String word = query.substring(query.indexOf("rd=") + 3).replace('+', ' ');
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                String json = "[{\"word\":\"" + word + "1\",\"score\":300},{\"word\":\"" + word + "2\",\"score\":200},"
+                        + "{\"word\":\"" + word + "3\",\"score\":100}]";
+                byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(bytes);
+                out.close();
+            }
+        });
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return address to give to DatamuseQuery
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return number of requests that were answered
+     */
+    public int getRequests() {
+        return requests.get();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public static void main(String[] args) throws Exception {
+        long delay = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        int numOfWords = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        DatamuseStubServer stub = new DatamuseStubServer(delay);
+        ArrayList<String> words = new ArrayList<>();
+        for (int i = 0; i < numOfWords; i++) {
+            words.add("word" + i);
+        }
+        File cacheFile = File.createTempFile("datamuse", ".txt");
+        cacheFile.delete();
+
+        DatamuseQuery datamuseQuery = new DatamuseQuery(stub.getBaseUrl());
+        long start = System.currentTimeMillis();
+        for (String word : words) {
+            datamuseQuery.findSimilar(word, DatamuseClient.defaultNumOfWords);
+        }
+        System.out.println("one by one: " + (System.currentTimeMillis() - start) + " ms");
+
+        DatamuseClient client = new DatamuseClient(datamuseQuery, cacheFile.getPath(), DatamuseClient.defaultNumOfWords);
+        start = System.currentTimeMillis();
+        HashMap<String, String[]> similar = client.findSimilar(words);
+        System.out.println("batch: " + (System.currentTimeMillis() - start) + " ms, " + similar.size() + " answered");
+
+        int before = stub.getRequests();
+        start = System.currentTimeMillis();
+        similar = new DatamuseClient(datamuseQuery, cacheFile.getPath(), DatamuseClient.defaultNumOfWords).findSimilar(words);
+        System.out.println("cached: " + (System.currentTimeMillis() - start) + " ms, " + similar.size() + " answered, "
+                + (stub.getRequests() - before) + " requests");
+        stub.stop();
+        cacheFile.delete();
+    }
+}
@@ -0,0 +1,83 @@
+package Model.IndexerAndDictionary;
+
+import Model.HandleReadFiles.QueryFileUtil;
+import Model.HandleSearch.DocDataHolders.DocumentDataToView;
+import Model.HandleSearch.DocNorms;
+import Model.HandleSearch.HeaderTerms;
+import Model.HandleSearch.RankAgreement;
+import Model.HandleSearch.Searcher;
+import Model.OuputFiles.DictionaryFileHandler;
+import Model.OuputFiles.DocumentFile.DocumentFileHandler;
+import Model.OuputFiles.DocumentFile.DocumentFileObject;
+import Model.ProgramStarter;
+import javafx.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Static pruning of an index that was built already, and how much it changes the results.
+ * prunes the posting files of the index (see IndexPruner), prints how much smaller they are, then searches the
+ * queries of the TREC queries file in the full and in the pruned posting files and prints how many of the 50 results
+ * of every query are the same, and how long the searches took.
+ * <p>
+ * usage: PruningReport [index folder] [queries file] [stop words file without .txt] [stem true/false] [epsilon] [threshold]
+ */
+public class PruningReport {
+
+    public static void main(String[] args) throws Exception {
+        String outputPath = args.length > 0 ? args[0] : "data\\index";
+        String queriesPath = args.length > 1 ? args[1] : "data\\queries.txt";
+        String stopWordsPath = args.length > 2 ? args[2] : "data\\05 stop_words";
+        boolean toStem = args.length > 3 && Boolean.parseBoolean(args[3]);
+        double epsilon = args.length > 4 ? Double.parseDouble(args[4]) : 0.5;
+        double threshold = args.length > 5 ? Double.parseDouble(args[5]) : 0;
+
+        ArrayList<String> docsPath = ProgramStarter.generateDocsFiles(toStem, outputPath);
+        DocumentFileObject.getInstance().setInstance(new DocumentFileHandler().extractDocsData(docsPath));
+        Dictionary dictionary = new DictionaryFileHandler(new Dictionary()).readFromFile(outputPath, toStem);
+        HeaderTerms.load(HeaderTerms.tablePath(outputPath, toStem));
+        DocNorms.load(DocNorms.tablePath(outputPath, toStem));
+
+        IndexPruner indexPruner = new IndexPruner(outputPath, toStem, docsPath, threshold, epsilon);
+        long start = System.currentTimeMillis();
+        indexPruner.prune();
+        System.out.println("epsilon " + epsilon + ", threshold " + threshold + ": " + indexPruner
+                + ", " + (System.currentTimeMillis() - start) + "ms");
+
+        ArrayList<String> queries = new ArrayList<>();
+        for (Map.Entry<String, String> entry : QueryFileUtil.extractQueries(queriesPath).entrySet()) {
+            queries.add(entry.getValue());
+        }
+        ArrayList<DocumentDataToView>[] full = search(false, dictionary, stopWordsPath, toStem, queries);
+        ArrayList<DocumentDataToView>[] pruned = search(true, dictionary, stopWordsPath, toStem, queries);
+        RankAgreement agreement = new RankAgreement(50);
+        for (int i = 0; i < queries.size(); i++) {
+            agreement.add(ranked(pruned[i]), ranked(full[i]));
+        }
+        System.out.println("pruned against full results: " + agreement);
+    }
+
+    private static ArrayList<DocumentDataToView>[] search(boolean pruned, Dictionary dictionary, String stopWordsPath,
+                                                          boolean toStem, ArrayList<String> queries) throws Exception {
+        Searcher.clearCaches();
+        Searcher.setPrunedIndex(pruned);
+        Searcher searcher = new Searcher(false, toStem, dictionary, ProgramStarter.readStopWords(stopWordsPath), queries, false, false);
+        long start = System.currentTimeMillis();
+        ArrayList<DocumentDataToView>[] answers = searcher.search();
+        System.out.println((pruned ? "pruned" : "full") + " index: " + queries.size() + " queries in "
+                + (System.currentTimeMillis() - start) + "ms");
+        return answers;
+    }
+
+    /**
+     * @return the docs with their place as the score, best first
+     */
+    private static ArrayList<Pair<String, Double>> ranked(ArrayList<DocumentDataToView> answer) {
+        ArrayList<Pair<String, Double>> ranked = new ArrayList<>();
+        for (int i = 0; i < answer.size(); i++) {
+            ranked.add(new Pair<>(answer.get(i).getDocNo(), (double) (answer.size() - i)));
+        }
+        return ranked;
+    }
+}
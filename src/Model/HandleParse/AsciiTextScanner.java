@@ -0,0 +1,99 @@
+package Model.HandleParse;
+
+import java.util.ArrayList;
+
+/**
+ * Fast path for the 7-bit ASCII documents (almost all of the corpus).
+ * deletes the <*> tags and splits the text by spaces in one pass over a char buffer, instead of
+ * the deleteTitles regex, a StringBuilder copy of the whole text and then the splitSpaces regex.
+ * the output is exactly the same as deleteTitlesFunc + splitBySpaceToArrayList, a text with a non ASCII char
+ * is left to those methods.
+ */
+public class AsciiTextScanner {
+    private char[] buffer; //reused between docs, grows to the longest text
+
+    public AsciiTextScanner() {
+        this.buffer = new char[1 << 12];
+    }
+
+    /**
+     * @param text
+     * @return words of the text without the tags (same as splitBySpaceToArrayList(deleteTitlesFunc(text))),
+     * null if the text isn't pure ASCII
+     */
+    public ArrayList<String> split(String text) {
+        if (text == null)
+            return null;
+        int len = text.length();
+        if (buffer.length < len)
+            buffer = new char[Math.max(len, buffer.length * 2)];
+        char[] chars = buffer;
+        text.getChars(0, len, chars, 0);
+
+        ArrayList<String> words = new ArrayList<>();
+        int write = 0; //tags are removed by moving the kept chars back, so write <= read
+        int wordStart = 0;
+        int nextTagEnd = 0; //-1 when there is no '>' left, so no more tags
+        boolean sawSpace = false;
+        for (int read = 0; read < len; read++) {
+            char c = chars[read];
+            if (c > ' ' && c != '<') { //most chars
+                if (c > 127)
+                    return null;
+                chars[write++] = c;
+            } else if (c == '<') {
+                if (nextTagEnd >= 0 && nextTagEnd <= read)
+                    nextTagEnd = text.indexOf('>', read + 1);
+                if (nextTagEnd < 0) //no closing '>' - not a tag
+                    chars[write++] = c;
+                else
+                    read = nextTagEnd;
+            } else if (c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f' || c == '\u000B') {
+                words.add(new String(chars, wordStart, write - wordStart));
+                wordStart = write;
+                sawSpace = true;
+            } else
+                chars[write++] = c;
+        }
+        words.add(new String(chars, wordStart, write - wordStart));
+
+        //String.split keeps a text without spaces as is, and drops the empty words at the end
+        if (sawSpace) {
+            int size = words.size();
+            while (size > 0 && words.get(size - 1).isEmpty())
+                size--;
+            if (size < words.size())
+                words.subList(size, words.size()).clear();
+        }
+        return words;
+    }
+
+    /**
+     * lower case of an ASCII word without going through the locale rules, other words use String.toLowerCase
+     *
+     * @param word
+     * @return the word in lower case (the same instance if it has no capitals)
+     */
+    public static String toLowerCase(String word) {
+        int len = word.length();
+        int i = 0;
+        for (; i < len; i++) {
+            char c = word.charAt(i);
+            if (c > 127)
+                return word.toLowerCase();
+            if (c >= 'A' && c <= 'Z')
+                break;
+        }
+        if (i == len)
+            return word;
+        char[] lower = word.toCharArray();
+        for (; i < len; i++) {
+            char c = lower[i];
+            if (c > 127)
+                return word.toLowerCase();
+            if (c >= 'A' && c <= 'Z')
+                lower[i] = (char) (c + ('a' - 'A'));
+        }
+        return new String(lower);
+    }
+}
@@ -0,0 +1,100 @@
+package Model.HandleParse;
+
+import Model.TermsAndDocs.Docs.Document;
+import Model.TermsAndDocs.Pairs.TermDocPair;
+import Model.TermsAndDocs.Terms.Term;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork join pool shared by all the workers for parsing documents.
+ * the docs of a file are split between the pool threads instead of being parsed one by one by the worker
+ * that read the file, so a file with hundreds of docs doesn't hold back the end of the indexing.
+ * every pool thread has its own Parse (the parser keeps buffers between docs, so it can't be shared).
+ */
+public class DocumentParsePool {
+    private static final int docsPerTask = 8; //below this a task parses its docs without splitting
+
+    private ForkJoinPool pool;
+    private ThreadLocal<Parse> parsers;
+
+    /**
+     * @param stopWords
+     * @param toStem
+     * @param positional true if the parsers keep the word positions of the terms
+     */
+    public DocumentParsePool(final HashSet<String> stopWords, final boolean toStem, final boolean positional) {
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        this.parsers = new ThreadLocal<Parse>() {
+            @Override
+            protected Parse initialValue() {
+                Parse parser = new Parse(stopWords, toStem);
+                parser.setPositional(positional);
+                return parser;
+            }
+        };
+    }
+
+    /**
+     * parses the docs of a file in the pool, the calling thread waits for all of them
+     *
+     * @param docs docs of one file, the list is emptied (like the serial loop did)
+     * @return pairs of every doc, in the order the serial loop returned them (last doc first)
+     */
+    public ArrayList<HashMap<Term, TermDocPair>> parseDocuments(ArrayList<Document> docs) {
+        int n = docs.size();
+        Document[] docsArray = new Document[n];
+        for (int i = 0; i < n; i++) {
+            docsArray[n - 1 - i] = docs.get(i);
+        }
+        docs.clear();
+        //every task sets only its own places of the list
+        ArrayList<HashMap<Term, TermDocPair>> results = new ArrayList<>(Collections.<HashMap<Term, TermDocPair>>nCopies(n, null));
+        pool.invoke(new ParseTask(docsArray, results, 0, n));
+        return results;
+    }
+
+    /**
+     * stops the pool threads, call when the indexing is done
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * parses docs[from, to) into results[from, to), splits in half while there are more than docsPerTask docs
+     */
+    private class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private Document[] docs;
+        private ArrayList<HashMap<Term, TermDocPair>> results;
+        private int from;
+        private int to;
+
+        private ParseTask(Document[] docs, ArrayList<HashMap<Term, TermDocPair>> results, int from, int to) {
+            this.docs = docs;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= docsPerTask) {
+                Parse parser = parsers.get();
+                for (int i = from; i < to; i++) {
+                    results.set(i, parser.parseDocument(docs[i]));
+                    docs[i] = null; //saving ram, the pairs keep what is needed of the doc
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParseTask(docs, results, from, middle), new ParseTask(docs, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package Model.HandleParse;
+
+/**
+ * Finite state recognizer for numeric tokens (numbers, prices and percents).
+ * the token is scanned once into a buffer of decimal digits (commas are skipped), and the canonical
+ * term data is built straight from those digits - no Double, BigDecimal or regex on the way.
+ * every method returns null when it can't promise the exact same data as the double based rules in {@link Parse}
+ * (too many digits, E notation, fractions multiplied by a magnitude word), the parser then uses the old rules.
+ */
+public class NumericExpressionRecognizer {
+    private static final int START = 0;
+    private static final int SIGN = 1;
+    private static final int INT = 2;
+    private static final int DOT = 3;
+    private static final int FRAC = 4;
+    private static final int maxDigits = 15; //a double keeps 15 significant digits without loss
+    private static final int maxIntDigits = 9; //keeps int values away from Double.intValue() overflow
+    private static final int maxPlainDigits = 7; //Double.toString switches to E notation from 10^7
+
+    //value of the last scanned number is 0.digits * 10^point, digits has no leading / trailing zeros (empty for zero)
+    private char[] digits;
+    private int length;
+    private int point;
+    private int zeros; //zeros waiting for a non zero digit before they are kept
+    private boolean negative;
+    private StringBuilder output;
+
+    public NumericExpressionRecognizer() {
+        this.digits = new char[maxDigits];
+        this.output = new StringBuilder();
+    }
+
+    /**
+     * @param str
+     * @return true if and only if str is a number ([-]digits[.digits]), commas are ignored
+     */
+    public boolean isNumeric(String str) {
+        if (str == null)
+            return false;
+        return run(str, 0, str.length(), false);
+    }
+
+    /**
+     * @param str
+     * @return the value of str if it is a non negative whole number (1.0 included), else -1
+     */
+    public int wholeNumber(String str) {
+        if (str == null || !run(str, 0, str.length(), true) || negative || length > point || point > maxIntDigits)
+            return -1;
+        int value = 0;
+        for (int i = 0; i < point; i++) {
+            value = value * 10;
+            if (i < length)
+                value += digits[i] - '0';
+        }
+        return value;
+    }
+
+    /**
+     * canonical data of a number without units (same as handleNumber + tryRemoveDotZero)
+     *
+     * @param current
+     * @param next           token after the number, to check if it is part of the number
+     * @param nextIsFraction
+     * @return data of the numeric term, null if the old rules should be used
+     */
+    public String number(String current, String next, boolean nextIsFraction) {
+        if (!run(current, 0, current.length(), true))
+            return null;
+        output.setLength(0);
+        boolean thousand = next.equals("Thousand");
+        boolean million = next.equals("Million");
+        boolean billion = next.equals("Billion");
+
+        //<1000
+        if (!isAtLeast(3) && !thousand && !million && !billion) {
+            if (isInteger()) {
+                if (!appendInteger())
+                    return null;
+            } else {
+                roundHalfUp(3);
+                if (!appendDouble())
+                    return null;
+            }
+            if (nextIsFraction) {
+                output.append(' ');
+                output.append(next);
+            } else
+                removeDotZero();
+            return output.toString();
+        }
+
+        //>=1000
+        char unit;
+        if (isAtLeast(9) || billion) {
+            if (isAtLeast(9))
+                shift(-9);
+            unit = 'B';
+        } else if (isAtLeast(6) || million) {
+            if (isAtLeast(6))
+                shift(-6);
+            unit = 'M';
+        } else {
+            if (isAtLeast(3))
+                shift(-3);
+            unit = 'K';
+        }
+        roundHalfUp(3);
+        if (!appendIntOrDouble())
+            return null;
+        output.append(unit);
+        return output.toString();
+    }
+
+    /**
+     * canonical data of a price (same as handlePrice + tryRemoveDotZero)
+     *
+     * @return data of the price term, null if the old rules should be used
+     */
+    public String price(String current, String next, String secondNext, String thirdNext, boolean currentNumeric,
+                        boolean nextIsCurrency, boolean nextIsFraction, boolean secondNextIsCurrency) {
+        output.setLength(0);
+        int len = current.length();
+
+        //starts with $
+        if (current.startsWith("$")) {
+            if (!run(current, 1, len, true))
+                return null;
+            boolean million = next.equals("million");
+            boolean billion = next.equals("billion");
+            if (isAtLeast(6) || million || billion) { //above million
+                if (!million) {
+                    if (billion) {
+                        if (!multiply(3))
+                            return null;
+                    } else {
+                        shift(-6);
+                        roundHalfUp(3);
+                    }
+                }
+                if (!appendIntOrDouble())
+                    return null;
+                output.append(" M Dollars");
+            } else { //under million
+                output.append(current, 1, len);
+                removeDotZero();
+                output.append(" Dollars");
+            }
+            return output.toString();
+        }
+
+        //Price something U.S. dollars (for sure above M)
+        if (secondNext.equals("US") && thirdNext.equals("dollars")) {
+            int power;
+            if (next.equals("million"))
+                power = 0;
+            else if (next.equals("billion"))
+                power = 3;
+            else if (next.equals("trillion"))
+                power = 6;
+            else
+                return "";
+            if (!run(current, 0, len, true) || !multiply(power) || !appendIntOrDouble())
+                return null;
+            output.append(" M Dollars");
+            return output.toString();
+        }
+
+        //numeric currency
+        if (currentNumeric && nextIsCurrency) {
+            if (!run(current, 0, len, true))
+                return null;
+            boolean aboveMillion = isAtLeast(6);
+            if (aboveMillion) {
+                shift(-6);
+                roundHalfUp(3);
+            }
+            if (!appendIntOrDouble())
+                return null;
+            if (aboveMillion)
+                output.append(" M ");
+            else
+                output.append(' ');
+            output.append(next);
+            return output.toString();
+        }
+
+        //numeric fraction currency
+        if (currentNumeric && nextIsFraction && secondNextIsCurrency) {
+            if (!run(current, 0, len, true) || !appendIntOrDouble())
+                return null;
+            output.append(' ');
+            output.append(next);
+            output.append(' ');
+            output.append(secondNext);
+            return output.toString();
+        }
+
+        //price m/price bn currency (for sure above M)
+        if (len > 1 && current.endsWith("m")) {
+            if (!run(current, 0, len - 1, true))
+                return null;
+        } else if (len > 2 && current.endsWith("bn")) {
+            if (!run(current, 0, len - 2, true) || !multiply(3))
+                return null;
+        } else
+            return null;
+        if (!appendIntOrDouble())
+            return null;
+        output.append(" M ");
+        output.append(next);
+        return output.toString();
+    }
+
+    /**
+     * canonical data of a percent (same as handlePercent + tryRemoveDotZero)
+     *
+     * @param current number, with or without '%' at the end
+     * @return data of the percentage term
+     */
+    public String percent(String current) {
+        output.setLength(0);
+        int end = current.length();
+        if (current.endsWith("%"))
+            end--;
+        output.append(current, 0, end);
+        removeDotZero();
+        output.append('%');
+        return output.toString();
+    }
+
+    /**
+     * the state machine - [-]digits[.digits], commas are skipped in every state
+     *
+     * @param str
+     * @param from
+     * @param to
+     * @param keep if true the digits are saved for the formatting methods
+     * @return true if the chars between from and to are a number
+     */
+    private boolean run(String str, int from, int to, boolean keep) {
+        int state = START;
+        length = 0;
+        point = 0;
+        zeros = 0;
+        negative = false;
+        for (int i = from; i < to; i++) {
+            char c = str.charAt(i);
+            if (c == ',')
+                continue;
+            boolean digit = c >= '0' && c <= '9';
+            if (state == START) {
+                if (c == '-') {
+                    negative = true;
+                    state = SIGN;
+                    continue;
+                }
+                state = SIGN; //a number without a sign starts like one after a sign
+            }
+            switch (state) {
+                case SIGN:
+                case INT:
+                    if (digit) {
+                        state = INT;
+                        if (keep && !keepDigit(c, true))
+                            return false;
+                    } else if (c == '.' && state == INT)
+                        state = DOT;
+                    else
+                        return false;
+                    break;
+                case DOT:
+                case FRAC:
+                    if (!digit)
+                        return false;
+                    state = FRAC;
+                    if (keep && !keepDigit(c, false))
+                        return false;
+                    break;
+            }
+        }
+        if (state != INT && state != FRAC)
+            return false;
+        if (keep && length == 0)
+            point = 0;
+        return true;
+    }
+
+    /**
+     * adds a scanned digit to the buffer
+     *
+     * @param c
+     * @param integerPart
+     * @return false if the number has too many digits for exact formatting
+     */
+    private boolean keepDigit(char c, boolean integerPart) {
+        if (length == 0 && c == '0') { //leading zero
+            if (!integerPart)
+                point--;
+            return true;
+        }
+        if (integerPart)
+            point++;
+        if (c == '0') {
+            zeros++;
+            return true;
+        }
+        if (length + zeros >= digits.length)
+            return false;
+        for (; zeros > 0; zeros--)
+            digits[length++] = '0';
+        digits[length++] = c;
+        return true;
+    }
+
+    /**
+     * @param power
+     * @return true if the number >= 10^power
+     */
+    private boolean isAtLeast(int power) {
+        return !negative && length > 0 && point > power;
+    }
+
+    private boolean isInteger() {
+        return length <= point;
+    }
+
+    /**
+     * multiplies/divides the number by 10^power
+     */
+    private void shift(int power) {
+        if (length > 0)
+            point += power;
+    }
+
+    /**
+     * multiplies an integer by 10^power, fractions are left to the old rules (double product)
+     *
+     * @return true if multiplied
+     */
+    private boolean multiply(int power) {
+        if (!isInteger())
+            return false;
+        shift(power);
+        return true;
+    }
+
+    /**
+     * rounds the number to given places after the decimal point (half up, like BigDecimal.setScale)
+     *
+     * @param places
+     */
+    private void roundHalfUp(int places) {
+        int keep = point + places; //digits to keep
+        if (length <= keep)
+            return;
+        if (keep < 0 || digits[keep] < '5') {
+            length = Math.max(keep, 0);
+        } else {
+            int i = keep - 1;
+            while (i >= 0 && digits[i] == '9')
+                i--;
+            if (i < 0) { //carry out of the first digit - 0.999 becomes 1.000
+                digits[0] = '1';
+                length = 1;
+                point++;
+            } else {
+                digits[i]++;
+                length = i + 1;
+            }
+        }
+        while (length > 0 && digits[length - 1] == '0')
+            length--;
+        if (length == 0)
+            point = 0;
+    }
+
+    /**
+     * appends the integer part of the number
+     *
+     * @return false if the number can't be written like an int
+     */
+    private boolean appendInteger() {
+        if (point > maxIntDigits)
+            return false;
+        if (negative && length > 0)
+            output.append('-');
+        if (point <= 0)
+            output.append('0');
+        for (int i = 0; i < point; i++) {
+            if (i < length)
+                output.append(digits[i]);
+            else
+                output.append('0');
+        }
+        return true;
+    }
+
+    /**
+     * appends the number the way Double.toString writes it
+     *
+     * @return false if Double.toString would use E notation
+     */
+    private boolean appendDouble() {
+        if (length > 0 && (point > maxPlainDigits || point < -2))
+            return false;
+        appendInteger();
+        output.append('.');
+        if (isInteger()) {
+            output.append('0');
+            return true;
+        }
+        for (int i = point; i < 0; i++)
+            output.append('0');
+        for (int i = Math.max(point, 0); i < length; i++)
+            output.append(digits[i]);
+        return true;
+    }
+
+    /**
+     * appends the number without .0 if whole, else like Double.toString
+     */
+    private boolean appendIntOrDouble() {
+        if (isInteger())
+            return appendInteger();
+        return appendDouble();
+    }
+
+    /**
+     * removes an unwanted ".0" from the end of the output, only if the whole output is digits + ".0"
+     */
+    private void removeDotZero() {
+        int len = output.length();
+        if (len < 3 || output.charAt(len - 1) != '0' || output.charAt(len - 2) != '.')
+            return;
+        for (int i = 0; i < len - 2; i++) {
+            char c = output.charAt(i);
+            if (c < '0' || c > '9')
+                return;
+        }
+        output.setLength(len - 2);
+    }
+}
@@ -22,7 +22,6 @@ import java.util.regex.Pattern;
 public class Parse {
     protected static Pattern splitBySigns = Pattern.compile("[\\|\\:\\;\\)\\(\\?\\{\\}\\`\\+\\_\\&\\^\"\\!*\\[\\]]|['][s]");
     protected static Pattern notNumbers = Pattern.compile("[^0-9]+");
-    protected static Pattern numbers = Pattern.compile("[-]?[0-9]+|[-]?[0-9]+[\\.][0-9]+");
     protected static Pattern words = Pattern.compile("[a-zA-Z]+[-]?[a-zA-Z]+");
     protected static Pattern hyphenControl = Pattern.compile("[-]+");
     protected static Pattern zitata = Pattern.compile("[']");
@@ -55,6 +54,10 @@ public class Parse {
     protected HashSet<String> stopWords;
     protected String _DocText;
     protected boolean toStem;
+    protected NumericExpressionRecognizer numericRecognizer;
+    protected AsciiTextScanner asciiScanner;
+    protected boolean positional; //keep the word positions of the terms (for phrase queries)
+    protected int wordPosition; //position of the word that is parsed now
 
     public Parse(HashSet<String> stopWords, boolean toStem) {
         this.termBuilder = new TermBuilder();
@@ -70,14 +73,22 @@ public class Parse {
         this._PercentageTermClass = "PercentageTerm";
         this._PriceTermClass = "PriceTerm";
         this.toStem = toStem;
+        this.numericRecognizer = new NumericExpressionRecognizer();
+        this.asciiScanner = new AsciiTextScanner();
 
         this.stopWords = stopWords;
     }
 
+    /**
+     * @param positional true to keep the word positions of every term in the pairs
+     */
+    public void setPositional(boolean positional) {
+        this.positional = positional;
+    }
+
     public static void deleteStatics() {
         splitBySigns = null;
         notNumbers = null;
-        numbers = null;
         words  = null;
         hyphenControl  = null;
         zitata  = null;
@@ -104,9 +115,8 @@ public class Parse {
 
         //text parsing
         String text = document.getText();
-        text = deleteTitlesFunc(text);
         document.deleteText(); //saving ram
-        ArrayList<String> initialWords = splitBySpaceToArrayList(text);
+        ArrayList<String> initialWords = splitText(text);
         initialWords = handlePunctuation(initialWords);
         initialWords = deleteEmptyWords(initialWords);
         parseTextToList(initialWords, pairs, document, _DocText);
@@ -182,6 +192,19 @@ public class Parse {
         return newTerms;
     }
 
+    /**
+     * deletes the tags and separates the words of the text by space, ASCII text goes through the fast scanner
+     *
+     * @param text
+     * @return arrayList of separated words
+     */
+    protected ArrayList<String> splitText(String text) {
+        ArrayList<String> words = asciiScanner.split(text);
+        if (words != null)
+            return words;
+        return splitBySpaceToArrayList(deleteTitlesFunc(text));
+    }
+
     /**
      * //     * @param text
      * //     * @return deletes all <*> </*> from the doc text
@@ -310,6 +333,7 @@ public class Parse {
 
     protected void parseTextToList(ArrayList<String> initialWords, HashMap<Term, TermDocPair> target, Document document, String termType) {
         for (int i = 0; i < initialWords.size(); i++) {
+            wordPosition = i;
             boolean wasProccessed = false;
             String current = initialWords.get(i); //saving current word
 
@@ -327,7 +351,7 @@ public class Parse {
             if (isNumericIgnoreCommas(next))
                 nextNumeric = true;
             boolean isWord = words.matcher(current).matches();
-            String currentLowerCase = current.toLowerCase();
+            String currentLowerCase = AsciiTextScanner.toLowerCase(current);
 
             if (isDate(current, next, currentNumeric, nextNumeric)) {
                 Term dateTerm = handleDate(current, next, currentNumeric, nextNumeric, currentLowerCase);
@@ -394,10 +418,7 @@ public class Parse {
 
             if (!isWord) {
                 if (isPercent(current, next, currentNumeric)) { //handling percent
-                    Term percentTerm = handlePercent(current, termType);
-                    percentTerm.setData(percentTerm.getData().substring(0, percentTerm.getData().length() - 1));
-                    tryRemoveDotZero(percentTerm);
-                    percentTerm.setData(percentTerm.getData() + "%");
+                    Term percentTerm = termBuilder.buildTerm(_PercentageTermClass, numericRecognizer.percent(current));
                     addToPairs(new TermDocPair(percentTerm, document), target, termType);
                     if (current.charAt(0) != '%') {
                         i++;
@@ -414,8 +435,15 @@ public class Parse {
                 }
 
                 if (isPrice(current, next, secondNext, thirdNext, currentNumeric)) {
-                    Term priceTerm = handlePrice(current, next, secondNext, thirdNext, termType, currentNumeric, nextNumeric);
-                    tryRemoveDotZero(priceTerm);
+                    Term priceTerm;
+                    String priceData = numericRecognizer.price(current, next, secondNext, thirdNext, currentNumeric,
+                            currencies.contains(next), isFraction(next), currencies.contains(secondNext));
+                    if (priceData != null)
+                        priceTerm = termBuilder.buildTerm(_PriceTermClass, priceData);
+                    else { //too long for the recognizer - old rules
+                        priceTerm = handlePrice(current, next, secondNext, thirdNext, termType, currentNumeric, nextNumeric);
+                        tryRemoveDotZero(priceTerm);
+                    }
                     addToPairs(new TermDocPair(priceTerm, document), target, termType);
                     if ((next.equals("million") || next.equals("billion") || next.equals("trillion")) && secondNext.equals("US") &&
                             thirdNext.equals("dollars")) {
@@ -430,14 +458,21 @@ public class Parse {
 
                 if (currentNumeric) {
                     //handling regular numbers (must be in the end of all numbers options!)
-                    double number = getNumericIgnoreCommas(current);
-                    Term numberTerm = handleNumber(number, next);
-                    tryRemoveDotZero(numberTerm);
+                    boolean nextFraction = isFraction(next);
+                    Term numberTerm;
+                    String numberData = numericRecognizer.number(current, next, nextFraction);
+                    if (numberData != null)
+                        numberTerm = termBuilder.buildTerm(_NumericTermClass, numberData);
+                    else { //too long for the recognizer - old rules
+                        double number = getNumericIgnoreCommas(current);
+                        numberTerm = handleNumber(number, next);
+                        tryRemoveDotZero(numberTerm);
+                    }
                     addToPairs(new TermDocPair(numberTerm, document), target, termType);
-                    if (isFraction(next) || next.equals("Thousand") || next.equals("Million") || next.equals("Billion")) {
+                    if (nextFraction || next.equals("Thousand") || next.equals("Million") || next.equals("Billion")) {
                         i++; //don't parse fraction / words already used
                     }
-                    if (isFraction(next) && secondNext.equals("Thousand") || secondNext.equals("Million") || secondNext.equals("Billion")) {
+                    if (nextFraction && secondNext.equals("Thousand") || secondNext.equals("Million") || secondNext.equals("Billion")) {
                         i++; //dont parse word used after fraction
                     }
                     continue;
@@ -549,11 +584,15 @@ public class Parse {
      */
     protected void addToPairs(TermDocPair termDocPair, HashMap<Term, TermDocPair> pairs, String termType) {
         Term term = termDocPair.getTerm();
-        if (pairs.containsKey(term)) {
-            pairs.get(term).incrementCounter();//add to counter for existing pair
+        TermDocPair existing = pairs.get(term);
+        if (existing != null) {
+            existing.incrementCounter();//add to counter for existing pair
         } else {
             pairs.put(term, termDocPair);//add new pair to the hash
+            existing = termDocPair;
         }
+        if (positional)
+            existing.addPosition(wordPosition);
     }
 
     /**
@@ -568,28 +607,33 @@ public class Parse {
     }
 
     /**
-     * handles the law of sequence of capital letters
+     * handles the law of sequence of capital letters.
+     * scans the words one at a time, a capital word followed by a non capital word ends right away,
+     * the entity string is built only for sequences of 2 words or more
      *
      * @param current
      * @param i
      * @param target
      * @param termType
-     * @return arrayList of entities
+     * @return index of the first word after the sequence
      */
-    @SuppressWarnings("Duplicates")
     protected int handleCapitalLetterSequence(String current, int i, Document document, ArrayList<String> lWords, HashMap<Term, TermDocPair> target, String termType) {
-        StringBuilder appender = new StringBuilder();
-        String next = current;
-        int prog = i;
-        while (prog < lWords.size() && startsWithCapital(next)) {
-            appender.append(next);
-            appender.append(" ");
+        int size = lWords.size();
+        if (i >= size || !startsWithCapital(current))
+            return i;
+        int prog = i + 1;
+        int length = current.length();
+        while (prog < size && startsWithCapital(lWords.get(prog))) {
+            length += lWords.get(prog).length() + 1;
             prog++;
-            if (prog < lWords.size())
-                next = lWords.get(prog);
         }
         if (prog > i + 1) {
-            appender.delete(appender.length() - 1, appender.length());
+            StringBuilder appender = new StringBuilder(length);
+            appender.append(current);
+            for (int k = i + 1; k < prog; k++) {
+                appender.append(' ');
+                appender.append(lWords.get(k));
+            }
             Term sTerm = termBuilder.buildTerm(_EntityTermClass, appender.toString());
             TermDocPair termDocPair = new TermDocPair(sTerm, document);
             addToPairs(termDocPair, target, termType);
@@ -676,22 +720,16 @@ public class Parse {
      */
     protected boolean isDate(String current, String next, boolean currentNumeric, boolean nextNumeric) {
         if (currentNumeric) {
-            double temp = getNumericIgnoreCommas(current);
-            int currentNum = (int) temp;
-            if (temp == currentNum) {
-                if ((currentNum >= 1) && (currentNum <= 31) && (isMonth(next))) {
-                    return true;
-                }
+            int currentNum = numericRecognizer.wholeNumber(current);
+            if ((currentNum >= 1) && (currentNum <= 31) && (isMonth(next))) {
+                return true;
             }
         }
         else if (nextNumeric) {
-            double temp = getNumericIgnoreCommas(next);
-            int nextNum = (int) temp;
-            if (temp == nextNum) {
-                if (isMonth(current)) {
-                    if (((nextNum >= 1) && (nextNum <= 31)) || ((nextNum >= 1000) && (nextNum <= 2050)))
-                        return true;
-                }
+            int nextNum = numericRecognizer.wholeNumber(next);
+            if (isMonth(current)) {
+                if (((nextNum >= 1) && (nextNum <= 31)) || ((nextNum >= 1000) && (nextNum <= 2050)))
+                    return true;
             }
         }
         return false;
@@ -1035,13 +1073,7 @@ public class Parse {
      * @return true if and only if string is number, else false
      */
     protected boolean isNumericIgnoreCommas(String strNum) {
-        strNum = removeCommas(strNum);
-        double d;
-        try {
-            return numbers.matcher(strNum).matches();
-        } catch (NumberFormatException | NullPointerException nfe) {
-            return false;
-        }
+        return numericRecognizer.isNumeric(strNum);
     }
 
     /**
@@ -0,0 +1,348 @@
+package Model.HandleSearch;
+
+import Model.OuputFiles.PostingFile.PostingList;
+import Model.TermsAndDocs.Pairs.TermDocPair;
+import Model.TermsAndDocs.Terms.Term;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * A boolean query: words with AND, OR, NOT and parentheses, like (oil OR gas) AND spill NOT alaska.
+ * words with no operator between them are OR'ed, like in a regular query.
+ * the query is evaluated to the docs that match it, the docs are then ranked by the words that aren't under a NOT.
+ * a conjunction starts from its rarest part and checks the other parts only for those docs, jumping over the
+ * skips of the posting lines, so it takes time by the rarest part and not by the longest line.
+ * NOT is evaluated only inside a conjunction (a OR NOT b would need every doc in the corpus).
+ */
+public class BooleanQuery {
+    private static final int WORD = 0;
+    private static final int AND = 1;
+    private static final int OR = 2;
+    private static final int NOT = 3;
+    private static Pattern spaces = Pattern.compile("[\\s]+");
+
+    private int type;
+    private ArrayList<BooleanQuery> children;
+    private String word;
+    private boolean negated; //the word is under a NOT
+    private ArrayList<TermDocPair> pairs; //terms of the word
+
+    private BooleanQuery(int type) {
+        this.type = type;
+        this.children = new ArrayList<>();
+        this.pairs = new ArrayList<>();
+    }
+
+    /**
+     * @param query
+     * @return true if the query has boolean operators (in upper case)
+     */
+    public static boolean isBoolean(String query) {
+        for (String token : tokenize(query)) {
+            if (token.equals("AND") || token.equals("OR") || token.equals("NOT"))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param query
+     * @return the tree of the query
+     */
+    public static BooleanQuery parse(String query) {
+        ArrayList<String> tokens = tokenize(query);
+        int[] next = {0};
+        BooleanQuery root = parseOr(tokens, next, false);
+        while (next[0] < tokens.size()) { //a ')' without '(', the rest is OR'ed
+            next[0]++;
+            BooleanQuery rest = parseOr(tokens, next, false);
+            BooleanQuery or = new BooleanQuery(OR);
+            or.children.add(root);
+            or.children.add(rest);
+            root = or;
+        }
+        return root;
+    }
+
+    private static ArrayList<String> tokenize(String query) {
+        ArrayList<String> tokens = new ArrayList<>();
+        for (String token : spaces.split(query.replace("(", " ( ").replace(")", " ) "))) {
+            if (token.length() > 0)
+                tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static BooleanQuery parseOr(ArrayList<String> tokens, int[] next, boolean negated) {
+        BooleanQuery or = new BooleanQuery(OR);
+        or.children.add(parseAnd(tokens, next, negated));
+        while (next[0] < tokens.size() && !tokens.get(next[0]).equals(")")) {
+            if (tokens.get(next[0]).equals("OR"))
+                next[0]++;
+            or.children.add(parseAnd(tokens, next, negated));
+        }
+        return or.children.size() == 1 ? or.children.get(0) : or;
+    }
+
+    private static BooleanQuery parseAnd(ArrayList<String> tokens, int[] next, boolean negated) {
+        BooleanQuery and = new BooleanQuery(AND);
+        and.children.add(parseUnary(tokens, next, negated));
+        while (next[0] < tokens.size() && (tokens.get(next[0]).equals("AND") || tokens.get(next[0]).equals("NOT"))) {
+            if (tokens.get(next[0]).equals("AND"))
+                next[0]++;
+            and.children.add(parseUnary(tokens, next, negated));
+        }
+        return and.children.size() == 1 ? and.children.get(0) : and;
+    }
+
+    private static BooleanQuery parseUnary(ArrayList<String> tokens, int[] next, boolean negated) {
+        if (next[0] >= tokens.size())
+            return new BooleanQuery(WORD); //empty word, ignored
+        String token = tokens.get(next[0]++);
+        if (token.equals("NOT")) {
+            BooleanQuery not = new BooleanQuery(NOT);
+            not.children.add(parseUnary(tokens, next, !negated));
+            return not;
+        }
+        if (token.equals("(")) {
+            BooleanQuery inner = parseOr(tokens, next, negated);
+            if (next[0] < tokens.size() && tokens.get(next[0]).equals(")"))
+                next[0]++;
+            return inner;
+        }
+        BooleanQuery leaf = new BooleanQuery(WORD);
+        if (!token.equals("AND") && !token.equals("OR") && !token.equals(")"))
+            leaf.word = token;
+        leaf.negated = negated;
+        return leaf;
+    }
+
+    /**
+     * @return the words of the query (the nodes with no children), in the query order
+     */
+    public ArrayList<BooleanQuery> getLeaves() {
+        ArrayList<BooleanQuery> leaves = new ArrayList<>();
+        addLeaves(leaves);
+        return leaves;
+    }
+
+    private void addLeaves(ArrayList<BooleanQuery> leaves) {
+        if (type == WORD) {
+            if (word != null)
+                leaves.add(this);
+            return;
+        }
+        for (BooleanQuery child : children) {
+            child.addLeaves(leaves);
+        }
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    /**
+     * @return true if the word is under a NOT (it filters docs out and isn't ranked)
+     */
+    public boolean isNegated() {
+        return negated;
+    }
+
+    /**
+     * @param pairs the terms of the word, the same pairs that are sent to get their posting lines
+     */
+    public void setPairs(ArrayList<TermDocPair> pairs) {
+        this.pairs = pairs;
+    }
+
+    /**
+     * @param postData posting line of every term of the query
+     * @return the docs that match the query sorted by docNo, null if the query has no terms (only stop words)
+     */
+    public ArrayList<String> evaluate(HashMap<Term, String> postData) {
+        switch (type) {
+            case WORD:
+                return evaluateWord(postData);
+            case OR:
+                return evaluateOr(postData);
+            case AND:
+                return evaluateAnd(postData);
+            default: //NOT alone
+                if (children.get(0).evaluate(postData) == null)
+                    return null;
+                return new ArrayList<>();
+        }
+    }
+
+    private ArrayList<String> evaluateWord(HashMap<Term, String> postData) {
+        if (pairs.size() == 0)
+            return null;
+        if (pairs.size() == 1) {
+            PostingList postingList = postingList(pairs.get(0), postData);
+            return postingList == null ? new ArrayList<String>() : postingList.docNos();
+        }
+        TreeSet<String> docNos = new TreeSet<>(); //a word with a few terms (wildcard)
+        for (TermDocPair pair : pairs) {
+            PostingList postingList = postingList(pair, postData);
+            if (postingList != null)
+                docNos.addAll(postingList.docNos());
+        }
+        return new ArrayList<>(docNos);
+    }
+
+    private ArrayList<String> evaluateOr(HashMap<Term, String> postData) {
+        TreeSet<String> docNos = new TreeSet<>();
+        boolean hasTerms = false;
+        for (BooleanQuery child : children) {
+            if (child.type == NOT)
+                continue;
+            ArrayList<String> childDocs = child.evaluate(postData);
+            if (childDocs != null) {
+                hasTerms = true;
+                docNos.addAll(childDocs);
+            }
+        }
+        return hasTerms ? new ArrayList<>(docNos) : null;
+    }
+
+    private ArrayList<String> evaluateAnd(final HashMap<Term, String> postData) {
+        ArrayList<BooleanQuery> positives = new ArrayList<>();
+        ArrayList<BooleanQuery> negatives = new ArrayList<>();
+        for (BooleanQuery child : children) {
+            if (child.type == NOT)
+                negatives.add(child.children.get(0));
+            else if (child.hasTerms())
+                positives.add(child);
+        }
+        if (positives.size() == 0)
+            return negatives.size() == 0 ? null : new ArrayList<String>();
+        //starting from the rarest part
+        final HashMap<BooleanQuery, Integer> costs = new HashMap<>();
+        for (BooleanQuery positive : positives) {
+            costs.put(positive, positive.cost(postData));
+        }
+        Collections.sort(positives, new Comparator<BooleanQuery>() {
+            @Override
+            public int compare(BooleanQuery o1, BooleanQuery o2) {
+                return Integer.compare(costs.get(o1), costs.get(o2));
+            }
+        });
+        ArrayList<String> docNos = positives.get(0).evaluate(postData);
+        for (int i = 1; i < positives.size() && docNos.size() > 0; i++) {
+            BooleanQuery positive = positives.get(i);
+            if (positive.isSingleTerm()) {
+                PostingList postingList = postingList(positive.pairs.get(0), postData);
+                docNos = postingList == null ? new ArrayList<String>() : postingList.intersect(docNos);
+            } else
+                docNos = intersect(docNos, positive.evaluate(postData));
+        }
+        for (int i = 0; i < negatives.size() && docNos.size() > 0; i++) {
+            BooleanQuery negative = negatives.get(i);
+            if (negative.isSingleTerm()) {
+                PostingList postingList = postingList(negative.pairs.get(0), postData);
+                if (postingList != null)
+                    docNos = postingList.subtractFrom(docNos);
+            } else {
+                ArrayList<String> negativeDocs = negative.evaluate(postData);
+                if (negativeDocs != null) {
+                    HashSet<String> remove = new HashSet<>(negativeDocs);
+                    ArrayList<String> kept = new ArrayList<>();
+                    for (String docNo : docNos) {
+                        if (!remove.contains(docNo))
+                            kept.add(docNo);
+                    }
+                    docNos = kept;
+                }
+            }
+        }
+        return docNos;
+    }
+
+    /**
+     * @return false if the node has only words with no terms (stop words), then it's left out of its parent
+     */
+    private boolean hasTerms() {
+        if (type == WORD)
+            return pairs.size() > 0;
+        if (type == NOT)
+            return children.get(0).hasTerms();
+        for (BooleanQuery child : children) {
+            if (child.type == NOT ? type == AND : child.hasTerms())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return about how many docs the node has, without evaluating it (the df for a word)
+     */
+    private int cost(HashMap<Term, String> postData) {
+        if (type == WORD) {
+            int cost = 0;
+            for (TermDocPair pair : pairs) {
+                PostingList postingList = postingList(pair, postData);
+                if (postingList != null)
+                    cost += postingList.getDf();
+            }
+            return cost;
+        }
+        if (type == NOT)
+            return Integer.MAX_VALUE;
+        long cost = type == OR ? 0 : Integer.MAX_VALUE;
+        for (BooleanQuery child : children) {
+            if (child.type == NOT || !child.hasTerms())
+                continue;
+            if (type == OR)
+                cost += child.cost(postData);
+            else
+                cost = Math.min(cost, child.cost(postData));
+        }
+        return (int) Math.min(cost, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return true for a word with one term (its posting line can be jumped over)
+     */
+    private boolean isSingleTerm() {
+        return type == WORD && pairs.size() == 1;
+    }
+
+    private static PostingList postingList(TermDocPair pair, HashMap<Term, String> postData) {
+        String line = postData.get(pair.getTerm());
+        if (line == null)
+            return null;
+        return new PostingList(line);
+    }
+
+    /**
+     * galloping intersection of two sorted lists
+     */
+    private static ArrayList<String> intersect(ArrayList<String> small, ArrayList<String> large) {
+        if (small.size() > large.size()) {
+            ArrayList<String> temp = small;
+            small = large;
+            large = temp;
+        }
+        ArrayList<String> output = new ArrayList<>();
+        int low = 0;
+        for (int i = 0; i < small.size() && low < large.size(); i++) {
+            String docNo = small.get(i);
+            int bound = 1;
+            while (low + bound < large.size() && large.get(low + bound).compareTo(docNo) < 0)
+                bound *= 2;
+            int index = Collections.binarySearch(large.subList(low, Math.min(low + bound + 1, large.size())), docNo);
+            if (index >= 0) {
+                output.add(docNo);
+                low += index + 1;
+            } else
+                low += -index - 1;
+        }
+        return output;
+    }
+}
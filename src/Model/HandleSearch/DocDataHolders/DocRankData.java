@@ -1,151 +1,209 @@
 package Model.HandleSearch.DocDataHolders;
 
 import Model.TermsAndDocs.Terms.Term;
-import javafx.util.Pair;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 
 /**
- * this class purpose is to hold all the necessary data required from a file
- * in order to calculate it's rank (score) for a given query
+ * this class purpose is to hold all the necessary data required from the files
+ * in order to calculate the rank (score) of every candidate doc of one query.
+ * the terms of the query (and the similar words) are slots, their data is kept once. the docs are candidates by
+ * the order they were found, their data is kept in arrays by the candidate, and the tf of every term in every doc
+ * is kept in one array - slot s of candidate c is at c * numOfTerms + s (0 if the doc doesn't have the term).
  */
 public class DocRankData {
-    private String docNo;
-    private ArrayList<Pair<Term, Integer>> queryWords;
-    private ArrayList<Pair<Term, Integer>> similarWords;
-    private ArrayList<Integer> queryWordsTfs;
-    private ArrayList<Integer> similarWordsTfs;
-    private ArrayList<Integer> queryWordsDfs;
-    private ArrayList<Integer> similarWordsDfs;
-    private int lengthOfDoc;
-    private int numOfUniqTerms;
-    private int maxTf;
-    private String mostCommonTerm;
-
-
-    private ArrayList<Pair<Term, Integer>> docHeaderStrings;
-    private String docDate;
-
-     public DocRankData(String docNo){
-         this.docNo = docNo;
-         this.docHeaderStrings = new ArrayList<>();
-         this.queryWords = new ArrayList<>();
-         this.queryWordsTfs = new ArrayList<>();
-         this.queryWordsDfs = new ArrayList<>();
-         this.similarWords = new ArrayList<>();
-         this.similarWordsDfs = new ArrayList<>();
-         this.similarWordsTfs = new ArrayList<>();
-     }
+    private int numOfTerms;
+    private int terms;
+    private String[] termsData;
+    private int[] countsInQuery;
+    private int[] dfs;
+    private int[] termIds; //ids in the dictionary, -1 if unknown
+    private boolean[] similar;
+
+    private int candidates;
+    private HashMap<String, Integer> candidateOf;
+    private String[] docNos;
+    private int[] lengthsOfDocs;
+    private int[] numsOfUniqTerms;
+    private int[] maxTfs;
+    private String[] mostCommonTerms;
+    private String[] docDates;
+    private int[][] headerTermIds; //sorted
+    private float[] docNorms; //0 if unknown
+    private int[] tfs;
 
     /**
-     * this method is getting al the fields required to fill one of the query term's weight
-     * in a specific doc
-     * @param queryWord
-     * @param tf
-     * @param df
+     * @param numOfTerms most terms (query and similar words) that will be added
      */
-     public void addQueryWordData(Pair<Term, Integer> queryWord, int tf, int df){
-         this.queryWords.add(queryWord);
-         this.queryWordsTfs.add(tf);
-         this.queryWordsDfs.add(df);
-     }
+    public DocRankData(int numOfTerms) {
+        this.numOfTerms = numOfTerms;
+        this.termsData = new String[numOfTerms];
+        this.countsInQuery = new int[numOfTerms];
+        this.dfs = new int[numOfTerms];
+        this.termIds = new int[numOfTerms];
+        this.similar = new boolean[numOfTerms];
+        this.candidateOf = new HashMap<>();
+        grow(64);
+    }
 
     /**
-     * this method is getting al the fields required to fill one of the similar query term's weight
-     * in a specific doc
-     * @param similarWord
-     * @param tf
+     * adds a term of the query or a similar word
+     * @param term
+     * @param countInQuery
      * @param df
+     * @param id id of the term in the dictionary
+     * @param isSimilar true for a semantically similar word
+     * @return the slot of the term
      */
-    public void addSimilarQueryWordData(Pair<Term, Integer> similarWord, int tf, int df){
-        this.similarWords.add(similarWord);
-        this.similarWordsTfs.add(tf);
-        this.similarWordsDfs.add(df);
+    public int addTerm(Term term, int countInQuery, int df, int id, boolean isSimilar) {
+        termsData[terms] = term.getData();
+        countsInQuery[terms] = countInQuery;
+        dfs[terms] = df;
+        termIds[terms] = id;
+        similar[terms] = isSimilar;
+        return terms++;
     }
 
     /**
-     * setter for doc length
+     * adds a doc that will be ranked
+     * @param docNo
      * @param lengthOfDoc
+     * @param numOfUniqTerms
+     * @param mostCommonTerm
+     * @param maxTf
+     * @param docDate
+     * @return the candidate of the doc
      */
-    public void setLengthOfDoc(int lengthOfDoc) {
-        this.lengthOfDoc = lengthOfDoc;
+    public int addCandidate(String docNo, int lengthOfDoc, int numOfUniqTerms, String mostCommonTerm, int maxTf, String docDate) {
+        if (candidates == docNos.length)
+            grow(candidates * 2);
+        int candidate = candidates++;
+        candidateOf.put(docNo, candidate);
+        docNos[candidate] = docNo;
+        lengthsOfDocs[candidate] = lengthOfDoc;
+        numsOfUniqTerms[candidate] = numOfUniqTerms;
+        mostCommonTerms[candidate] = mostCommonTerm;
+        maxTfs[candidate] = maxTf;
+        docDates[candidate] = docDate;
+        headerTermIds[candidate] = new int[0];
+        docNorms[candidate] = 0;
+        return candidate;
+    }
+
+    private void grow(int capacity) {
+        docNos = docNos == null ? new String[capacity] : Arrays.copyOf(docNos, capacity);
+        lengthsOfDocs = lengthsOfDocs == null ? new int[capacity] : Arrays.copyOf(lengthsOfDocs, capacity);
+        numsOfUniqTerms = numsOfUniqTerms == null ? new int[capacity] : Arrays.copyOf(numsOfUniqTerms, capacity);
+        maxTfs = maxTfs == null ? new int[capacity] : Arrays.copyOf(maxTfs, capacity);
+        mostCommonTerms = mostCommonTerms == null ? new String[capacity] : Arrays.copyOf(mostCommonTerms, capacity);
+        docDates = docDates == null ? new String[capacity] : Arrays.copyOf(docDates, capacity);
+        headerTermIds = headerTermIds == null ? new int[capacity][] : Arrays.copyOf(headerTermIds, capacity);
+        docNorms = docNorms == null ? new float[capacity] : Arrays.copyOf(docNorms, capacity);
+        tfs = tfs == null ? new int[capacity * numOfTerms] : Arrays.copyOf(tfs, capacity * numOfTerms);
     }
 
     /**
-     * setter for doc's header
-     * @param docHeaderStrings
+     * @param docNo
+     * @return the candidate of the doc, -1 if it wasn't added
      */
-    public void setDocHeaderStrings(ArrayList<Pair<Term, Integer>> docHeaderStrings) {
-        this.docHeaderStrings = docHeaderStrings;
+    public int getCandidate(String docNo) {
+        Integer candidate = candidateOf.get(docNo);
+        return candidate == null ? -1 : candidate;
     }
 
-    //getters for all of this class fields:
+    /**
+     * adds to the tf of the term in the doc - a doc can have two postings in the line of a term, for its lower and
+     * upper case words
+     * @param candidate
+     * @param slot
+     * @param tf tf of the term in the doc, in one posting
+     */
+    public void addTf(int candidate, int slot, int tf) {
+        tfs[candidate * numOfTerms + slot] += tf;
+    }
+
+    /**
+     * setter for doc's header
+     * @param candidate
+     * @param headerTermIds sorted ids of the terms of the header
+     */
+    public void setHeaderTermIds(int candidate, int[] headerTermIds) {
+        this.headerTermIds[candidate] = headerTermIds;
+    }
 
-    public ArrayList<Pair<Term, Integer>> getQueryWords() {
-        return queryWords;
+    /**
+     * setter for doc's norm
+     * @param candidate
+     * @param docNorm norm of the TF-IDF vector of all the terms of the doc, 0 if it isn't known
+     */
+    public void setDocNorm(int candidate, float docNorm) {
+        this.docNorms[candidate] = docNorm;
     }
 
-    public ArrayList<Pair<Term, Integer>> getSimilarWords() {
-        return similarWords;
+    //getters for all of this class fields:
+
+    public int getNumOfCandidates() {
+        return candidates;
     }
 
-    public ArrayList<Integer> getQueryWordsTfs() {
-        return queryWordsTfs;
+    public int getNumOfTerms() {
+        return terms;
     }
 
-    public ArrayList<Integer> getSimilarWordsTfs() {
-        return similarWordsTfs;
+    public int getTf(int candidate, int slot) {
+        return tfs[candidate * numOfTerms + slot];
     }
 
-    public ArrayList<Integer> getQueryWordsDfs() {
-        return queryWordsDfs;
+    public String getTermData(int slot) {
+        return termsData[slot];
     }
 
-    public ArrayList<Integer> getSimilarWordsDfs() {
-        return similarWordsDfs;
+    public int getCountInQuery(int slot) {
+        return countsInQuery[slot];
     }
 
-    public int getLengthOfDoc() {
-        return lengthOfDoc;
+    public int getDf(int slot) {
+        return dfs[slot];
     }
 
-    public ArrayList<Pair<Term, Integer>> getDocHeaderStrings() {
-        return docHeaderStrings;
+    public int getTermId(int slot) {
+        return termIds[slot];
     }
 
-    public void setDocDate(String docDate) {
-        this.docDate = docDate;
+    public boolean isSimilar(int slot) {
+        return similar[slot];
     }
 
-    public String getDocDate() {
-        return docDate;
+    public String getDocNo(int candidate) {
+        return docNos[candidate];
     }
 
-    public int getNumOfUniqTerms() {
-        return numOfUniqTerms;
+    public int getLengthOfDoc(int candidate) {
+        return lengthsOfDocs[candidate];
     }
 
-    public String getMostCommonTerm() {
-        return mostCommonTerm;
+    public int getNumOfUniqTerms(int candidate) {
+        return numsOfUniqTerms[candidate];
     }
 
-    public void setMostCommonTerm(String mostCommonTerm) {
-        this.mostCommonTerm = mostCommonTerm;
+    public int getMaxTf(int candidate) {
+        return maxTfs[candidate];
     }
 
-    public void setNumOfUniqTerms(int numOfUniqTerms) {
-        this.numOfUniqTerms = numOfUniqTerms;
+    public String getMostCommonTerm(int candidate) {
+        return mostCommonTerms[candidate];
     }
 
-    public int getMaxTf() {
-        return maxTf;
+    public String getDocDate(int candidate) {
+        return docDates[candidate];
     }
 
-    public void setMaxTf(int maxTf) {
-        this.maxTf = maxTf;
+    public int[] getHeaderTermIds(int candidate) {
+        return headerTermIds[candidate];
     }
 
-    public String getDocNo() {
-        return docNo;
+    public float getDocNorm(int candidate) {
+        return docNorms[candidate];
     }
 }
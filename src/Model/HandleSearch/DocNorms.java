@@ -0,0 +1,173 @@
+package Model.HandleSearch;
+
+import Model.IndexerAndDictionary.HandleMerge;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * The norm of the TF-IDF vector of every document - all of its terms, not only the terms of the query - found when
+ * the index is built, from the final posting files (the df of every term is known only after the merge), and
+ * written next to the docs files. the cosine similarity of a doc is then the dot product of the query terms it has
+ * divided by its norm.
+ * a document that isn't in the table (an index that was built before) has no norm, see Ranker.
+ * file: a line for every document - "docNo norm".
+ */
+public class DocNorms {
+    private static Pattern spaces = Pattern.compile("[ ]");
+    private static ConcurrentHashMap<String, Float> table = new ConcurrentHashMap<>();
+
+    /**
+     * @param docNo
+     * @return norm of the TF-IDF vector of the document, 0 if it isn't known
+     */
+    public static float get(String docNo) {
+        Float norm = table.get(docNo);
+        return norm == null ? 0 : norm;
+    }
+
+    /**
+     * @param outputPath
+     * @param toStem
+     * @return path of the table of the index
+     */
+    public static String tablePath(String outputPath, boolean toStem) {
+        return outputPath + (toStem ? "\\stemOur" : "\\noStemOur") + "\\DocsFiles\\docNorms";
+    }
+
+    /**
+     * adds the squared TF-IDF weight of every posting of the final posting files to its doc, and writes the norms
+     *
+     * @param outputPath
+     * @param toStem
+     * @param path
+     */
+    public static void build(String outputPath, boolean toStem, String path) {
+        table.clear();
+        final String postingsPath = outputPath + (toStem ? "\\stemOur_" : "\\noStemOur_");
+        final Ranker ranker = new Ranker(false, toStem);
+        final HashMap<String, Double> squaredNorms = new HashMap<>();
+        String[] fileNames = HandleMerge.fileNames();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(fileNames.length, Runtime.getRuntime().availableProcessors()));
+        for (final String fileName : fileNames) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    HashMap<String, Double> fileSquaredNorms = new HashMap<>();
+                    try {
+                        File postingFile = new File(postingsPath + fileName);
+                        if (!postingFile.exists())
+                            return;
+                        BufferedReader reader = new BufferedReader(new FileReader(postingFile), 1 << 16);
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            addSquaredWeights(line, ranker, fileSquaredNorms);
+                        }
+                        reader.close();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    synchronized (squaredNorms) {
+                        for (Map.Entry<String, Double> entry : fileSquaredNorms.entrySet()) {
+                            Double previous = squaredNorms.get(entry.getKey());
+                            squaredNorms.put(entry.getKey(), previous == null ? entry.getValue() : previous + entry.getValue());
+                        }
+                    }
+                }
+            });
+        }
+        try {
+            executor.shutdown();
+            executor.awaitTermination(200000, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        for (Map.Entry<String, Double> entry : squaredNorms.entrySet()) {
+            table.put(entry.getKey(), (float) Math.sqrt(entry.getValue()));
+        }
+        write(path);
+    }
+
+    /**
+     * @param line "term(docNo;tf)(docNo;tf)...,sk{..},df{..}"
+     * @param ranker for the idf
+     * @param squaredNorms docNo -> sum of the squared weights of its terms so far
+     */
+    private static void addSquaredWeights(String line, Ranker ranker, HashMap<String, Double> squaredNorms) {
+        int dfStart = line.lastIndexOf(",df{");
+        if (dfStart < 0)
+            return;
+        double idf = ranker.getIdf(Integer.parseInt(line.substring(dfStart + 4, line.length() - 1)));
+        //the tf of every doc (a doc can be written twice, for its lower and upper case words)
+        LinkedHashMap<String, Integer> tfs = new LinkedHashMap<>();
+        int open = line.indexOf('(');
+        while (open >= 0) {
+            int semicolon = line.indexOf(';', open);
+            int close = line.indexOf(')', semicolon);
+            String docNo = line.substring(open + 1, semicolon);
+            int tf = Integer.parseInt(line.substring(semicolon + 1, close));
+            Integer previous = tfs.get(docNo);
+            tfs.put(docNo, previous == null ? tf : previous + tf);
+            open = line.indexOf('(', close);
+        }
+        for (Map.Entry<String, Integer> entry : tfs.entrySet()) {
+            double weight = entry.getValue() * idf;
+            Double previous = squaredNorms.get(entry.getKey());
+            squaredNorms.put(entry.getKey(), previous == null ? weight * weight : previous + weight * weight);
+        }
+    }
+
+    /**
+     * replaces the table with the table of the loaded index, if it has one
+     *
+     * @param path
+     */
+    public static void load(String path) {
+        table.clear();
+        if (!new File(path).exists())
+            return;
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(path), 1 << 16);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] splitter = spaces.split(line);
+                if (splitter.length == 2)
+                    table.put(splitter[0], Float.parseFloat(splitter[1]));
+            }
+            reader.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void clear() {
+        table.clear();
+    }
+
+    private static void write(String path) {
+        try {
+            BufferedWriter writer = new BufferedWriter(new FileWriter(path), 1 << 16);
+            for (Map.Entry<String, Float> entry : table.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write(' ');
+                writer.write(Float.toString(entry.getValue()));
+                writer.newLine();
+            }
+            writer.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
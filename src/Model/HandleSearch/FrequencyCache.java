@@ -0,0 +1,219 @@
+package Model.HandleSearch;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A cache bounded by number of entries and by their size in bytes. the least recently used entries are evicted,
+ * but only for a key that was asked at least as often as them (TinyLFU admission) - a key that is asked once
+ * doesn't push out a popular one. the frequencies are kept in a small count-min sketch and halved every few
+ * thousand requests so old popularity fades.
+ *
+ * @param <V> type of the cached values
+ */
+public abstract class FrequencyCache<V> {
+    private static final int maxCount = 15; //highest frequency that is counted
+    private static final int[] seeds = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private int maxEntries;
+    private long maxBytes;
+    private LinkedHashMap<String, V> values; //in access order, eldest first
+    private LinkedHashMap<String, Long> sizes;
+    private long bytes;
+
+    private int[][] sketch; //frequency of every key
+    private int sketchMask;
+    private int additions;
+    private int resetAfter;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+
+    /**
+     * @param maxEntries most entries to keep
+     * @param maxBytes most estimated bytes of all the kept entries
+     */
+    public FrequencyCache(int maxEntries, long maxBytes) {
+        this(maxEntries, maxBytes, maxEntries);
+    }
+
+    /**
+     * @param maxEntries most entries to keep
+     * @param maxBytes most estimated bytes of all the kept entries
+     * @param expectedEntries about how many entries fit, the frequencies are counted for about 4 times as many keys
+     */
+    public FrequencyCache(int maxEntries, long maxBytes, int expectedEntries) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.values = new LinkedHashMap<>(16, 0.75f, true);
+        this.sizes = new LinkedHashMap<>();
+        expectedEntries = Math.max(4, Math.min(expectedEntries, 1 << 20));
+        int width = Integer.highestOneBit(expectedEntries * 4 - 1) << 1;
+        this.sketch = new int[seeds.length][width];
+        this.sketchMask = width - 1;
+        this.resetAfter = 10 * expectedEntries;
+    }
+
+    /**
+     * @param key
+     * @param value
+     * @return about how many bytes the key and the value take
+     */
+    protected abstract long weigh(String key, V value);
+
+    /**
+     * @param value
+     * @return the value that is kept or given out, a copy if the value can be changed by the user
+     */
+    protected V copy(V value) {
+        return value;
+    }
+
+    /**
+     * @param key
+     * @return the kept value of the key, null if it isn't kept
+     */
+    public synchronized V get(String key) {
+        increment(key);
+        V cached = values.get(key);
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return copy(cached);
+    }
+
+    /**
+     * keeps the value, if it isn't less popular than the values that would be evicted for it
+     *
+     * @param key
+     * @param value
+     */
+    public synchronized void put(String key, V value) {
+        long size = weigh(key, value);
+        if (size > maxBytes || maxEntries <= 0) {
+            rejections++;
+            return;
+        }
+        if (values.containsKey(key))
+            remove(key);
+        int frequency = frequency(key);
+        while (values.size() + 1 > maxEntries || bytes + size > maxBytes) {
+            Iterator<String> eldest = values.keySet().iterator();
+            String victim = eldest.next();
+            if (frequency < frequency(victim)) { //a tie goes to the newer key, like LRU
+                rejections++;
+                return;
+            }
+            remove(victim);
+            evictions++;
+        }
+        values.put(key, copy(value));
+        sizes.put(key, size);
+        bytes += size;
+    }
+
+    /**
+     * removes all the kept values, the popularity of the keys is kept
+     */
+    public synchronized void clear() {
+        values.clear();
+        sizes.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @param maxBytes most estimated bytes of all the kept entries, the least recently used are evicted to fit
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        Iterator<String> eldest = values.keySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            String victim = eldest.next();
+            eldest.remove();
+            bytes -= sizes.remove(victim);
+            evictions++;
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of values that weren't kept because they were less popular than the values in the cache
+     */
+    public synchronized long getRejections() {
+        return rejections;
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public synchronized int size() {
+        return values.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "hits=" + hits + " misses=" + misses + " hitRate=" + String.format("%.2f", getHitRate()) + " entries=" + values.size()
+                + " bytes=" + bytes + " evictions=" + evictions + " rejections=" + rejections;
+    }
+
+    private void remove(String key) {
+        values.remove(key);
+        Long size = sizes.remove(key);
+        if (size != null)
+            bytes -= size;
+    }
+
+    private void increment(String key) {
+        int hash = key.hashCode();
+        for (int row = 0; row < seeds.length; row++) {
+            int index = index(hash, row);
+            if (sketch[row][index] < maxCount)
+                sketch[row][index]++;
+        }
+        additions++;
+        if (additions >= resetAfter) { //aging, halving every counter
+            for (int[] counters : sketch) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+
+    private int frequency(String key) {
+        int hash = key.hashCode();
+        int frequency = maxCount;
+        for (int row = 0; row < seeds.length; row++) {
+            frequency = Math.min(frequency, sketch[row][index(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private int index(int hash, int row) {
+        int h = hash * seeds[row];
+        h ^= h >>> 16;
+        return h & sketchMask;
+    }
+}
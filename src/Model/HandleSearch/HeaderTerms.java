@@ -0,0 +1,199 @@
+package Model.HandleSearch;
+
+import Model.IndexerAndDictionary.Dictionary;
+import Model.TermsAndDocs.Pairs.TermDocPair;
+import Model.TermsAndDocs.Terms.CapsTerm;
+import Model.TermsAndDocs.Terms.RegularTerm;
+import Model.TermsAndDocs.Terms.Term;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * The terms of the header of every document, parsed by the rules of the documents text when the index is built and
+ * kept as the sorted ids of the terms in the dictionary (their place in the sorted terms), so checking if a query
+ * term is in a header is a binary search in a small array.
+ * a document that isn't in the table (an index that was built before) is parsed when it is ranked, and kept.
+ * file: a line for every document that has header terms - "docNo id id...".
+ */
+public class HeaderTerms {
+    private static final int[] noTerms = new int[0];
+    private static Pattern spaces = Pattern.compile("[ ]");
+    private static Pattern splitByDotCom = Pattern.compile("[\\;]");
+    private static ConcurrentHashMap<String, int[]> table = new ConcurrentHashMap<>();
+
+    /**
+     * @param docNo
+     * @param header the header of the document, parsed if the document isn't in the table
+     * @param parse
+     * @param dictionary the frozen dictionary of the index of the document
+     * @return sorted ids of the terms of the header
+     */
+    public static int[] get(String docNo, String header, SearcherParse parse, Dictionary dictionary) {
+        int[] ids = table.get(docNo);
+        if (ids != null)
+            return ids;
+        ids = findTermIds(header, parse, dictionary);
+        table.put(docNo, ids);
+        return ids;
+    }
+
+    /**
+     * @param outputPath
+     * @param toStem
+     * @return path of the table of the index
+     */
+    public static String tablePath(String outputPath, boolean toStem) {
+        return outputPath + (toStem ? "\\stemOur" : "\\noStemOur") + "\\DocsFiles\\headerTerms";
+    }
+
+    /**
+     * parses the header of every document of the docs files and writes the ids of its terms
+     *
+     * @param dictionary the frozen dictionary of the index
+     * @param stopWords
+     * @param toStem
+     * @param docsPath
+     * @param path
+     */
+    public static void build(final Dictionary dictionary, final HashSet<String> stopWords, final boolean toStem,
+                             ArrayList<String> docsPath, String path) {
+        table.clear();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(docsPath.size(), Runtime.getRuntime().availableProcessors()));
+        for (final String docsFile : docsPath) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    SearcherParse parse = new SearcherParse(stopWords, toStem);
+                    try {
+                        BufferedReader reader = new BufferedReader(new FileReader(docsFile), 1 << 16);
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            //docNo;size;unique terms;most common term;its count;date;header;entities
+                            String[] splitter = splitByDotCom.split(line);
+                            if (splitter.length < 7)
+                                continue;
+                            table.put(splitter[0], findTermIds(splitter[6], parse, dictionary));
+                        }
+                        reader.close();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+        }
+        try {
+            executor.shutdown();
+            executor.awaitTermination(200000, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        write(path);
+    }
+
+    /**
+     * replaces the table with the table of the loaded index, if it has one
+     *
+     * @param path
+     */
+    public static void load(String path) {
+        table.clear();
+        if (!new File(path).exists())
+            return;
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(path), 1 << 16);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] splitter = spaces.split(line);
+                int[] ids = new int[splitter.length - 1];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = Integer.parseInt(splitter[i + 1]);
+                }
+                table.put(splitter[0], ids);
+            }
+            reader.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void clear() {
+        table.clear();
+    }
+
+    /**
+     * documents without header terms aren't written, they are parsed again when they are ranked
+     */
+    private static void write(String path) {
+        try {
+            BufferedWriter writer = new BufferedWriter(new FileWriter(path), 1 << 16);
+            for (Map.Entry<String, int[]> entry : table.entrySet()) {
+                if (entry.getValue().length == 0)
+                    continue;
+                writer.write(entry.getKey());
+                for (int id : entry.getValue()) {
+                    writer.write(' ');
+                    writer.write(Integer.toString(id));
+                }
+                writer.newLine();
+            }
+            writer.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * parses the header like a query and finds the terms in the dictionary the way the query terms are found
+     * (a caps term that isn't in the dictionary is looked up in lower case, and a lower case word in capitals).
+     * the header is parsed again in lower case, since a sequence of capital words - most headers - is parsed only
+     * as an entity, and its words should still match the query words.
+     *
+     * @return sorted ids of the terms, without repeats
+     */
+    private static int[] findTermIds(String header, SearcherParse parse, Dictionary dictionary) {
+        if (header == null || header.length() == 0)
+            return noTerms;
+        ArrayList<Term> terms = new ArrayList<>();
+        for (String text : new String[]{header, header.toLowerCase()}) {
+            ArrayList<String> words = new ArrayList<>();
+            Collections.addAll(words, spaces.split(text));
+            for (TermDocPair pair : parse.parseForSearcher(words, 0).values()) {
+                terms.add(pair.getTerm());
+            }
+        }
+        int[] ids = new int[terms.size()];
+        int size = 0;
+        for (Term term : terms) {
+            int id = dictionary.ordinal(term);
+            if (id < 0 && term instanceof CapsTerm)
+                id = dictionary.ordinal(new RegularTerm(term.getData().toLowerCase()));
+            else if (id < 0 && term instanceof RegularTerm) //a word of an entity that is kept in capitals
+                id = dictionary.ordinal(new CapsTerm(term.getData().toUpperCase()));
+            if (id >= 0)
+                ids[size++] = id;
+        }
+        if (size == 0)
+            return noTerms;
+        Arrays.sort(ids, 0, size);
+        int unique = 1;
+        for (int i = 1; i < size; i++) {
+            if (ids[i] != ids[unique - 1])
+                ids[unique++] = ids[i];
+        }
+        return Arrays.copyOf(ids, unique);
+    }
+}
@@ -0,0 +1,385 @@
+package Model.HandleSearch;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Approximate nearest neighbors of the word vectors, by a hierarchical navigable small world graph (HNSW).
+ * every vector is a node with links to close nodes, on level 0 and on a few random higher levels that have fewer
+ * nodes. a search goes greedily down the levels to a close node, then searches level 0 around it, keeping the
+ * ef best nodes. a bigger ef finds the true closest more often and takes longer (-DsemanticEf=..., 64 by default).
+ * built once from the model, written to a file of ints that is read in bulk when it's loaded.
+ * file: magic, nodes, m, max level, entry point, level of every node, level 0 links (count and 2m slots for every
+ * node), then for every higher level - its nodes, and their links (count and m slots for every node).
+ */
+public class HnswIndex {
+    private static final int binaryMagic = 0x484E5357; //"HNSW"
+    private static final int headerInts = 5;
+    private static final int efConstruction = 100;
+    private static final int maxLevels = 16;
+    private static int ef = Integer.getInteger("semanticEf", 64);
+
+    private NearestNeighbors vectors;
+    private int size;
+    private int m; //links of a node on a high level, twice on level 0
+    private int m0;
+    private int maxLevel;
+    private int entryPoint;
+    private int[] levels;
+    private IntBuffer layer0; //node i from i * (m0 + 1): count, links
+    private int[][] upperNodes; //sorted nodes of every level from 1
+    private int[][] upperLinks; //node in place j of upperNodes from j * (m + 1): count, links
+
+    private HnswIndex(NearestNeighbors vectors, int m, int[] levels) {
+        this.vectors = vectors;
+        this.size = vectors.size();
+        this.m = m;
+        this.m0 = 2 * m;
+        this.levels = levels;
+        this.entryPoint = -1;
+        this.maxLevel = -1;
+    }
+
+    /**
+     * @param ef nodes kept by a search of level 0, more for better recall and slower searches
+     */
+    public static void setEf(int ef) {
+        HnswIndex.ef = Math.max(1, ef);
+    }
+
+    public static int getEf() {
+        return ef;
+    }
+
+    /**
+     * @param vectors unit length vectors
+     * @param m links of a node (twice on level 0)
+     * @return graph of all the vectors
+     */
+    public static HnswIndex build(NearestNeighbors vectors, int m) {
+        int n = vectors.size();
+        int[] levels = new int[n];
+        Random random = new Random(n);
+        double levelMultiplier = 1 / Math.log(m);
+        for (int i = 0; i < n; i++) {
+            levels[i] = Math.min(maxLevels, (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier));
+        }
+        HnswIndex index = new HnswIndex(vectors, m, levels);
+        index.allocateLinks();
+        for (int i = 0; i < n; i++) {
+            index.insert(i);
+        }
+        return index;
+    }
+
+    private void allocateLinks() {
+        layer0 = IntBuffer.allocate(size * (m0 + 1));
+        int top = 0;
+        for (int level : levels) {
+            top = Math.max(top, level);
+        }
+        upperNodes = new int[top + 1][];
+        upperLinks = new int[top + 1][];
+        for (int l = 1; l <= top; l++) {
+            int count = 0;
+            for (int level : levels) {
+                if (level >= l)
+                    count++;
+            }
+            upperNodes[l] = new int[count];
+            upperLinks[l] = new int[count * (m + 1)];
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                if (levels[i] >= l)
+                    upperNodes[l][j++] = i;
+            }
+        }
+    }
+
+    private void insert(int node) {
+        float[] query = vectors.vector(node);
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = levels[node];
+            return;
+        }
+        int closest = entryPoint;
+        for (int l = maxLevel; l > levels[node]; l--) {
+            closest = greedy(query, closest, l);
+        }
+        for (int l = Math.min(levels[node], maxLevel); l >= 0; l--) {
+            long[] found = searchLevel(query, closest, efConstruction, l);
+            int[] selected = selectNeighbors(found, m);
+            setLinks(node, l, selected, selected.length);
+            for (int neighbor : selected) {
+                addLink(neighbor, node, l);
+            }
+            closest = node(found[0]);
+        }
+        if (levels[node] > maxLevel) {
+            maxLevel = levels[node];
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * @param row
+     * @param k
+     * @return about the k closest rows to the row, closest first
+     */
+    public int[] search(int row, int k) {
+        if (entryPoint < 0)
+            return new int[0];
+        float[] query = vectors.vector(row);
+        int closest = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            closest = greedy(query, closest, l);
+        }
+        long[] found = searchLevel(query, closest, Math.max(ef, k), 0);
+        int[] output = new int[Math.min(k, found.length)];
+        for (int i = 0; i < output.length; i++) {
+            output[i] = node(found[i]);
+        }
+        return output;
+    }
+
+    /**
+     * @return the closest node to the query that can be reached on the level by moving to closer neighbors
+     */
+    private int greedy(float[] query, int start, int level) {
+        int current = start;
+        float currentScore = vectors.dot(query, current);
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            int base = base(current, level);
+            int count = link(level, base);
+            for (int i = 1; i <= count; i++) {
+                int neighbor = link(level, base + i);
+                float score = vectors.dot(query, neighbor);
+                if (score > currentScore) {
+                    current = neighbor;
+                    currentScore = score;
+                    moved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return the best nodes found around the start on the level, best first, as score and node in one long
+     */
+    private long[] searchLevel(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Long> candidates = new PriorityQueue<>(16, Collections.<Long>reverseOrder()); //best first
+        PriorityQueue<Long> results = new PriorityQueue<>(); //worst first
+        long first = pack(vectors.dot(query, start), start);
+        visited.set(start);
+        candidates.add(first);
+        results.add(first);
+        while (!candidates.isEmpty()) {
+            long candidate = candidates.poll();
+            if (results.size() >= ef && candidate < results.peek())
+                break;
+            int base = base(node(candidate), level);
+            int count = link(level, base);
+            for (int i = 1; i <= count; i++) {
+                int neighbor = link(level, base + i);
+                if (visited.get(neighbor))
+                    continue;
+                visited.set(neighbor);
+                long packed = pack(vectors.dot(query, neighbor), neighbor);
+                if (results.size() < ef || packed > results.peek()) {
+                    candidates.add(packed);
+                    results.add(packed);
+                    if (results.size() > ef)
+                        results.poll();
+                }
+            }
+        }
+        long[] found = new long[results.size()];
+        for (int i = found.length - 1; i >= 0; i--) {
+            found[i] = results.poll();
+        }
+        return found;
+    }
+
+    /**
+     * keeps a candidate only if it's closer to the node than to the candidates that were already kept, so the links
+     * go to different directions (the heuristic of the HNSW paper)
+     *
+     * @param candidates best first
+     * @param max
+     * @return the kept nodes
+     */
+    private int[] selectNeighbors(long[] candidates, int max) {
+        int[] selected = new int[Math.min(max, candidates.length)];
+        int count = 0;
+        for (int c = 0; c < candidates.length && count < selected.length; c++) {
+            int candidate = node(candidates[c]);
+            float score = score(candidates[c]);
+            float[] candidateVector = vectors.vector(candidate);
+            boolean keep = true;
+            for (int s = 0; s < count && keep; s++) {
+                if (vectors.dot(candidateVector, selected[s]) > score)
+                    keep = false;
+            }
+            if (keep)
+                selected[count++] = candidate;
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    private void addLink(int node, int neighbor, int level) {
+        int base = base(node, level);
+        int count = link(level, base);
+        int max = level == 0 ? m0 : m;
+        if (count < max) {
+            setLink(level, base + count + 1, neighbor);
+            setLink(level, base, count + 1);
+            return;
+        }
+        //too many links, keeping the best of them and the new one
+        float[] nodeVector = vectors.vector(node);
+        long[] candidates = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            int linked = link(level, base + i + 1);
+            candidates[i] = pack(vectors.dot(nodeVector, linked), linked);
+        }
+        candidates[count] = pack(vectors.dot(nodeVector, neighbor), neighbor);
+        Arrays.sort(candidates);
+        for (int i = 0, j = candidates.length - 1; i < j; i++, j--) { //best first
+            long temp = candidates[i];
+            candidates[i] = candidates[j];
+            candidates[j] = temp;
+        }
+        int[] selected = selectNeighbors(candidates, max);
+        setLinks(node, level, selected, selected.length);
+    }
+
+    private void setLinks(int node, int level, int[] links, int count) {
+        int base = base(node, level);
+        setLink(level, base, count);
+        for (int i = 0; i < count; i++) {
+            setLink(level, base + i + 1, links[i]);
+        }
+    }
+
+    private int base(int node, int level) {
+        if (level == 0)
+            return node * (m0 + 1);
+        return Arrays.binarySearch(upperNodes[level], node) * (m + 1);
+    }
+
+    private int link(int level, int index) {
+        return level == 0 ? layer0.get(index) : upperLinks[level][index];
+    }
+
+    private void setLink(int level, int index, int value) {
+        if (level == 0)
+            layer0.put(index, value);
+        else
+            upperLinks[level][index] = value;
+    }
+
+    /**
+     * the score in the high bits, as an int that keeps the order of the floats, so longs are ordered by score
+     */
+    private static long pack(float score, int node) {
+        int bits = Float.floatToIntBits(score);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) bits << 32) | (node & 0xffffffffL);
+    }
+
+    private static int node(long packed) {
+        return (int) packed;
+    }
+
+    private static float score(long packed) {
+        int bits = (int) (packed >> 32);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return Float.intBitsToFloat(bits);
+    }
+
+    /**
+     * @param path
+     */
+    public void write(String path) {
+        try {
+            File temp = new File(path + ".tmp");
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+            out.writeInt(binaryMagic);
+            out.writeInt(size);
+            out.writeInt(m);
+            out.writeInt(maxLevel);
+            out.writeInt(entryPoint);
+            for (int level : levels) {
+                out.writeInt(level);
+            }
+            for (int i = 0; i < size * (m0 + 1); i++) {
+                out.writeInt(layer0.get(i));
+            }
+            for (int l = 1; l <= maxLevel; l++) {
+                out.writeInt(upperNodes[l].length);
+                for (int node : upperNodes[l]) {
+                    out.writeInt(node);
+                }
+                for (int link : upperLinks[l]) {
+                    out.writeInt(link);
+                }
+            }
+            out.close();
+            File file = new File(path);
+            file.delete();
+            temp.renameTo(file);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @param path
+     * @param vectors the vectors the graph was built of
+     * @return the graph, read in bulk (not mapped, a mapped file stays locked on Windows until GC). null if the file
+     * isn't a graph of these vectors
+     */
+    public static HnswIndex read(String path, NearestNeighbors vectors) throws IOException {
+        IntBuffer ints = ByteBuffer.wrap(Files.readAllBytes(Paths.get(path))).asIntBuffer();
+        if (ints.get(0) != binaryMagic || ints.get(1) != vectors.size())
+            return null;
+        int[] levels = new int[ints.get(1)];
+        ints.position(headerInts);
+        ints.get(levels);
+        HnswIndex index = new HnswIndex(vectors, ints.get(2), levels);
+        index.maxLevel = ints.get(3);
+        index.entryPoint = ints.get(4);
+        int layer0Ints = index.size * (index.m0 + 1);
+        ints.limit(ints.position() + layer0Ints);
+        index.layer0 = ints.slice();
+        ints.limit(ints.capacity());
+        ints.position(ints.position() + layer0Ints);
+        index.upperNodes = new int[index.maxLevel + 1][];
+        index.upperLinks = new int[index.maxLevel + 1][];
+        for (int l = 1; l <= index.maxLevel; l++) {
+            int count = ints.get();
+            index.upperNodes[l] = new int[count];
+            ints.get(index.upperNodes[l]);
+            index.upperLinks[l] = new int[count * (index.m + 1)];
+            ints.get(index.upperLinks[l]);
+        }
+        return index;
+    }
+}
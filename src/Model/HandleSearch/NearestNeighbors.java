@@ -0,0 +1,187 @@
+package Model.HandleSearch;
+
+import java.util.Arrays;
+
+/**
+ * Exact nearest neighbors of unit length vectors, by their dot product (the cosine).
+ * the vectors are one contiguous float array, a row for every vector. the rows are read in blocks that fit in the
+ * cache, and a few queries are compared to every block before moving on, so every row is read from memory once
+ * for the few queries. only the best k of every query are kept, in a small heap.
+ */
+public class NearestNeighbors {
+    private static final int rowsBlock = 256; //rows compared to the queries at a time
+    private static final int queriesBlock = 8; //queries compared to a block at a time
+
+    private float[] matrix;
+    private int dimension;
+    private int rows;
+
+    /**
+     * @param matrix the vectors, vector i from i * dimension
+     * @param dimension
+     */
+    public NearestNeighbors(float[] matrix, int dimension) {
+        this.matrix = matrix;
+        this.dimension = dimension;
+        this.rows = dimension == 0 ? 0 : matrix.length / dimension;
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @return the vectors, vector i from i * dimension
+     */
+    public float[] getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * @param row
+     * @param k
+     * @return the k closest rows to the row, closest first (the row itself is the closest)
+     */
+    public int[] search(int row, int k) {
+        return search(new int[]{row}, k)[0];
+    }
+
+    /**
+     * @param queryRows
+     * @param k
+     * @return the k closest rows to every query row, closest first
+     */
+    public int[][] search(int[] queryRows, int k) {
+        int[][] results = new int[queryRows.length][];
+        TopK[] tops = new TopK[queriesBlock];
+        float[][] queryVectors = new float[queriesBlock][];
+        for (int q0 = 0; q0 < queryRows.length; q0 += queriesBlock) {
+            int queries = Math.min(queriesBlock, queryRows.length - q0);
+            for (int q = 0; q < queries; q++) {
+                tops[q] = new TopK(k);
+                queryVectors[q] = vector(queryRows[q0 + q]);
+            }
+            for (int r0 = 0; r0 < rows; r0 += rowsBlock) {
+                int r1 = Math.min(rows, r0 + rowsBlock);
+                for (int q = 0; q < queries; q++) {
+                    float[] query = queryVectors[q];
+                    TopK top = tops[q];
+                    for (int r = r0; r < r1; r++) {
+                        top.offer(r, dot(query, r));
+                    }
+                }
+            }
+            for (int q = 0; q < queries; q++) {
+                results[q0 + q] = tops[q].sorted();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param row
+     * @return copy of the vector of the row
+     */
+    public float[] vector(int row) {
+        return Arrays.copyOfRange(matrix, row * dimension, (row + 1) * dimension);
+    }
+
+    /**
+     * dot product of a query and a row, in eight sums so they can be added in parallel
+     */
+    float dot(float[] query, int row) {
+        row *= dimension;
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+        int d = 0;
+        for (; d + 7 < dimension; d += 8) {
+            s0 += query[d] * matrix[row + d];
+            s1 += query[d + 1] * matrix[row + d + 1];
+            s2 += query[d + 2] * matrix[row + d + 2];
+            s3 += query[d + 3] * matrix[row + d + 3];
+            s4 += query[d + 4] * matrix[row + d + 4];
+            s5 += query[d + 5] * matrix[row + d + 5];
+            s6 += query[d + 6] * matrix[row + d + 6];
+            s7 += query[d + 7] * matrix[row + d + 7];
+        }
+        for (; d < dimension; d++) {
+            s0 += query[d] * matrix[row + d];
+        }
+        return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+    }
+
+    /**
+     * the k best rows so far, in a min heap (the worst of them at the top)
+     */
+    private static class TopK {
+        private int[] ids;
+        private float[] scores;
+        private int size;
+
+        TopK(int k) {
+            ids = new int[k];
+            scores = new float[k];
+        }
+
+        void offer(int id, float score) {
+            if (size < ids.length) {
+                int i = size++;
+                while (i > 0 && scores[(i - 1) / 2] > score) { //up
+                    ids[i] = ids[(i - 1) / 2];
+                    scores[i] = scores[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                ids[i] = id;
+                scores[i] = score;
+            } else if (size > 0 && score > scores[0]) {
+                int i = 0;
+                while (true) { //down
+                    int child = 2 * i + 1;
+                    if (child >= size)
+                        break;
+                    if (child + 1 < size && scores[child + 1] < scores[child])
+                        child++;
+                    if (scores[child] >= score)
+                        break;
+                    ids[i] = ids[child];
+                    scores[i] = scores[child];
+                    i = child;
+                }
+                ids[i] = id;
+                scores[i] = score;
+            }
+        }
+
+        /**
+         * @return the rows, best first (empties the heap)
+         */
+        int[] sorted() {
+            int[] output = new int[size];
+            while (size > 0) {
+                output[size - 1] = ids[0];
+                size--;
+                int lastId = ids[size];
+                float lastScore = scores[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size)
+                        break;
+                    if (child + 1 < size && scores[child + 1] < scores[child])
+                        child++;
+                    if (scores[child] >= lastScore)
+                        break;
+                    ids[i] = ids[child];
+                    scores[i] = scores[child];
+                    i = child;
+                }
+                ids[i] = lastId;
+                scores[i] = lastScore;
+            }
+            return output;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package Model.HandleSearch;
+
+import Model.HandleParse.DataConfiguration.Stemmer;
+import Model.IndexerAndDictionary.Dictionary;
+import Model.TermsAndDocs.Terms.CapsTerm;
+import Model.TermsAndDocs.Terms.RegularTerm;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * The semantically close words of every word of the index vocabulary, found with the word2vec model when the
+ * index is built and written next to the dictionary, so the offline semantic search is a lookup in a hash.
+ * a word that isn't in the table is looked up in the model once and kept.
+ * file: a line for every word - "word close close...".
+ */
+public class NeighborTable {
+    private static final int numOfResults = 3; //closest words in the model, the word itself is one of them
+    private static final int wordsBlock = 64;
+    private static Pattern spaces = Pattern.compile("[ ]");
+    private static ConcurrentHashMap<String, String[]> table = new ConcurrentHashMap<>();
+
+    /**
+     * @param word lower case
+     * @return the semantically close words of the word, without it
+     */
+    public static String[] get(String word) {
+        String[] neighbors = table.get(word);
+        if (neighbors != null)
+            return neighbors;
+        SemanticModel model = SemanticModel.getInstance();
+        if (model == null)
+            return new String[0];
+        neighbors = findNeighbors(model, word);
+        table.put(word, neighbors);
+        return neighbors;
+    }
+
+    /**
+     * @param outputPath
+     * @param toStem
+     * @return path of the table of the index
+     */
+    public static String tablePath(String outputPath, boolean toStem) {
+        return outputPath + (toStem ? "\\sNeighbors" : "\\nsNeighbors");
+    }
+
+    /**
+     * finds the close words of every word of the model that is in the index (or whose stem is, for a stemmed index)
+     * and writes them
+     *
+     * @param dictionary
+     * @param toStem
+     * @param path
+     */
+    public static void build(Dictionary dictionary, boolean toStem, String path) {
+        final SemanticModel model = SemanticModel.getInstance();
+        if (model == null)
+            return;
+        final ArrayList<String> vocabulary = new ArrayList<>();
+        for (String word : model.getWords()) {
+            String inIndex = toStem ? stem(word) : word;
+            if (dictionary.contains(new RegularTerm(inIndex)) || dictionary.contains(new CapsTerm(inIndex.toUpperCase())))
+                vocabulary.add(word);
+        }
+        table.clear();
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            final int first = t;
+            final int step = threads;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    //blocks of words, compared to the model together
+                    for (int i = first * wordsBlock; i < vocabulary.size(); i += step * wordsBlock) {
+                        ArrayList<String> words = new ArrayList<>(vocabulary.subList(i, Math.min(i + wordsBlock, vocabulary.size())));
+                        ArrayList<ArrayList<String>> closest = model.closestWords(words, numOfResults);
+                        for (int w = 0; w < words.size(); w++) {
+                            table.put(words.get(w), withoutWord(closest.get(w), words.get(w)));
+                        }
+                    }
+                }
+            });
+        }
+        try {
+            executor.shutdown();
+            executor.awaitTermination(200000, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        write(path);
+    }
+
+    /**
+     * replaces the table with the table of the loaded index, if it has one
+     *
+     * @param path
+     */
+    public static void load(String path) {
+        table.clear();
+        if (!new File(path).exists())
+            return;
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(path), 1 << 16);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] splitter = spaces.split(line);
+                String[] neighbors = new String[splitter.length - 1];
+                System.arraycopy(splitter, 1, neighbors, 0, neighbors.length);
+                table.put(splitter[0], neighbors);
+            }
+            reader.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void clear() {
+        table.clear();
+    }
+
+    private static void write(String path) {
+        try {
+            BufferedWriter writer = new BufferedWriter(new FileWriter(path), 1 << 16);
+            for (Map.Entry<String, String[]> entry : table.entrySet()) {
+                writer.write(entry.getKey());
+                for (String neighbor : entry.getValue()) {
+                    writer.write(' ');
+                    writer.write(neighbor);
+                }
+                writer.newLine();
+            }
+            writer.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String[] findNeighbors(SemanticModel model, String word) {
+        return withoutWord(model.closestWords(word, numOfResults), word);
+    }
+
+    private static String[] withoutWord(ArrayList<String> closest, String word) {
+        ArrayList<String> neighbors = new ArrayList<>();
+        for (String close : closest) {
+            if (!close.equals(word))
+                neighbors.add(close);
+        }
+        return neighbors.toArray(new String[0]);
+    }
+
+    private static String stem(String word) {
+        Stemmer stemmer = new Stemmer();
+        stemmer.add(word.toCharArray(), word.length());
+        stemmer.stem();
+        return stemmer.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package Model.HandleSearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A phrase or proximity operator of a query.
+ * "oil spill" - the words in this order one after the other,
+ * oil NEAR/5 spill - the two words at most 5 words apart, in any order.
+ * the words of the operator stay in the query as regular words, the operator only filters the ranked docs
+ * (and needs an index that was built with word positions).
+ */
+public class PhraseQuery {
+    private static Pattern quoted = Pattern.compile("\"([^\"]*)\"");
+    private static Pattern near = Pattern.compile("(\\S+)\\s+(?:NEAR|near)/(\\d+)\\s+(\\S+)");
+    private static Pattern nearOperator = Pattern.compile("\\s(?:NEAR|near)/\\d+\\s");
+    private static Pattern spaces = Pattern.compile("[\\s]+");
+
+    private ArrayList<String> words;
+    private int window; //0 for a phrase, else the max distance of the two words
+    private String[] termsData; //posting data of every word, null for a word that isn't a term (stop word)
+
+    public PhraseQuery(ArrayList<String> words, int window) {
+        this.words = words;
+        this.window = window;
+    }
+
+    /**
+     * @param query
+     * @return the phrase and proximity operators in the query
+     */
+    public static ArrayList<PhraseQuery> extract(String query) {
+        ArrayList<PhraseQuery> phrases = new ArrayList<>();
+        Matcher matcher = quoted.matcher(query);
+        while (matcher.find()) {
+            ArrayList<String> words = splitWords(matcher.group(1));
+            if (words.size() > 1)
+                phrases.add(new PhraseQuery(words, 0));
+        }
+        matcher = near.matcher(quoted.matcher(query).replaceAll(" "));
+        while (matcher.find()) {
+            ArrayList<String> words = new ArrayList<>();
+            words.add(matcher.group(1));
+            words.add(matcher.group(3));
+            phrases.add(new PhraseQuery(words, Math.max(1, Integer.parseInt(matcher.group(2)))));
+        }
+        return phrases;
+    }
+
+    /**
+     * @param query
+     * @return the query without the operators (the words of the operators are kept)
+     */
+    public static String removeOperators(String query) {
+        String plain = nearOperator.matcher(" " + query + " ").replaceAll(" ");
+        return plain.replace('"', ' ').trim();
+    }
+
+    private static ArrayList<String> splitWords(String text) {
+        ArrayList<String> words = new ArrayList<>();
+        for (String word : spaces.split(text)) {
+            if (word.length() > 0)
+                words.add(word);
+        }
+        return words;
+    }
+
+    /**
+     * @return words of the operator, in the query order
+     */
+    public ArrayList<String> getWords() {
+        return words;
+    }
+
+    /**
+     * @param termsData posting data of every word, null for a word that isn't a term
+     */
+    public void setTermsData(String[] termsData) {
+        this.termsData = termsData;
+    }
+
+    /**
+     * @return posting data of every word, null for a word that isn't a term
+     */
+    public String[] getTermsData() {
+        return termsData;
+    }
+
+    /**
+     * @param positions positions of every word in one doc (null for a word that isn't a term),
+     *                  an empty array if the doc doesn't have the term
+     * @return true if the doc has the phrase / the words close enough
+     */
+    public boolean matches(int[][] positions) {
+        int anchor = -1;
+        for (int i = 0; i < positions.length; i++) {
+            if (termsData[i] == null)
+                continue;
+            if (positions[i] == null || positions[i].length == 0)
+                return false;
+            if (anchor < 0)
+                anchor = i;
+        }
+        if (anchor < 0) //only stop words
+            return true;
+        if (window > 0)
+            return withinWindow(positions[0], positions[positions.length - 1]);
+        for (int position : positions[anchor]) {
+            boolean all = true;
+            for (int i = anchor + 1; i < positions.length && all; i++) {
+                if (termsData[i] != null)
+                    all = Arrays.binarySearch(positions[i], position + i - anchor) >= 0;
+            }
+            if (all)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if some position of the first word is at most window words from some position of the second
+     */
+    private boolean withinWindow(int[] first, int[] second) {
+        if (first == null || second == null) //a stop word is near anything
+            return true;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (Math.abs(first[i] - second[j]) <= window)
+                return true;
+            if (first[i] < second[j])
+                i++;
+            else
+                j++;
+        }
+        return false;
+    }
+}
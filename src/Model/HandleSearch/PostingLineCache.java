@@ -0,0 +1,37 @@
+package Model.HandleSearch;
+
+/**
+ * Keeps the posting lines of the terms that are searched the most, so a frequent term isn't read again from its
+ * posting file by every query that has it. the key is the file the line was read from - the full, pruned or impacts
+ * posting file, so a line of one of them isn't given for another - and the term data as written in the file.
+ * the lines are kept as they are and decoded only for the docs that are needed (see PostingList and
+ * Searcher.getDocsData) - a docNo is a string, so a line is more compact than arrays of its docs and tfs.
+ * bounded by the size of the lines, popular terms are kept over terms that are asked once (see FrequencyCache).
+ * must be cleared when another dictionary is loaded.
+ */
+public class PostingLineCache extends FrequencyCache<String> {
+
+    /**
+     * @param maxBytes most bytes of all the kept lines
+     */
+    public PostingLineCache(long maxBytes) {
+        super(Integer.MAX_VALUE, maxBytes, 16384);
+    }
+
+    /**
+     * @param path file the line of the term is read from (full, pruned or impacts posting file)
+     * @param termData data of the term as written in the file
+     * @return key of the line of the term
+     */
+    public static String key(String path, String termData) {
+        return path + '\n' + termData;
+    }
+
+    /**
+     * @return about how many bytes the key and the line take (2 bytes a char and about 40 bytes an object)
+     */
+    @Override
+    protected long weigh(String key, String line) {
+        return 80 + 2L * (key.length() + line.length());
+    }
+}
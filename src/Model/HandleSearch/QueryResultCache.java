@@ -0,0 +1,49 @@
+package Model.HandleSearch;
+
+import Model.HandleSearch.DocDataHolders.DocumentDataToView;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps the results of the last queries, so a query that is searched again isn't parsed, read and ranked again.
+ * the key is the parsed terms of the query and the options that change the ranking (see Searcher.resultCacheKey).
+ * popular queries are kept over queries that are asked once (see FrequencyCache).
+ * must be cleared when another dictionary is loaded.
+ */
+public class QueryResultCache extends FrequencyCache<ArrayList<DocumentDataToView>> {
+
+    /**
+     * @param maxEntries most queries to keep the results of
+     * @param maxBytes most estimated bytes of all the kept results
+     */
+    public QueryResultCache(int maxEntries, long maxBytes) {
+        super(maxEntries, maxBytes);
+    }
+
+    /**
+     * the results are copied in and out, the user of the results can change them
+     */
+    @Override
+    protected ArrayList<DocumentDataToView> copy(ArrayList<DocumentDataToView> answer) {
+        ArrayList<DocumentDataToView> copy = new ArrayList<>(answer.size());
+        for (DocumentDataToView doc : answer) {
+            copy.add(new DocumentDataToView(doc.getDocNo(), doc.getDate(), doc.getEntities()));
+        }
+        return copy;
+    }
+
+    /**
+     * @return about how many bytes the key and the results take (2 bytes a char and about 40 bytes an object)
+     */
+    @Override
+    protected long weigh(String key, ArrayList<DocumentDataToView> answer) {
+        long size = 40 + 2L * key.length();
+        for (DocumentDataToView doc : answer) {
+            size += 40;
+            size += doc.getDocNo() == null ? 0 : 40 + 2L * doc.getDocNo().length();
+            size += doc.getDate() == null ? 0 : 40 + 2L * doc.getDate().length();
+            size += doc.getEntities() == null ? 0 : 40 + 2L * doc.getEntities().length();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,81 @@
+package Model.HandleSearch;
+
+import javafx.util.Pair;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * How much a faster ranking - the two stages (see Searcher.setTermAtATime) or the pruned index (see IndexPruner) -
+ * agrees with the full ranking, over the queries that were measured.
+ * for every query: the part of the best k docs of the full ranking that are in the best k of the faster ranking, and
+ * if the best k are the same docs in the same order.
+ */
+public class RankAgreement {
+    private int k;
+    private int queries;
+    private double sumOfOverlaps;
+    private int sameOrder;
+
+    /**
+     * @param k number of best docs that are compared
+     */
+    public RankAgreement(int k) {
+        this.k = k;
+    }
+
+    /**
+     * @param faster ranked docs of the faster ranking, best first
+     * @param full ranked docs of the full ranking, best first
+     */
+    public synchronized void add(ArrayList<Pair<String, Double>> faster, ArrayList<Pair<String, Double>> full) {
+        int size = Math.min(k, full.size());
+        HashSet<String> best = new HashSet<>();
+        for (int i = 0; i < k && i < faster.size(); i++) {
+            best.add(faster.get(i).getKey());
+        }
+        int inBoth = 0;
+        boolean same = Math.min(k, faster.size()) == size;
+        for (int i = 0; i < size; i++) {
+            String docNo = full.get(i).getKey();
+            if (best.contains(docNo))
+                inBoth++;
+            if (same && !docNo.equals(faster.get(i).getKey()))
+                same = false;
+        }
+        sumOfOverlaps += size == 0 ? 1 : (double) inBoth / size;
+        if (same)
+            sameOrder++;
+        queries++;
+    }
+
+    public synchronized int getNumOfQueries() {
+        return queries;
+    }
+
+    /**
+     * @return average part of the best k docs of the full ranking that are in the best k of the faster ranking
+     */
+    public synchronized double getOverlap() {
+        return queries == 0 ? 1 : sumOfOverlaps / queries;
+    }
+
+    /**
+     * @return part of the queries that their best k docs are the same in the same order
+     */
+    public synchronized double getSameOrder() {
+        return queries == 0 ? 1 : (double) sameOrder / queries;
+    }
+
+    public synchronized void clear() {
+        queries = 0;
+        sumOfOverlaps = 0;
+        sameOrder = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "queries=" + queries + " overlap@" + k + "=" + String.format("%.3f", getOverlap())
+                + " sameOrder@" + k + "=" + String.format("%.3f", getSameOrder());
+    }
+}
@@ -1,10 +1,8 @@
 package Model.HandleSearch;
 
 import Model.HandleSearch.DocDataHolders.DocRankData;
-import Model.TermsAndDocs.Terms.Term;
-import javafx.util.Pair;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * This class is responsible for ranking documents with respect to a query
@@ -72,91 +70,165 @@ public class Ranker {
     }
 
     /**
-     * computes the final ranking of the document, by calculating BM25 and TfIdf ranking of the
+     * computes the final ranking of every candidate doc, by calculating BM25 and TfIdf ranking of the
      * original query, and if {@code isSemantic} is true with the semantic close words also.
-     * @return ranking
+     * @return ranking of every candidate
      */
-    public double rankDocument(DocRankData docRankData) {
+    public double[] rankDocuments(DocRankData docRankData) {
+        double[] idfs = new double[docRankData.getNumOfTerms()];
+        //norms of the query words and of the similar words, as vectors of their counts in the query
+        double[] normsOfQuery = new double[2];
+        for (int slot = 0; slot < idfs.length; slot++) {
+            idfs[slot] = getIdf(docRankData.getDf(slot));
+            int countInQuery = docRankData.getCountInQuery(slot);
+            normsOfQuery[docRankData.isSimilar(slot) ? 1 : 0] += (double) countInQuery * countInQuery;
+        }
+        normsOfQuery[0] = Math.sqrt(normsOfQuery[0]);
+        normsOfQuery[1] = Math.sqrt(normsOfQuery[1]);
+        double[] output = new double[docRankData.getNumOfCandidates()];
+        for (int candidate = 0; candidate < output.length; candidate++) {
+            output[candidate] = rankDocument(docRankData, candidate, idfs, normsOfQuery);
+        }
+        return output;
+    }
+
+    /**
+     * the ranking of one candidate, from the query terms (and the similar words) the doc has.
+     * the cosine is the dot product of the terms the doc has, divided by the norms of the query and of the doc (all
+     * of its terms, found when the index was built). a doc without a norm (an index that was built before) gets the
+     * cosine of only the terms it has - of the query and of the doc.
+     * @param idfs idf of every term
+     * @param normsOfQuery norm of the query words and norm of the similar words
+     */
+    private double rankDocument(DocRankData docRankData, int candidate, double[] idfs, double[] normsOfQuery) {
+        int lengthOfDoc = docRankData.getLengthOfDoc(candidate);
+        int numOfUnique = docRankData.getNumOfUniqTerms(candidate);
+        int[] headerTermIds = docRankData.getHeaderTermIds(candidate);
+        double docNorm = docRankData.getDocNorm(candidate);
+        //the query words
+        double bM25 = 0, dotProduct = 0, normQuery = 0, normDoc = 0;
+        int inHeader = 0, found = 0;
+        //the similar words
+        double bM25Similar = 0, dotProductSimilar = 0, normQuerySimilar = 0, normDocSimilar = 0;
+        int inHeaderSimilar = 0, foundSimilar = 0;
+        for (int slot = 0; slot < idfs.length; slot++) {
+            int tf = docRankData.getTf(candidate, slot);
+            if (tf == 0)
+                continue;
+            int countInQuery = docRankData.getCountInQuery(slot);
+            double termBM25 = countInQuery * getBM25ForOneTerm(tf, idfs[slot], lengthOfDoc, numOfUnique);
+            int id = docRankData.getTermId(slot);
+            //this will give us the number of terms from the list which are in the header
+            int termInHeader = id >= 0 && Arrays.binarySearch(headerTermIds, id) >= 0 ? countInQuery : 0;
+            double weight = tf * idfs[slot];
+            if (!docRankData.isSimilar(slot)) {
+                found++;
+                bM25 += termBM25;
+                inHeader += termInHeader;
+                dotProduct += countInQuery * weight;
+                if (docNorm == 0) {
+                    normQuery += (double) countInQuery * countInQuery;
+                    normDoc += weight * weight;
+                }
+            } else {
+                foundSimilar++;
+                bM25Similar += termBM25;
+                inHeaderSimilar += termInHeader;
+                dotProductSimilar += countInQuery * weight;
+                if (docNorm == 0) {
+                    normQuerySimilar += (double) countInQuery * countInQuery;
+                    normDocSimilar += weight * weight;
+                }
+            }
+        }
+        if (docNorm == 0) {
+            normQuery = Math.sqrt(normQuery);
+            normDoc = Math.sqrt(normDoc);
+            normQuerySimilar = Math.sqrt(normQuerySimilar);
+            normDocSimilar = Math.sqrt(normDocSimilar);
+        } else {
+            normQuery = normsOfQuery[0];
+            normQuerySimilar = normsOfQuery[1];
+            normDoc = normDocSimilar = docNorm;
+        }
         double output;
-        double bM25ofQuery = getBM25Rank(docRankData.getQueryWords(), docRankData.getQueryWordsTfs(), docRankData.getQueryWordsDfs(), docRankData.getLengthOfDoc(), docRankData.getNumOfUniqTerms());
-        double termsInHeaderScoreQuery = getTermsInHeaderScore(docRankData.getQueryWords(), docRankData.getDocHeaderStrings());
-        double cosSimRankQuery = getCosSimRank(docRankData.getQueryWords(), docRankData.getQueryWordsTfs(), docRankData.getQueryWordsDfs());
-        double queryScore = weightOfBM25 * bM25ofQuery + 0.05 * termsInHeaderScoreQuery + (1 - 0.05 - weightOfBM25) * cosSimRankQuery;
+        double queryScore = weightOfBM25 * bM25 + 0.05 * getTermsInHeaderScore(inHeader, found)
+                + (1 - 0.05 - weightOfBM25) * getCosSimRank(dotProduct, normQuery, normDoc, found);
         if (!isSemantic) {
             output = queryScore;
         } else { //with semantics
-            double bM25OfSemantic = getBM25Rank(docRankData.getSimilarWords(), docRankData.getSimilarWordsTfs(), docRankData.getSimilarWordsDfs(), docRankData.getLengthOfDoc(), docRankData.getNumOfUniqTerms());
-            double termsInHeaderScoreSimilar = 0.05 * getTermsInHeaderScore(docRankData.getSimilarWords(), docRankData.getDocHeaderStrings());
-            double cossimSimilar = getCosSimRank(docRankData.getSimilarWords(), docRankData.getSimilarWordsTfs(), docRankData.getSimilarWordsDfs());
+            double termsInHeaderScoreSimilar = 0.05 * getTermsInHeaderScore(inHeaderSimilar, foundSimilar);
+            double cossimSimilar = getCosSimRank(dotProductSimilar, normQuerySimilar, normDocSimilar, foundSimilar);
 
             output = weightOfOriginalQuery * queryScore
-                    + (1 - weightOfOriginalQuery) * (weightOfBM25 * bM25OfSemantic + 0.05 * termsInHeaderScoreSimilar + (1 - 0.05 - weightOfBM25) * cossimSimilar);
+                    + (1 - weightOfOriginalQuery) * (weightOfBM25 * bM25Similar + 0.05 * termsInHeaderScoreSimilar + (1 - 0.05 - weightOfBM25) * cossimSimilar);
         }
-        if(QueryContainsMaxTerm(docRankData))
+        //the bonus for the most common term of the doc was always given to a doc with any of the words
+        if (found + foundSimilar > 0)
             output += 0.1 * output;
         return output;
     }
 
-    private boolean QueryContainsMaxTerm(DocRankData docRankData) {
-        ArrayList<Pair<Term, Integer>> queryWords = docRankData.getQueryWords();
-        String mostCommonTerm = docRankData.getMostCommonTerm();
-        for (Pair<Term, Integer> pair : queryWords){
-            if(pair.getKey().getData().contains(mostCommonTerm)){
-                return true;
-            }
-            if(mostCommonTerm.contains(pair.getKey().getData()));
-                return true;
-        }
-        ArrayList<Pair<Term, Integer>> similarWords = docRankData.getSimilarWords();
-        for (Pair<Term, Integer> pair : similarWords){
-            if(pair.getKey().getData().contains(mostCommonTerm)){
-                return true;
-            }
-            if(mostCommonTerm.contains(pair.getKey().getData()));
-            return true;
+    /**
+     * @param dotProduct
+     * @param normQuery norm of the query vector
+     * @param normDoc norm of the doc vector
+     * @param found the words from the query that are in the document
+     * @return the cosine similarity of the query and the doc
+     */
+    private double getCosSimRank(double dotProduct, double normQuery, double normDoc, int found) {
+        if (found == 0 || normQuery == 0 || normDoc == 0) {
+            return 0;
         }
-        return false;
+        double scoreCOS = dotProduct / (normQuery * normDoc);
+        return scoreCOS;
     }
 
-    private double getCosSimRank(ArrayList<Pair<Term, Integer>> termsCounter, ArrayList<Integer> tfs, ArrayList<Integer> dfs) {
-
-        double[] queryVector = new double[tfs.size()];
-        for (int i = 0; i < queryVector.length; i++) {
-            queryVector[i] = termsCounter.get(i).getValue();
-        }
+    /**
+     * plain BM25 of a doc for one term, for the first stage of the ranking - only the size of the doc (next to the
+     * average size of the corpus) is used, without the number of unique terms, the cosine and the header parts.
+     * the query words and the similar words are weighted as in {@link #rankDocuments}
+     * @param tf
+     * @param idf
+     * @param countInQuery
+     * @param isSimilar true for a semantically similar word
+     * @param relativeLength size of the doc / average size of the docs
+     * @return the score of the doc for the term
+     */
+    public double getFirstStageScore(int tf, double idf, int countInQuery, boolean isSimilar, float relativeLength) {
+        return getFirstStageWeight(countInQuery, isSimilar) * getPlainBM25(tf, idf, relativeLength);
+    }
 
-        double[] docVector = new double[tfs.size()];
-        for (int i = 0; i < docVector.length; i++) {
-            docVector[i] = tfs.get(i) * getIdf(dfs.get(i));
-        }
-        if (queryVector.length==0 || docVector.length==0) {
-            return 0;
-        }
-        return cosineSimilarity(queryVector, docVector);
+    /**
+     * @param countInQuery
+     * @param isSimilar true for a semantically similar word
+     * @return weight of the plain BM25 of a term in the first stage of the ranking
+     */
+    public double getFirstStageWeight(int countInQuery, boolean isSimilar) {
+        double weight = countInQuery;
+        if (isSemantic)
+            weight *= isSimilar ? 1 - weightOfOriginalQuery : weightOfOriginalQuery;
+        return weight;
     }
 
-    private double cosineSimilarity(double[] vectorA, double[] vectorB) {
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
-        for (int i = 0; i < vectorA.length; i++) {
-            dotProduct += vectorA[i] * vectorB[i];
-            normA += Math.pow(vectorA[i], 2);
-            normB += Math.pow(vectorB[i], 2);
-        }
-        double scoreCOS = dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
-        return scoreCOS;
+    /**
+     * @param tf
+     * @param idf
+     * @param relativeLength size of the doc / average size of the docs
+     * @return BM25 of a doc for one term
+     */
+    public double getPlainBM25(int tf, double idf, float relativeLength) {
+        return idf * (tf * (k1 + 1)) / (tf + k1 * (1 - b + b * relativeLength));
     }
 
-    private double getBM25Rank(ArrayList<Pair<Term, Integer>> termAndCounter, ArrayList<Integer> tfs, ArrayList<Integer> dfs, int lengthOfDoc, int numOfUnique) {
-        double output = 0;
-        for (int i = 0; i < tfs.size(); i++) {
-            output += termAndCounter.get(i).getValue() * getBM25ForOneTerm(tfs.get(i), dfs.get(i), lengthOfDoc, numOfUnique);
-        }
-        return output;
+    /**
+     * @return the biggest plain BM25 a doc can get for one term (a term of one doc, with a big tf)
+     */
+    public double getMaxPlainBM25() {
+        return getIdf(1) * (k1 + 1);
     }
 
-    private double getBM25ForOneTerm(Integer tf, Integer df, int lengthOfDoc, int numOfUnique) {
+    private double getBM25ForOneTerm(int tf, double idf, int lengthOfDoc, int numOfUnique) {
         double numerator = (tf) * (k1 + 1);
         double denominatorFraction1 = (double)lengthOfDoc / (double)avgDocLength;
         double denominatorFraction2 = (double)numOfUnique / (double)avgDocLength;
@@ -164,44 +236,23 @@ public class Ranker {
         double denominator2 = (tf + k1 * (1 - b + b * (denominatorFraction2)));
         double fraction1 = numerator/denominator1;
         double fraction2 = numerator/denominator2;
-        double result1 = getIdf(df) * fraction1;
-        double result2 = getIdf(df) * fraction2;
+        double result1 = idf * fraction1;
+        double result2 = idf * fraction2;
         double result = result1 * 0.8 + result2 * 0.2;
         return result;
     }
 
-    /**
-     * @param term
-     * @param docHeaderStrings
-     * @return num of times (terms) header contains version of the term supllied, else false
-     */
-    private int isTermInHeader(Term term, ArrayList<Pair<Term, Integer>> docHeaderStrings) {
-        String termData = term.getData();
-        if(termData.charAt(0) >= 'A' && termData.charAt(0) <= 'Z'){
-            termData = termData.toLowerCase();
-        }
-        for(Pair<Term, Integer> termPairCurrent : docHeaderStrings){
-            if(termPairCurrent.getKey().getData().contains(termData))
-                return termPairCurrent.getValue();
-        }
-        return 0;
-    }
-
     /**
      * returns the percentage of the words from the query that are in the documents header
      *
-     * @param terms
-     * @param docHeaderStrings
+     * @param inHeader the words from the query (by their count in the query) that are in the documents header
+     * @param found the words from the query that are in the document
      * @return the percentage of the words from the query that are in the documents header
      */
-    private double getTermsInHeaderScore(ArrayList<Pair<Term, Integer>> terms, ArrayList<Pair<Term, Integer>> docHeaderStrings) {
-        int counter = 0;
-        if (terms.size()==0)
+    private double getTermsInHeaderScore(int inHeader, int found) {
+        if (found == 0)
             return 0;
-        for (Pair<Term, Integer> pairTerm : terms) {
-            counter +=  pairTerm.getValue() * isTermInHeader(pairTerm.getKey(), docHeaderStrings); //this will give us the number of terms from the list which are in the header
-        }
-        double score = ((double) counter) / ((double) terms.size());
+        double score = ((double) inHeader) / ((double) found);
         return score;
     }
 
@@ -209,7 +260,7 @@ public class Ranker {
      * @param df
      * @return idf of given df, based on {@code numOfDocs} field
      */
-    private double getIdf(int df) {
+    public double getIdf(int df) {
         //return ((Math.log(numOfDocs/df)) / Math.log(2));
         double idf=(Math.log10((numOfDocs-df+0.5) / ((df+0.5)))) / Math.log10(2);
         return idf;
@@ -0,0 +1,226 @@
+package Model.HandleSearch;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Scores of all the docs of the corpus for one query at a time, added a term at a time.
+ * the docs of the docs holder are numbered once, with the size of every doc next to the average size of the docs (the
+ * statistic BM25 needs for a doc), the scores are a dense array by the doc number, and the docs that got a score are marked in a bitmap and listed, so only
+ * they are read for the best docs and reset for the next query.
+ */
+public class ScoreAccumulator {
+    private static Pattern splitByDotCom = Pattern.compile("[\\;]");
+    private static Map<String, String> numberedHolder; //the docs holder the docs were numbered by
+    private static HashMap<String, Integer> docIds;
+    private static String[] docNos;
+    private static float[] relativeLengths; //size of the doc / average size
+
+    private float[] scores;
+    private long[] touched; //bitmap of the docs that got a score
+    private int[] touchedDocs;
+    private int numOfTouched;
+    private long[] termsOfDocs; //bits of the terms (the first 64) that were added to every doc, made when first used
+
+    /**
+     * @param docsHolder docNo -> the line of the doc in the docs files (without the docNo)
+     */
+    public ScoreAccumulator(Map<String, String> docsHolder) {
+        number(docsHolder);
+        int numOfDocs = docNos.length;
+        scores = new float[numOfDocs];
+        touched = new long[(numOfDocs + 63) / 64];
+        touchedDocs = new int[1024];
+    }
+
+    /**
+     * numbers the docs of the docs holder, if they weren't numbered by it already
+     */
+    private static synchronized void number(Map<String, String> docsHolder) {
+        if (numberedHolder == docsHolder && docNos.length == docsHolder.size())
+            return;
+        int numOfDocs = docsHolder.size();
+        docIds = new HashMap<>(numOfDocs * 2);
+        docNos = new String[numOfDocs];
+        relativeLengths = new float[numOfDocs];
+        long sumOfLengths = 0;
+        int doc = 0;
+        for (Map.Entry<String, String> entry : docsHolder.entrySet()) {
+            if (doc == numOfDocs)
+                break;
+            String[] splitter = splitByDotCom.split(entry.getValue(), 2);
+            docIds.put(entry.getKey(), doc);
+            docNos[doc] = entry.getKey();
+            int length = Integer.parseInt(splitter[0]);
+            relativeLengths[doc] = length;
+            sumOfLengths += length;
+            doc++;
+        }
+        float avgLength = doc == 0 || sumOfLengths == 0 ? 1 : (float) ((double) sumOfLengths / doc);
+        for (int i = 0; i < doc; i++) {
+            relativeLengths[i] /= avgLength;
+        }
+        numberedHolder = docsHolder;
+    }
+
+    /**
+     * @param docsHolder
+     * @return true if the docs are numbered by the docs holder
+     */
+    public boolean isFor(Map<String, String> docsHolder) {
+        return numberedHolder == docsHolder && scores.length == docsHolder.size();
+    }
+
+    /**
+     * @param docNo
+     * @return number of the doc, -1 if it isn't in the docs holder
+     */
+    public int getDoc(String docNo) {
+        Integer doc = docIds.get(docNo);
+        return doc == null ? -1 : doc;
+    }
+
+    public String getDocNo(int doc) {
+        return docNos[doc];
+    }
+
+    /**
+     * @param doc
+     * @return size of the doc / average size of the docs
+     */
+    public float getRelativeLength(int doc) {
+        return relativeLengths[doc];
+    }
+
+    /**
+     * @param doc
+     * @param score added to the score of the doc
+     */
+    public void add(int doc, float score) {
+        long bit = 1L << doc;
+        if ((touched[doc >>> 6] & bit) == 0) {
+            touched[doc >>> 6] |= bit;
+            if (numOfTouched == touchedDocs.length)
+                touchedDocs = Arrays.copyOf(touchedDocs, numOfTouched * 2);
+            touchedDocs[numOfTouched++] = doc;
+        }
+        scores[doc] += score;
+    }
+
+    /**
+     * @param doc
+     * @param score added to the score of the doc
+     * @param term number of the term the score is of, kept for the doc (the first 64 terms)
+     */
+    public void add(int doc, float score, int term) {
+        add(doc, score);
+        if (termsOfDocs == null)
+            termsOfDocs = new long[scores.length];
+        if (term < 64)
+            termsOfDocs[doc] |= 1L << term;
+    }
+
+    /**
+     * @param doc
+     * @return bits of the terms that were added to the doc with {@link #add(int, float, int)}
+     */
+    public long getTerms(int doc) {
+        return termsOfDocs == null ? 0 : termsOfDocs[doc];
+    }
+
+    /**
+     * @param doc
+     * @return true if the doc got a score in this query
+     */
+    public boolean isTouched(int doc) {
+        return (touched[doc >>> 6] & (1L << doc)) != 0;
+    }
+
+    public float getScore(int doc) {
+        return scores[doc];
+    }
+
+    /**
+     * @return number of docs that got a score
+     */
+    public int getNumOfTouched() {
+        return numOfTouched;
+    }
+
+    /**
+     * @param t
+     * @return the t'th doc that got a score
+     */
+    public int getTouchedDoc(int t) {
+        return touchedDocs[t];
+    }
+
+    /**
+     * @param k
+     * @return the k docs with the best scores, best first
+     */
+    public int[] top(int k) {
+        k = Math.min(k, numOfTouched);
+        //min heap of the best docs so far, the worst of them at the top
+        int[] heap = new int[k];
+        int size = 0;
+        for (int t = 0; t < numOfTouched; t++) {
+            int doc = touchedDocs[t];
+            float score = scores[doc];
+            if (size < k) {
+                int i = size++;
+                while (i > 0 && scores[heap[(i - 1) / 2]] > score) { //up
+                    heap[i] = heap[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heap[i] = doc;
+            } else if (k > 0 && score > scores[heap[0]]) {
+                siftDown(heap, size, doc);
+            }
+        }
+        int[] output = new int[size];
+        while (size > 0) {
+            output[size - 1] = heap[0];
+            size--;
+            siftDown(heap, size, heap[size]);
+        }
+        return output;
+    }
+
+    /**
+     * puts the doc at the top of the heap and moves it down to its place
+     */
+    private void siftDown(int[] heap, int size, int doc) {
+        float score = scores[doc];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && scores[heap[child + 1]] < scores[heap[child]])
+                child++;
+            if (scores[heap[child]] >= score)
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (size > 0)
+            heap[i] = doc;
+    }
+
+    /**
+     * resets the scores of the docs that got a score, for the next query
+     */
+    public void clear() {
+        for (int t = 0; t < numOfTouched; t++) {
+            int doc = touchedDocs[t];
+            scores[doc] = 0;
+            touched[doc >>> 6] = 0;
+            if (termsOfDocs != null)
+                termsOfDocs[doc] = 0;
+        }
+        numOfTouched = 0;
+    }
+}
@@ -4,16 +4,19 @@ import Model.HandleSearch.DocDataHolders.DocRankData;
 import Model.HandleSearch.DocDataHolders.DocumentDataToView;
 import Model.IndexerAndDictionary.CountAndPointerDicValue;
 import Model.IndexerAndDictionary.Dictionary;
+import Model.IndexerAndDictionary.PostingFilePointer;
 import Model.OuputFiles.DocumentFile.DocumentFileObject;
 import Model.OuputFiles.PostingFile.FindTermsData;
+import Model.OuputFiles.PostingFile.FindTermsImpacts;
+import Model.OuputFiles.PostingFile.FindTermsPositions;
+import Model.OuputFiles.PostingFile.ImpactPostings;
+import Model.OuputFiles.PostingFile.PostingList;
+import Model.TermsAndDocs.Docs.Document;
 import Model.TermsAndDocs.Pairs.TermDocPair;
 import Model.TermsAndDocs.Terms.CapsTerm;
 import Model.TermsAndDocs.Terms.RegularTerm;
 import Model.TermsAndDocs.Terms.Term;
-import Model.TermsAndDocs.Terms.TermBuilder;
-import com.medallia.word2vec.Word2VecModel;
-import Model.HandleSearch.datamuse.DatamuseQuery;
-import Model.HandleSearch.datamuse.JSONParse;
+import Model.HandleSearch.datamuse.DatamuseClient;
 import javafx.util.Pair;
 
 import java.io.File;
@@ -25,12 +28,26 @@ import java.util.regex.Pattern;
  * this class uses the class Ranker for that purpose
  */
 public class Searcher {
-    private static Pattern stickPattern = Pattern.compile("[\\|]");
     private static Pattern escape = Pattern.compile("[ ]");
-    private static Pattern splitByEntities = Pattern.compile("[E][N][T][I][T][I][E][S][:]");
     private static Pattern splitByDotCom = Pattern.compile("[\\;]");
     private static Pattern splitByBracket = Pattern.compile("[\\(]");
+    private static final int numOfResults = 50; //docs that are given for a query
+    private static final int phraseCandidates = 1000; //best ranked docs that phrase operators are checked for
+    //the docs are scored a term at a time by plain BM25 first (-DtermAtATime=true), and only the best of them
+    //(-DrankDepth, at least phraseCandidates for a query with phrases) are ranked fully, see termAtATimeCandidates
+    private static boolean termAtATime = Boolean.getBoolean("termAtATime");
+    private static int rankDepth = Integer.getInteger("rankDepth", 300);
+    //all the docs are ranked fully as well, to measure how much the two stages agree with it (-DrankAgreement=true)
+    private static boolean measureAgreement = Boolean.getBoolean("rankAgreement");
+    private static RankAgreement rankAgreement = new RankAgreement(numOfResults);
+    private static ScoreAccumulator scoreAccumulator;
+    //the posting lines are read from the pruned posting files, if the index has them (-DprunedIndex=true), see IndexPruner
+    private static boolean prunedIndex = Boolean.getBoolean("prunedIndex");
+    private static QueryResultCache resultCache = new QueryResultCache(2000, 32 * 1024 * 1024);
+    //size in MB can be given with -DpostingCacheMB=...
+    private static PostingLineCache postingCache = new PostingLineCache(Long.getLong("postingCacheMB", 64) * 1024 * 1024);
     private HashSet<String> stopWords;
+    private SearcherParse headerParse; //for the headers of the docs that aren't in the header terms table
 
     /**
      * Field mentioning if we should take into account the result of the semantic connection
@@ -43,6 +60,8 @@ public class Searcher {
     private boolean withEntities;
     private ArrayList<String> queries;
     private boolean isOnline;
+    private boolean usePruned;
+    private boolean useImpacts; //false to read every query from the posting files
 
 
     public Searcher(boolean isSemantic, boolean isStemm, Dictionary dictionary, HashSet<String> stopWords
@@ -54,6 +73,8 @@ public class Searcher {
         this.withEntities = withEntities;
         this.queries = queries;
         this.isOnline=online;
+        this.usePruned = prunedIndex;
+        this.useImpacts = true;
     }
 
     /**
@@ -69,58 +90,181 @@ public class Searcher {
         ArrayList<DocumentDataToView> [] allAnswers = new ArrayList[queries.size()];
         ArrayList<TermDocPair> []allQueryTerms = new ArrayList[allAnswers.length];
         ArrayList<TermDocPair> []allSemanticTerms = new ArrayList[allAnswers.length];
+        ArrayList<ArrayList<PhraseQuery>> allPhrases = new ArrayList<>(allAnswers.length);
+        BooleanQuery []allBooleans = new BooleanQuery[allAnswers.length];
+        //the terms under a NOT of every boolean query, their posting lines are read with the lines of the query terms
+        ArrayList<ArrayList<TermDocPair>> allNegatedTerms = new ArrayList<>(allAnswers.length);
+        String []cacheKeys = new String[allAnswers.length];
+        ArrayList<ArrayList<String>> allQueryWords = new ArrayList<>(allAnswers.length); //null for a query from the cache
         for(int i = 0; i < allAnswers.length; i++){
             allQueryTerms[i] = new ArrayList<>();
             allSemanticTerms[i] = new ArrayList<>();
+            allNegatedTerms.add(new ArrayList<TermDocPair>());
+            allQueryWords.add(null);
         }
 
+        WildcardExpander wildcardExpander = null;
+        ArrayList<Integer> fullIndexQueries = new ArrayList<>(); //queries that are searched in the full posting files
         for (int k = 0; k < allAnswers.length; k++) {
             String query = queries.get(k);
-            ArrayList<String> queryL = splitBySpaceToArrayList(query);
+            //phrase and proximity operators filter the ranked docs, their words are searched as regular words
+            allPhrases.add(PhraseQuery.extract(query));
+            for (PhraseQuery phrase : allPhrases.get(k))
+                phrase.setTermsData(phraseTermsData(phrase));
+            query = PhraseQuery.removeOperators(query);
+            ArrayList<String> queryL;
+            if (BooleanQuery.isBoolean(query)) {
+                //every word of a boolean query is parsed alone, the words that aren't under a NOT are also ranked
+                allBooleans[k] = BooleanQuery.parse(query);
+                queryL = new ArrayList<>();
+                HashMap<Term, TermDocPair> rankedPairs = new HashMap<>();
+                HashMap<Term, TermDocPair> negatedPairs = new HashMap<>();
+                for (BooleanQuery leaf : allBooleans[k].getLeaves()) {
+                    ArrayList<TermDocPair> wordPairs;
+                    if (WildcardExpander.isWildcard(leaf.getWord())) {
+                        if (wildcardExpander == null)
+                            wildcardExpander = new WildcardExpander(dictionary.getSortedTerms());
+                        ArrayList<String> wildcardWords = new ArrayList<>();
+                        wildcardWords.add(leaf.getWord());
+                        wordPairs = expandWildcardWords(wildcardExpander, wildcardWords, k);
+                    } else {
+                        ArrayList<String> word = new ArrayList<>();
+                        word.add(leaf.getWord());
+                        wordPairs = parseQueryAndHeader(word, k);
+                        if (!leaf.isNegated())
+                            queryL.add(leaf.getWord());
+                    }
+                    leaf.setPairs(mergePairs(wordPairs, leaf.isNegated() ? negatedPairs : rankedPairs));
+                }
+                allQueryTerms[k].addAll(rankedPairs.values());
+                allNegatedTerms.get(k).addAll(negatedPairs.values());
+            } else {
+                queryL = splitBySpaceToArrayList(query);
+                //words with wildcards are replaced by the dictionary terms they match
+                ArrayList<String> wildcardWords = extractWildcardWords(queryL);
+                if (wildcardWords.size() > 0) {
+                    if (wildcardExpander == null)
+                        wildcardExpander = new WildcardExpander(dictionary.getSortedTerms());
+                    allQueryTerms[k].addAll(expandWildcardWords(wildcardExpander, wildcardWords, k));
+                }
+                //parsing the words of the query so they would fit to the dictionary && posting file terms
+                allQueryTerms[k].addAll(parseQueryAndHeader(queryL, k));
+            }
+            //a query that was already searched with the same terms and options isn't read and ranked again
+            cacheKeys[k] = resultCacheKey(queries.get(k), allQueryTerms[k], queryL, allBooleans[k] != null || allPhrases.get(k).size() > 0);
+            allAnswers[k] = resultCache.get(cacheKeys[k]);
+            if (allAnswers[k] != null) {
+                allQueryTerms[k].clear();
+                allNegatedTerms.get(k).clear();
+                continue;
+            }
+            if (usePruned && (allBooleans[k] != null || allPhrases.get(k).size() > 0)) {
+                //the pruned lines don't have all the docs of a term, which docs match the operators is known only from
+                //the full lines
+                fullIndexQueries.add(k);
+                allQueryTerms[k].clear();
+                allNegatedTerms.get(k).clear();
+                continue;
+            }
+            allQueryWords.set(k, queryL);
+        }
+        if (isSemantic && isOnline) { //the words of all the queries are asked together, then answered from the cache
+            ArrayList<String> allWords = new ArrayList<>();
+            for (ArrayList<String> queryWords : allQueryWords) {
+                if (queryWords != null)
+                    allWords.addAll(queryWords);
+            }
+            try {
+                new DatamuseClient().findSimilar(allWords);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        for (int k = 0; k < allAnswers.length; k++) {
+            if (allQueryWords.get(k) == null)
+                continue;
             ArrayList<String> semanticallyCloseWords = new ArrayList<>();
             if(isSemantic)
-                semanticallyCloseWords = getSemanticallyCloseWords(queryL,isOnline);
-            //parsing the words of the query and semantically close words so they would fit to the dictionary && posting file terms
-            allQueryTerms[k].addAll(parseQueryAndHeader(queryL, k));
+                semanticallyCloseWords = getSemanticallyCloseWords(allQueryWords.get(k),isOnline);
+            //parsing the semantically close words so they would fit to the dictionary && posting file terms
             allSemanticTerms[k].addAll(parseQueryAndHeader(semanticallyCloseWords, k));
         }
-        //returns two hash maps that contains the entire post data for each term in the queries or the similar words
-        HashMap<Term, String> postDataForAllQueries = getPostData(allQueryTerms);
-        HashMap<Term, String> postDataForAllSimilar = getPostData(allSemanticTerms);
+        //a query that is scored a term at a time is ranked from the impact ordered files alone, if the index has them -
+        //but a boolean query needs the full lines to know which docs match it (see scoreAtATime)
+        boolean[] fromImpacts = new boolean[allAnswers.length];
+        HashMap<String, Boolean> impactsFiles = new HashMap<>();
+        ArrayList<ArrayList<TermDocPair>> allBooleanTerms = new ArrayList<>(allNegatedTerms);
+        ArrayList<ArrayList<TermDocPair>> allSimilarTerms = new ArrayList<>();
+        ArrayList<ArrayList<TermDocPair>> allImpactTerms = new ArrayList<>();
         for (int k = 0; k < allAnswers.length; k++) {
+            fromImpacts[k] = useImpacts && termAtATime && !measureAgreement && allQueryWords.get(k) != null && allBooleans[k] == null
+                    && hasImpactsFiles(allQueryTerms[k], impactsFiles) && hasImpactsFiles(allSemanticTerms[k], impactsFiles);
+            if (fromImpacts[k]) {
+                allImpactTerms.add(allQueryTerms[k]);
+                allImpactTerms.add(allSemanticTerms[k]);
+            } else {
+                allBooleanTerms.add(allQueryTerms[k]);
+                allSimilarTerms.add(allSemanticTerms[k]);
+            }
+        }
+        //returns hash maps that contains the entire post data for each term in the queries or the similar words
+        HashMap<Term, String> postDataForAllQueries = getPostData(allBooleanTerms, false);
+        HashMap<Term, String> postDataForAllSimilar = getPostData(allSimilarTerms, false);
+        HashMap<Term, String> impactDataForAll = getPostData(allImpactTerms, true);
+        for (int k = 0; k < allAnswers.length; k++) {
+            if (allAnswers[k] != null || allQueryWords.get(k) == null) //from the cache, or searched in the full posting files
+                continue;
             if(k > 0) {
                 start = System.currentTimeMillis();
                 s = (double) start;
             }
-            //finding the posting data line for each term
-            ArrayList<Pair<TermDocPair, String>> queryTermPostingData = findPostDataInHash(allQueryTerms[k], postDataForAllQueries);
-            ArrayList<Pair<TermDocPair, String>> semanticTermPostingData = findPostDataInHash(allSemanticTerms[k], postDataForAllSimilar);
+            Ranker ranker = new Ranker(this.isSemantic, isStemm);
+            int depth = allPhrases.get(k).size() > 0 ? Math.max(rankDepth, phraseCandidates) : rankDepth;
+            DocRankData rankData;
+            ArrayList<Pair<String, Double>> keepScores;
+            if (fromImpacts[k]) {
+                ArrayList<Pair<TermDocPair, String>> queryTermImpacts = findPostDataInHash(allQueryTerms[k], impactDataForAll);
+                ArrayList<Pair<TermDocPair, String>> semanticTermImpacts = findPostDataInHash(allSemanticTerms[k], impactDataForAll);
+                rankData = new DocRankData(queryTermImpacts.size() + semanticTermImpacts.size());
+                if (!scoreAtATime(queryTermImpacts, semanticTermImpacts, rankData, ranker, depth)) {
+                    fullIndexQueries.add(k); //impacts files of an older index, without the tfs
+                    continue;
+                }
+                keepScores = rankDocs(rankData, ranker);
+            } else {
+                //finding the posting data line for each term
+                ArrayList<Pair<TermDocPair, String>> queryTermPostingData = findPostDataInHash(allQueryTerms[k], postDataForAllQueries);
+                ArrayList<Pair<TermDocPair, String>> semanticTermPostingData = findPostDataInHash(allSemanticTerms[k], postDataForAllSimilar);
 
-            //keeping all of the doc's relevant data for the ranker calculation
-            HashMap<String, DocRankData> hashChecker = new HashMap<>();
-            getDocsData(queryTermPostingData, hashChecker, 0);
-            getDocsData(semanticTermPostingData, hashChecker, 1);
+                //a boolean query ranks only the docs that match it
+                HashSet<String> matchingDocs = null;
+                if (allBooleans[k] != null) {
+                    ArrayList<String> booleanDocs = allBooleans[k].evaluate(postDataForAllQueries);
+                    if (booleanDocs != null)
+                        matchingDocs = new HashSet<>(booleanDocs);
+                }
 
-            //ranking every relevant doc
-            ArrayList<Pair<String, Double>> keepScores = new ArrayList<>();
-            Ranker ranker = new Ranker(this.isSemantic, isStemm);
-            for (Map.Entry<String, DocRankData> entry : hashChecker.entrySet()){
-                double score = ranker.rankDocument(entry.getValue());
-                keepScores.add(new Pair<>(entry.getKey(), score));
-            }
-            Collections.sort(keepScores, new Comparator<Pair<String, Double>>() {
-                @Override
-                public int compare(Pair<String, Double> o1, Pair<String, Double> o2) {
-                    return o2.getValue().compareTo(o1.getValue());
+                HashSet<String> rankedDocs = matchingDocs;
+                if (termAtATime)
+                    rankedDocs = termAtATimeCandidates(queryTermPostingData, semanticTermPostingData, matchingDocs, ranker, depth);
+
+                //keeping all of the doc's relevant data for the ranker calculation, and ranking every relevant doc
+                rankData = new DocRankData(queryTermPostingData.size() + semanticTermPostingData.size());
+                keepScores = rankDocs(rankData, queryTermPostingData, semanticTermPostingData, rankedDocs, ranker);
+                if (termAtATime && measureAgreement) {
+                    DocRankData fullRankData = new DocRankData(queryTermPostingData.size() + semanticTermPostingData.size());
+                    rankAgreement.add(keepScores, rankDocs(fullRankData, queryTermPostingData, semanticTermPostingData, matchingDocs, ranker));
                 }
-            });
+            }
+            if (allPhrases.get(k).size() > 0)
+                keepScores = filterByPhrases(keepScores, allPhrases.get(k));
 
             //keeping only the docNo and date of the best 50 docs
             ArrayList<DocumentDataToView> goodResults = new ArrayList<>();
-            for (int i = 0; (i < 50) && (i < keepScores.size()) ; i++) {
+            for (int i = 0; (i < numOfResults) && (i < keepScores.size()) ; i++) {
                 goodResults.add(new DocumentDataToView(keepScores.get(i).getKey()));
                 String currentDocNo = goodResults.get(i).getDocNo();
-                String currentDocDate = hashChecker.get(currentDocNo).getDocDate();
+                String currentDocDate = rankData.getDocDate(rankData.getCandidate(currentDocNo));
                 goodResults.get(i).setDate(currentDocDate);
             }
             long end = System.currentTimeMillis();
@@ -129,17 +273,289 @@ public class Searcher {
             //adding top 5 entities for the user to view
             if(withEntities) {
                 for (int i = 0; i < goodResults.size(); i++) {
-                    ArrayList<Term> entities = fiveTopEntities(goodResults.get(i).getDocNo());
+                    String[] entities = fiveTopEntities(goodResults.get(i).getDocNo());
                     String strEntities = makeEntitiesString(entities);
                     goodResults.get(i).setEntities(strEntities);
                 }
             }
             allAnswers[k] = goodResults;
+            resultCache.put(cacheKeys[k], goodResults);
+            if (!fromImpacts[k] && usePruned && goodResults.size() < numOfResults) //the pruned lines may have dropped docs that would be results
+                fullIndexQueries.add(k);
         }
+        searchFullIndex(allAnswers, fullIndexQueries, cacheKeys);
 
         return allAnswers;
     }
 
+    /**
+     * searches the queries again in the full posting files, without the impacts files
+     * @param allAnswers the answers of the queries are replaced
+     * @param fullIndexQueries
+     * @param cacheKeys
+     */
+    private void searchFullIndex(ArrayList<DocumentDataToView>[] allAnswers, ArrayList<Integer> fullIndexQueries, String[] cacheKeys) {
+        if (fullIndexQueries.size() == 0)
+            return;
+        ArrayList<String> fullQueries = new ArrayList<>();
+        for (int k : fullIndexQueries) {
+            fullQueries.add(queries.get(k));
+        }
+        Searcher fullSearcher = new Searcher(isSemantic, isStemm, dictionary, stopWords, fullQueries, withEntities, isOnline);
+        fullSearcher.usePruned = false;
+        fullSearcher.useImpacts = false;
+        ArrayList<DocumentDataToView>[] fullAnswers = fullSearcher.search();
+        for (int i = 0; i < fullIndexQueries.size(); i++) {
+            allAnswers[fullIndexQueries.get(i)] = fullAnswers[i];
+            resultCache.put(cacheKeys[fullIndexQueries.get(i)], fullAnswers[i]);
+        }
+    }
+
+    /**
+     * @return the results of the last queries, to be cleared when another dictionary is loaded
+     */
+    public static QueryResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * @return the posting lines of the frequent terms, to be cleared when another dictionary is loaded
+     */
+    public static PostingLineCache getPostingCache() {
+        return postingCache;
+    }
+
+    /**
+     * @param maxBytes most bytes of the posting lines that are kept in memory, 0 to read every line from its file
+     */
+    public static void setPostingCacheSize(long maxBytes) {
+        postingCache.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * @param termAtATime true to score the docs a term at a time by BM25 first, and rank fully only the best of them
+     */
+    public static void setTermAtATime(boolean termAtATime) {
+        Searcher.termAtATime = termAtATime;
+    }
+
+    /**
+     * @param rankDepth number of the best docs by BM25 that are ranked fully, when the docs are scored a term at a time
+     */
+    public static void setRankDepth(int rankDepth) {
+        Searcher.rankDepth = rankDepth;
+    }
+
+    /**
+     * @param measureAgreement true to rank all the docs fully as well when the docs are scored a term at a time, and
+     * keep how much the rankings agree in {@link #getRankAgreement()}
+     */
+    public static void setMeasureAgreement(boolean measureAgreement) {
+        Searcher.measureAgreement = measureAgreement;
+    }
+
+    /**
+     * @param prunedIndex true to read the posting lines from the pruned posting files, if the index has them
+     */
+    public static void setPrunedIndex(boolean prunedIndex) {
+        if (Searcher.prunedIndex != prunedIndex) //the kept lines are of the files that were searched until now
+            postingCache.clear();
+        Searcher.prunedIndex = prunedIndex;
+    }
+
+    /**
+     * @return how much the two stages agreed with the full ranking, in the queries that were measured
+     */
+    public static RankAgreement getRankAgreement() {
+        return rankAgreement;
+    }
+
+    /**
+     * removes the cached results and posting lines, when another dictionary is loaded or built
+     */
+    public static void clearCaches() {
+        resultCache.clear();
+        postingCache.clear();
+    }
+
+    /**
+     * the key of a query in the results cache: the options that change the ranking and the parsed terms of the query
+     * with their counts, sorted so the order and spelling of the words don't matter. the options that can be changed
+     * while the program runs (setTermAtATime, setRankDepth, setPrunedIndex, HnswIndex.setEf) are read for every key.
+     * boolean and phrase queries also keep their words, since the operators change the results, and a semantic search
+     * keeps the words before parsing, since the similar words are found by them (two words can have the same stem)
+     * @param query
+     * @param queryTerms
+     * @param queryWords words of the query that the similar words are found by
+     * @param withOperators
+     * @return
+     */
+    private String resultCacheKey(String query, ArrayList<TermDocPair> queryTerms, ArrayList<String> queryWords, boolean withOperators) {
+        ArrayList<String> terms = new ArrayList<>();
+        for (TermDocPair pair : queryTerms) {
+            terms.add(pair.getTerm().getClass().getSimpleName() + ":" + pair.getTerm().getData() + "*" + pair.getCounter());
+        }
+        Collections.sort(terms);
+        StringBuilder key = new StringBuilder();
+        key.append(isSemantic ? 'S' : 's').append(isStemm ? 'T' : 't').append(withEntities ? 'E' : 'e').append(isOnline ? 'O' : 'o');
+        //the static options: the two stages and their depth, the pruned files and the graph search of the similar words
+        key.append(termAtATime ? "A" + rankDepth : "a").append(usePruned ? 'P' : 'p');
+        if (isSemantic && !isOnline)
+            key.append('G').append(HnswIndex.getEf());
+        for (String term : terms) {
+            key.append('|').append(term);
+        }
+        if (isSemantic) {
+            ArrayList<String> words = new ArrayList<>();
+            for (String word : queryWords) {
+                words.add(word.toLowerCase());
+            }
+            Collections.sort(words);
+            key.append("||");
+            for (String word : words) {
+                key.append(word).append(' ');
+            }
+        }
+        if (withOperators)
+            key.append("||").append(query.trim().replaceAll("\\s+", " "));
+        return key.toString();
+    }
+
+    /**
+     * @param phrase
+     * @return posting data of every word of the phrase, parsed like a query word (null for a stop word)
+     */
+    private String[] phraseTermsData(PhraseQuery phrase) {
+        ArrayList<String> words = phrase.getWords();
+        String[] termsData = new String[words.size()];
+        SearcherParse sp = new SearcherParse(this.stopWords, this.isStemm);
+        for (int i = 0; i < words.size(); i++) {
+            ArrayList<String> word = new ArrayList<>();
+            word.add(words.get(i));
+            HashMap<Term, TermDocPair> parsed = sp.parseForSearcher(word, 0);
+            for (Term t : parsed.keySet()) {
+                if (t instanceof CapsTerm) //positions are kept under the lower case data, like postings
+                    termsData[i] = t.getData().toLowerCase();
+                else
+                    termsData[i] = t.getData();
+                break;
+            }
+        }
+        return termsData;
+    }
+
+    /**
+     * keeps the docs that have all the phrases, out of the best ranked docs.
+     * the positions are read only for the terms of the phrases and decoded only for those docs
+     * @param keepScores ranked docs, best first
+     * @param phrases
+     * @return the ranked docs that have all the phrases (all the docs if the index has no positions)
+     */
+    private ArrayList<Pair<String, Double>> filterByPhrases(ArrayList<Pair<String, Double>> keepScores, ArrayList<PhraseQuery> phrases) {
+        HashSet<String> candidates = new HashSet<>();
+        for (int i = 0; i < keepScores.size() && i < phraseCandidates; i++) {
+            candidates.add(keepScores.get(i).getKey());
+        }
+        //dividing the terms of the phrases by their positions file
+        HashMap<String, TreeSet<String>> pathDivide = new HashMap<>();
+        for (PhraseQuery phrase : phrases) {
+            for (String data : phrase.getTermsData()) {
+                if (data == null)
+                    continue;
+                CountAndPointerDicValue dicVal = dictionary.get(new RegularTerm(data));
+                if (dicVal == null)
+                    dicVal = dictionary.get(new CapsTerm(data.toUpperCase()));
+                if (dicVal == null)
+                    continue; //not in the corpus, no doc has the phrase
+                String path = dicVal.getPointer().getPositionsFileStr();
+                if (!new File(path).exists())
+                    return keepScores; //the index was built without positions
+                if (pathDivide.get(path) == null)
+                    pathDivide.put(path, new TreeSet<String>());
+                pathDivide.get(path).add(data);
+            }
+        }
+        HashMap<String, HashMap<String, int[]>> termsPositions = new HashMap<>();
+        FindTermsPositions findTermsPositions = new FindTermsPositions();
+        for (Map.Entry<String, TreeSet<String>> entry : pathDivide.entrySet()) {
+            termsPositions.putAll(findTermsPositions.searchAllTermsInPositionsFile(entry.getKey(), new ArrayList<>(entry.getValue()), candidates));
+        }
+
+        ArrayList<Pair<String, Double>> filtered = new ArrayList<>();
+        for (int i = 0; i < keepScores.size() && i < phraseCandidates; i++) {
+            String docNo = keepScores.get(i).getKey();
+            boolean all = true;
+            for (int p = 0; p < phrases.size() && all; p++) {
+                String[] termsData = phrases.get(p).getTermsData();
+                int[][] positions = new int[termsData.length][];
+                for (int w = 0; w < termsData.length; w++) {
+                    if (termsData[w] == null)
+                        continue;
+                    HashMap<String, int[]> docsPositions = termsPositions.get(termsData[w]);
+                    positions[w] = docsPositions == null ? null : docsPositions.get(docNo);
+                }
+                all = phrases.get(p).matches(positions);
+            }
+            if (all)
+                filtered.add(keepScores.get(i));
+        }
+        return filtered;
+    }
+
+    /**
+     * adds the pairs of a word to the pairs of its query, a term that is already there gets one more count
+     * @param wordPairs
+     * @param queryPairs
+     * @return the pairs of the query that the word has
+     */
+    private ArrayList<TermDocPair> mergePairs(ArrayList<TermDocPair> wordPairs, HashMap<Term, TermDocPair> queryPairs) {
+        ArrayList<TermDocPair> merged = new ArrayList<>();
+        for (TermDocPair pair : wordPairs) {
+            TermDocPair existing = queryPairs.get(pair.getTerm());
+            if (existing == null) {
+                queryPairs.put(pair.getTerm(), pair);
+                existing = pair;
+            } else
+                existing.setCounter(existing.getCounter() + pair.getCounter());
+            merged.add(existing);
+        }
+        return merged;
+    }
+
+    /**
+     * removes the words with wildcards from the query
+     * @param queryL
+     * @return the removed words
+     */
+    private ArrayList<String> extractWildcardWords(ArrayList<String> queryL) {
+        ArrayList<String> wildcardWords = new ArrayList<>();
+        for (int i = queryL.size() - 1; i >= 0; i--) {
+            if (WildcardExpander.isWildcard(queryL.get(i)))
+                wildcardWords.add(0, queryL.remove(i));
+        }
+        return wildcardWords;
+    }
+
+    /**
+     * @param wildcardExpander
+     * @param wildcardWords
+     * @param k number of the query
+     * @return pairs of the dictionary terms the words match, like the pairs of the parsed query words
+     */
+    private ArrayList<TermDocPair> expandWildcardWords(WildcardExpander wildcardExpander, ArrayList<String> wildcardWords, int k) {
+        HashMap<Term, TermDocPair> hash = new HashMap<>();
+        for (String word : wildcardWords) {
+            for (Term t : wildcardExpander.expand(word)) {
+                TermDocPair pair = hash.get(t);
+                if (pair == null)
+                    hash.put(t, new TermDocPair(t, new Document("" + k, "")));
+                else
+                    pair.incrementCounter();
+            }
+        }
+        return new ArrayList<>(hash.values());
+    }
+
     /**
      * this method builds array list of the relevant terms and theirs post line data
      * @param allRelavantTerms
@@ -161,12 +577,12 @@ public class Searcher {
      * @param entities
      * @return all the entities in one string
      */
-    private String makeEntitiesString(ArrayList<Term> entities) {
+    private String makeEntitiesString(String[] entities) {
         String ans = "";
-        for(Term t : entities){
-            ans += t.getData() + ";  ";
+        for(String entity : entities){
+            ans += entity + ";  ";
         }
-        if (entities.size() > 0)
+        if (entities.length > 0)
             ans = ans.substring(0, ans.length() - 2);
         return ans;
     }
@@ -174,49 +590,299 @@ public class Searcher {
     /**
      * this method is filling every field inside the DocRankData class
      * by getting list of terms and their data from the posting file
-     * and by finding the data of every doc from the doc's file
+     * and by finding the data of every doc from the doc's file.
+     * when only some docs are ranked, the sorted lines with skips are read only at these docs (see PostingList),
+     * the other lines are read whole
      * @param termPostingData
+     * @param rankData the terms and candidate docs of the query
+     * @param recognizer 0 for the query terms (their docs are added), 1 for the similar words
+     * @param matchingDocs docs that can be ranked, null for any doc
+     * @param sortedDocs the same docs sorted, null for any doc
      * @return
      */
-    private void getDocsData(ArrayList<Pair<TermDocPair, String>> termPostingData,
-                             HashMap<String, DocRankData> hashChecker, int recognizer) {
+    void getDocsData(ArrayList<Pair<TermDocPair, String>> termPostingData, DocRankData rankData, int recognizer,
+                     HashSet<String> matchingDocs, ArrayList<String> sortedDocs) {
         for (int p = 0; p < termPostingData.size(); p++) {
             Term currentTerm = termPostingData.get(p).getKey().getTerm();
             int appearInQuery = termPostingData.get(p).getKey().getCounter();
+            int termId = dictionary.ordinal(currentTerm);
             String currentTermData = termPostingData.get(p).getValue();
-            //finding df of current term
-            ArrayList<Object> dfAndString = findDf(currentTermData);
-            int termDf = (Integer) dfAndString.get(0);
-            String containsNotDf = (String) dfAndString.get(1);
+            PostingList postingList = new PostingList(currentTermData);
+            int slot = rankData.addTerm(currentTerm, appearInQuery, postingList.getDf(), termId, recognizer == 1);
+            if (sortedDocs != null && postingList.hasSkips() && sortedDocs.size() < postingList.getDf()) {
+                for (String docNo : sortedDocs) {
+                    int termTf = postingList.tf(docNo);
+                    if (termTf > 0)
+                        addDocTf(rankData, docNo, slot, termTf, recognizer, null);
+                }
+                continue;
+            }
+            String containsNotDf = (String) findDf(currentTermData).get(1);
 
             //extracting docNo && tf
             String[] splitterTfDocNo = splitByBracket.split(containsNotDf);
             for(int k = 1; k < splitterTfDocNo.length; k++){
                 //getting the docNo and the term Tf for this specific doc
                 String[] docNoTfCurrent = findDocNoAndTf(splitterTfDocNo[k]);
-                String currentDocNo = docNoTfCurrent[0];
-                int termTf = Integer.parseInt(docNoTfCurrent[1]);
-
-                //if it's the first time we get that doc we need to create instance of DocNecessaryData the keeps that doc data
-                DocRankData currentDocData = hashChecker.get(currentDocNo);
-                if(currentDocData == null && recognizer == 0){
-                    //reading doc's line of data from the doc's file
-                    String docData = DocumentFileObject.getInstance().docsHolder.get(currentDocNo);
-                    String[] splitterData = splitByDotCom.split(docData);
-
-                    //initializing doc's fields
-                    currentDocData = new DocRankData(currentDocNo);
-                    initializeDocNecessaryData(currentDocData, splitterData);
-                    hashChecker.put(currentDocNo, currentDocData);
-                }
-                //adding info for the doc info holder in the hash about the current term
-                if(recognizer == 0){
-                    currentDocData.addQueryWordData(new Pair<>(currentTerm, appearInQuery), termTf, termDf);
-                }
-                else{
-                    if(currentDocData != null)
-                        currentDocData.addSimilarQueryWordData(new Pair<>(currentTerm, appearInQuery), termTf, termDf);
+                addDocTf(rankData, docNoTfCurrent[0], slot, Integer.parseInt(docNoTfCurrent[1]), recognizer, matchingDocs);
+            }
+        }
+    }
+
+    /**
+     * adds the tf of a term in a doc. if it's the first time we get that doc (of a query term) we need to add it as a
+     * candidate with the doc's data, the similar words only count in docs of the query terms
+     * @param matchingDocs docs that can be ranked, null for any doc
+     */
+    private void addDocTf(DocRankData rankData, String docNo, int slot, int tf, int recognizer, HashSet<String> matchingDocs) {
+        int candidate = rankData.getCandidate(docNo);
+        if(candidate < 0 && recognizer == 0 && (matchingDocs == null || matchingDocs.contains(docNo))){
+            //reading doc's line of data from the doc's file
+            String docData = DocumentFileObject.getInstance().docsHolder.get(docNo);
+            String[] splitterData = splitByDotCom.split(docData);
+
+            //initializing doc's fields
+            candidate = initializeDocNecessaryData(rankData, docNo, splitterData);
+        }
+        if(candidate >= 0)
+            rankData.addTf(candidate, slot, tf);
+    }
+
+    /**
+     * fills the rank data of the docs and ranks them
+     * @param rankData empty rank data for the terms of the query and the similar words
+     * @param queryTermPostingData
+     * @param semanticTermPostingData
+     * @param docs docs to rank, null for any doc of the query terms
+     * @param ranker
+     * @return the docs and their rank, best first
+     */
+    private ArrayList<Pair<String, Double>> rankDocs(DocRankData rankData, ArrayList<Pair<TermDocPair, String>> queryTermPostingData,
+                                                     ArrayList<Pair<TermDocPair, String>> semanticTermPostingData,
+                                                     HashSet<String> docs, Ranker ranker) {
+        ArrayList<String> sortedDocs = null;
+        if (docs != null) {
+            sortedDocs = new ArrayList<>(docs);
+            Collections.sort(sortedDocs);
+        }
+        getDocsData(queryTermPostingData, rankData, 0, docs, sortedDocs);
+        getDocsData(semanticTermPostingData, rankData, 1, docs, sortedDocs);
+        return rankDocs(rankData, ranker);
+    }
+
+    /**
+     * ranks the docs of the filled rank data
+     * @param rankData
+     * @param ranker
+     * @return the docs and their rank, best first
+     */
+    ArrayList<Pair<String, Double>> rankDocs(DocRankData rankData, Ranker ranker) {
+        ArrayList<Pair<String, Double>> keepScores = new ArrayList<>(rankData.getNumOfCandidates());
+        double[] scores = ranker.rankDocuments(rankData);
+        for (int c = 0; c < scores.length; c++){
+            keepScores.add(new Pair<>(rankData.getDocNo(c), scores[c]));
+        }
+        Collections.sort(keepScores, new Comparator<Pair<String, Double>>() {
+            @Override
+            public int compare(Pair<String, Double> o1, Pair<String, Double> o2) {
+                return o2.getValue().compareTo(o1.getValue());
+            }
+        });
+        return keepScores;
+    }
+
+    /**
+     * the first stage of the ranking: walks the posting line of every term once and adds its plain BM25 to the score
+     * of every doc in a dense array by the doc, then gives the best docs by it - only they are ranked fully (the
+     * second stage), with both BM25 variants, the cosine and header parts. the similar words only add to the docs of
+     * the query terms.
+     * @param queryTermPostingData
+     * @param semanticTermPostingData
+     * @param matchingDocs docs that can be ranked, null for any doc
+     * @param ranker
+     * @param depth number of docs to rank fully
+     * @return the docs to rank
+     */
+    private HashSet<String> termAtATimeCandidates(ArrayList<Pair<TermDocPair, String>> queryTermPostingData,
+                                                  ArrayList<Pair<TermDocPair, String>> semanticTermPostingData,
+                                                  HashSet<String> matchingDocs, Ranker ranker, int depth) {
+        Map<String, String> docsHolder = DocumentFileObject.getInstance().docsHolder;
+        if (scoreAccumulator == null || !scoreAccumulator.isFor(docsHolder))
+            scoreAccumulator = new ScoreAccumulator(docsHolder);
+        addPostingsScores(queryTermPostingData, false, matchingDocs, ranker);
+        addPostingsScores(semanticTermPostingData, true, null, ranker);
+        int[] top = scoreAccumulator.top(depth);
+        HashSet<String> candidates = new HashSet<>(top.length * 2);
+        for (int doc : top) {
+            candidates.add(scoreAccumulator.getDocNo(doc));
+        }
+        scoreAccumulator.clear();
+        return candidates;
+    }
+
+    /**
+     * the ranking on an impact ordered index, from the impact lines alone. the first stage: the segments of the postings
+     * of all the terms are scored one at a time, the segment that adds the most first (its impact times the weight of
+     * its term) - the segments of the similar words only after all the segments of the query terms - and the scoring
+     * stops once the segments that are left can't change the results (the best 50 docs) - no doc out of the docs to
+     * rank can get more than the last of the results, see isResultFinal. so a frequent term reads only its best docs,
+     * unless the rest can still change the results.
+     * the second stage gets the tfs of only the docs to rank from the lines (see ImpactPostings.findTfs), and the dfs
+     * that the lines keep
+     * @param queryTermImpacts
+     * @param semanticTermImpacts
+     * @param rankData empty rank data for the terms of the query and the similar words, filled with the docs to rank
+     * @param ranker
+     * @param depth number of docs to rank fully
+     * @return false if the lines were written without the tfs of the docs (by an older index)
+     */
+    boolean scoreAtATime(ArrayList<Pair<TermDocPair, String>> queryTermImpacts,
+                                 ArrayList<Pair<TermDocPair, String>> semanticTermImpacts,
+                                 DocRankData rankData, Ranker ranker, int depth) {
+        ArrayList<Pair<TermDocPair, String>> termImpacts = new ArrayList<>(queryTermImpacts);
+        termImpacts.addAll(semanticTermImpacts);
+        ImpactPostings[] impacts = new ImpactPostings[termImpacts.size()];
+        double[] weights = new double[termImpacts.size()];
+        for (int t = 0; t < termImpacts.size(); t++) {
+            impacts[t] = new ImpactPostings(termImpacts.get(t).getValue());
+            if (!impacts[t].hasTfs())
+                return false;
+            weights[t] = ranker.getFirstStageWeight(termImpacts.get(t).getKey().getCounter(), t >= queryTermImpacts.size());
+        }
+
+        Map<String, String> docsHolder = DocumentFileObject.getInstance().docsHolder;
+        if (scoreAccumulator == null || !scoreAccumulator.isFor(docsHolder))
+            scoreAccumulator = new ScoreAccumulator(docsHolder);
+        ArrayList<String> docNos = new ArrayList<>();
+        double[] nextAdds = new double[impacts.length]; //what the next segment of every term adds to a doc
+        int scoredSinceCheck = 0;
+        while (true) {
+            //the similar words only add to docs of the query terms, so their segments are scored after all the
+            //segments of the query terms, like in termAtATimeCandidates
+            for (int t = 0; t < impacts.length; t++) {
+                nextAdds[t] = weights[t] * impacts[t].getNextImpact();
+            }
+            int best = biggestAdd(nextAdds, 0, queryTermImpacts.size());
+            if (best < 0)
+                best = biggestAdd(nextAdds, queryTermImpacts.size(), nextAdds.length);
+            if (best < 0)
+                break;
+            //checking the results once in a while, so it costs about as much as the scoring
+            if (depth > 0 && scoreAccumulator.getNumOfTouched() > depth && scoredSinceCheck >= scoreAccumulator.getNumOfTouched() / 2) {
+                scoredSinceCheck = 0;
+                if (isResultFinal(scoreAccumulator.top(depth), nextAdds, queryTermImpacts.size()))
+                    break;
+            }
+            boolean isSimilar = best >= queryTermImpacts.size();
+            float add = (float) (weights[best] * impacts[best].nextSegment(docNos));
+            for (String docNo : docNos) {
+                int doc = scoreAccumulator.getDoc(docNo);
+                if (doc >= 0 && (!isSimilar || scoreAccumulator.isTouched(doc)))
+                    scoreAccumulator.add(doc, add, best);
+            }
+            scoredSinceCheck += docNos.size();
+        }
+        int[] top = scoreAccumulator.top(depth);
+        String[] toRank = new String[top.length];
+        for (int i = 0; i < top.length; i++) {
+            toRank[i] = scoreAccumulator.getDocNo(top[i]);
+        }
+        scoreAccumulator.clear();
+
+        //the second stage, the docs to rank are added by the query terms
+        int[] tfs = new int[toRank.length];
+        for (int t = 0; t < termImpacts.size(); t++) {
+            TermDocPair termDoc = termImpacts.get(t).getKey();
+            boolean isSimilar = t >= queryTermImpacts.size();
+            int slot = rankData.addTerm(termDoc.getTerm(), termDoc.getCounter(), impacts[t].getDf(),
+                    dictionary.ordinal(termDoc.getTerm()), isSimilar);
+            impacts[t].findTfs(toRank, tfs);
+            for (int i = 0; i < toRank.length; i++) {
+                if (tfs[i] > 0)
+                    addDocTf(rankData, toRank[i], slot, tfs[i], isSimilar ? 1 : 0, null);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the term from start to end (not included) whose next segment adds the most, -1 if they have no segments
+     */
+    private int biggestAdd(double[] nextAdds, int start, int end) {
+        int best = -1;
+        for (int t = start; t < end; t++) {
+            if (nextAdds[t] > 0 && (best < 0 || nextAdds[t] > nextAdds[best]))
+                best = t;
+        }
+        return best;
+    }
+
+    /**
+     * a doc can get at most the next segment of every term it didn't get yet (the segments are by decreasing impact,
+     * and a similar word that wasn't scored yet has its first segment as the next one), so the results can't change
+     * if no doc out of the docs to rank can get more than the last of the results
+     * @param top the docs to rank, best first
+     * @param nextAdds what the next segment of every term adds to a doc
+     * @param numOfQueryTerms the query terms are first in nextAdds, then the similar words
+     * @return true if no doc out of the docs to rank can get into the results
+     */
+    private boolean isResultFinal(int[] top, double[] nextAdds, int numOfQueryTerms) {
+        double left = 0;
+        boolean queryTermsLeft = false;
+        for (int term = 0; term < nextAdds.length; term++) {
+            left += nextAdds[term];
+            if (term < numOfQueryTerms && nextAdds[term] > 0)
+                queryTermsLeft = true;
+        }
+        float lastResult = scoreAccumulator.getScore(top[Math.min(numOfResults, top.length) - 1]);
+        //a doc that wasn't scored yet can still get into the results, unless it has no query term left to get
+        if (queryTermsLeft && left > lastResult)
+            return false;
+        HashSet<Integer> toRank = new HashSet<>(top.length * 2);
+        for (int doc : top) {
+            toRank.add(doc);
+        }
+        for (int t = 0; t < scoreAccumulator.getNumOfTouched(); t++) {
+            int doc = scoreAccumulator.getTouchedDoc(t);
+            float score = scoreAccumulator.getScore(doc);
+            if (score + left <= lastResult || toRank.contains(doc))
+                continue;
+            double most = score;
+            long terms = scoreAccumulator.getTerms(doc);
+            for (int term = 0; term < nextAdds.length; term++) {
+                if (term >= 64 || (terms & (1L << term)) == 0)
+                    most += nextAdds[term];
+            }
+            if (most > lastResult)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * adds the BM25 of every term to the scores of its docs
+     * @param isSimilar true for the similar words, they are added only to docs that have a score
+     */
+    private void addPostingsScores(ArrayList<Pair<TermDocPair, String>> termPostingData, boolean isSimilar,
+                                   HashSet<String> matchingDocs, Ranker ranker) {
+        for (Pair<TermDocPair, String> termPostings : termPostingData) {
+            int countInQuery = termPostings.getKey().getCounter();
+            ArrayList<Object> dfAndString = findDf(termPostings.getValue());
+            double idf = ranker.getIdf((Integer) dfAndString.get(0));
+            String postings = (String) dfAndString.get(1);
+            //every posting is "(docNo;tf)"
+            int open = postings.indexOf('(');
+            while (open >= 0) {
+                int semicolon = postings.indexOf(';', open);
+                int close = postings.indexOf(')', semicolon);
+                String docNo = postings.substring(open + 1, semicolon);
+                int doc = scoreAccumulator.getDoc(docNo);
+                if (doc >= 0 && (isSimilar ? scoreAccumulator.isTouched(doc) : matchingDocs == null || matchingDocs.contains(docNo))) {
+                    int tf = Integer.parseInt(postings.substring(semicolon + 1, close));
+                    scoreAccumulator.add(doc, (float) ranker.getFirstStageScore(tf, idf, countInQuery, isSimilar,
+                            scoreAccumulator.getRelativeLength(doc)));
                 }
+                open = postings.indexOf('(', close);
             }
         }
     }
@@ -227,51 +893,29 @@ public class Searcher {
      */
     private String[] findDocNoAndTf(String docNoTfCurrent) {
         String[] ans = new String[2];
-        int i = 0;
-        char ch = docNoTfCurrent.charAt(i);
-        String docNo = "";
-        while (ch != ';'){
-            docNo += ch;
-            i++;
-            ch = docNoTfCurrent.charAt(i);
-        }
-        ans[0] = docNo;//docNo
+        int i = docNoTfCurrent.indexOf(';');
+        ans[0] = docNoTfCurrent.substring(0, i);//docNo
         ans[1] =docNoTfCurrent.substring(i + 1, docNoTfCurrent.length() - 1); //string of Tf value
         return ans;
     }
 
     /**
-     * if it's the first time we get that doc we need to create instance of DocNecessaryData the keeps that doc data
+     * if it's the first time we get that doc we need to add it as a candidate with the doc's data
      * this method is responsible for initialize the values that aren't changing :
-     * Header, Date, Size
-     * @param currentDocData
-     */
-    private void initializeDocNecessaryData(DocRankData currentDocData, String[] splitter) {
-        //set the size of doc
-        currentDocData.setLengthOfDoc(Integer.parseInt(splitter[0]));
-        //set num of unique terms
-        currentDocData.setNumOfUniqTerms(Integer.parseInt(splitter[1]));
-        //set most common term
-        currentDocData.setMostCommonTerm(splitter[2]);
-        //set most common term count
-        currentDocData.setMaxTf(Integer.parseInt(splitter[3]));
-        //set the date of the file
-        currentDocData.setDocDate(splitter[4]);
-        //set the header of doc - we need to parse the header in order to get additional hits in the Ranker
-        String currentHeader = splitter[5];
-        ArrayList<String> inputHeaderForParse = splitBySpaceToArrayList(currentHeader);
-        ArrayList<Pair<Term, Integer>> headerToSet = new ArrayList<>();
-        for(int i = 0; i < inputHeaderForParse.size(); i++){
-            Term t;
-            if(inputHeaderForParse.get(i).length() == 0)
-                continue;
-            if(inputHeaderForParse.get(i).charAt(0) >= 'A' && inputHeaderForParse.get(i).charAt(0) <= 'Z')
-                t = new RegularTerm(inputHeaderForParse.get(i).toLowerCase());
-            else
-                t = new RegularTerm(inputHeaderForParse.get(i));
-            headerToSet.add(new Pair<>(t, 1));
-        }
-        currentDocData.setDocHeaderStrings(headerToSet);
+     * Size, unique terms, most common term, Date, Header
+     * @param rankData
+     * @param docNo
+     * @return the candidate of the doc
+     */
+    private int initializeDocNecessaryData(DocRankData rankData, String docNo, String[] splitter) {
+        int candidate = rankData.addCandidate(docNo, Integer.parseInt(splitter[0]), Integer.parseInt(splitter[1]),
+                splitter[2], Integer.parseInt(splitter[3]), splitter[4]);
+        //set the header of doc - the ids of its terms, parsed when the index was built, for additional hits in the Ranker
+        if (headerParse == null)
+            headerParse = new SearcherParse(stopWords, isStemm);
+        rankData.setHeaderTermIds(candidate, HeaderTerms.get(docNo, splitter.length > 5 ? splitter[5] : "", headerParse, dictionary));
+        rankData.setDocNorm(candidate, DocNorms.get(docNo));
+        return candidate;
     }
 
     /**
@@ -291,7 +935,10 @@ public class Searcher {
         }
         ArrayList<Object> ans = new ArrayList<>();
         ans.add(Integer.parseInt(dfStr));
-        ans.add(termPostingData.substring(0, i - 3));
+        String postings = termPostingData.substring(0, i - 3);
+        if (postings.endsWith("}")) //long lines have skips after the postings
+            postings = postings.substring(0, postings.lastIndexOf(",sk{"));
+        ans.add(postings);
         return ans;
     }
 
@@ -312,20 +959,55 @@ public class Searcher {
 
     /**
      * @param terms
+     * @param impactsFiles path of every impacts file that was checked -> if it exists
+     * @return true if the impacts files of all the terms exist
+     */
+    private boolean hasImpactsFiles(ArrayList<TermDocPair> terms, HashMap<String, Boolean> impactsFiles) {
+        for (TermDocPair termDoc : terms) {
+            CountAndPointerDicValue dicVal = dictionary.get(termDoc.getTerm());
+            if (dicVal == null && termDoc.getTerm() instanceof CapsTerm)
+                dicVal = dictionary.get(new RegularTerm(termDoc.getTerm().getData().toLowerCase()));
+            if (dicVal == null)
+                continue;
+            String path = dicVal.getPointer().getImpactsFileStr();
+            if (!impactsFiles.containsKey(path))
+                impactsFiles.put(path, new File(path).exists());
+            if (!impactsFiles.get(path))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param pointer
+     * @return the pruned posting file of the pointer if it is searched and exists, else the posting file
+     */
+    private String postingFilePath(PostingFilePointer pointer) {
+        if (usePruned) {
+            String prunedPath = pointer.getPrunedFileStr();
+            if (new File(prunedPath).exists())
+                return prunedPath;
+        }
+        return pointer.getFileStr();
+    }
+
+    /**
+     * @param terms
+     * @param fromImpacts true to read the lines of the impacts files
      * @return HashMap that contains for each term it received it's post line data
      * (if exists !!!)
      */
-    private HashMap<Term, String> getPostData(ArrayList<TermDocPair>[] terms) {
+    private HashMap<Term, String> getPostData(List<ArrayList<TermDocPair>> terms, boolean fromImpacts) {
         HashMap<String, HashMap<Term, String>> pathDivide = new HashMap<>();
         HashMap<Term, String> result = new HashMap<>();
         ArrayList<Pair<Term, String>> tempResult = new ArrayList<>();
 
-        for (int i = 0; i < terms.length; i++) {
-            for (TermDocPair currentEntry : terms[i]){
+        for (ArrayList<TermDocPair> queryTerms : terms) {
+            for (TermDocPair currentEntry : queryTerms){
                 Term currentTerm = currentEntry.getTerm();
                 CountAndPointerDicValue dicVal = dictionary.get(currentTerm);
                 if(dicVal != null){
-                    String path = dicVal.getPointer().getFileStr();
+                    String path = fromImpacts ? dicVal.getPointer().getImpactsFileStr() : postingFilePath(dicVal.getPointer());
                     if(pathDivide.get(path) == null){
                         pathDivide.put(path, new HashMap<>());
                     }
@@ -341,7 +1023,7 @@ public class Searcher {
                     currentEntry.setTerm(currentTerm);
                     dicVal = dictionary.get(currentTerm);
                     if(dicVal != null){
-                        String path = dicVal.getPointer().getFileStr();
+                        String path = fromImpacts ? dicVal.getPointer().getImpactsFileStr() : postingFilePath(dicVal.getPointer());
                         if(pathDivide.get(path) == null){
                             pathDivide.put(path, new HashMap<>());
                         }
@@ -356,16 +1038,44 @@ public class Searcher {
             HashMap<Term, String> termsInPost = entry.getValue();
             ArrayList<Pair<Term, String>> termsInPostToSort = new ArrayList<>();
             for(Map.Entry<Term, String> termAndString : termsInPost.entrySet()){
-                termsInPostToSort.add(new Pair<>(termAndString.getKey(),termAndString.getValue()));
+                //the lines of frequent terms are kept in memory
+                String cachedLine = postingCache.get(PostingLineCache.key(entry.getKey(), termAndString.getValue()));
+                if (cachedLine != null)
+                    result.put(termAndString.getKey(), cachedLine);
+                else
+                    termsInPostToSort.add(new Pair<>(termAndString.getKey(),termAndString.getValue()));
             }
+            if (termsInPostToSort.size() == 0)
+                continue;
             Collections.sort(termsInPostToSort, new Comparator<Pair<Term, String>>() {
                 @Override
                 public int compare(Pair<Term, String> o1, Pair<Term, String> o2) {
                     return o1.getValue().compareTo(o2.getValue());
                 }
             });
-            FindTermsData findTermsData = new FindTermsData();
-            tempResult.addAll(findTermsData.searchAllTermsInPostFile(entry.getKey(), termsInPostToSort));
+            ArrayList<Pair<Term, String>> lines;
+            if (fromImpacts) {
+                ArrayList<String> sortedTermsData = new ArrayList<>();
+                for (Pair<Term, String> termAndString : termsInPostToSort) {
+                    sortedTermsData.add(termAndString.getValue());
+                }
+                HashMap<String, String> impactLines = new FindTermsImpacts().searchAllTermsInImpactsFile(entry.getKey(), sortedTermsData);
+                lines = new ArrayList<>();
+                for (Pair<Term, String> termAndString : termsInPostToSort) {
+                    if (impactLines.get(termAndString.getValue()) != null)
+                        lines.add(new Pair<>(termAndString.getKey(), impactLines.get(termAndString.getValue())));
+                }
+            } else {
+                FindTermsData findTermsData = new FindTermsData();
+                lines = findTermsData.searchAllTermsInPostFile(entry.getKey(), termsInPostToSort);
+                if (lines == null)
+                    continue;
+            }
+            for (Pair<Term, String> line : lines) {
+                String lineTerm = line.getValue().substring(0, line.getValue().indexOf(fromImpacts ? '{' : '('));
+                postingCache.put(PostingLineCache.key(entry.getKey(), lineTerm), line.getValue());
+            }
+            tempResult.addAll(lines);
         }
         for(Pair<Term, String> entry : tempResult){
             result.put(entry.getKey(), entry.getValue());
@@ -417,22 +1127,14 @@ public class Searcher {
      */
     private ArrayList<String> getSemanticallyCloseWordsOffline(ArrayList<String> query) {
         ArrayList<String> output = new ArrayList<>();
-        try {
-            Word2VecModel model = Word2VecModel.fromTextFile(new File("data\\model\\word2vec.c.output.model.txt"));
-            com.medallia.word2vec.Searcher semanticSearcher = model.forSearch();
-            int numOfResults = 3;
-            for (int i = 0; i < query.size(); i++) {
-                List<com.medallia.word2vec.Searcher.Match> matches = semanticSearcher.getMatches(query.get(i).toLowerCase(), numOfResults);
-                for (com.medallia.word2vec.Searcher.Match match : matches) {
-                    if (!match.match().equals(query.get(i)))
-                        output.add(match.match());
-                }
+        //the close words of the index words were found when the index was built
+        for (int i = 0; i < query.size(); i++) {
+            for (String close : NeighborTable.get(query.get(i).toLowerCase())) {
+                if (!close.equals(query.get(i)))
+                    output.add(close);
             }
-        } catch (Exception e) {
-        }
-        finally {
-            return output;
         }
+        return output;
     }
 
     /**
@@ -444,105 +1146,31 @@ public class Searcher {
      */
     private ArrayList<String> getSemanticallyCloseWordsOnline(ArrayList<String> query) {
         ArrayList<String> output = new ArrayList<>();
-        DatamuseQuery datamuseQuery = new DatamuseQuery();
-        JSONParse jSONParse = new JSONParse();
+        //all the words are asked together, the words that were asked before are answered from the cache
+        HashMap<String, String[]> similar = new DatamuseClient().findSimilar(query);
+        ArrayList<String> notAnswered = new ArrayList<>();
         for (String word : query) {
-            String initCloseWords = datamuseQuery.findSimilar(word);
-            String[] parsedCloseWords = jSONParse.parseWords(initCloseWords);
-            String[] useAbleCloseWords = new String[2];
-            for(int i = 0; i < 2; i++){
-                useAbleCloseWords[i] = parsedCloseWords[i];
+            String[] parsedCloseWords = similar.get(word);
+            if (parsedCloseWords == null) {
+                notAnswered.add(word);
+                continue;
             }
+            String[] useAbleCloseWords = Arrays.copyOf(parsedCloseWords, Math.min(2, parsedCloseWords.length));
             addArrayToList(useAbleCloseWords, output);
         }
+        if (notAnswered.size() > 0)
+            output.addAll(getSemanticallyCloseWordsOffline(notAnswered));
         return output;
-
     }
 
     /**
      * @param docNo
-     * @return {@code ArrayList) of the five (if exists) most dominating entities in the doc
-     */
-    public ArrayList<Term> fiveTopEntities(String docNo) {
-        //finding the doc's properties
-        String docData = DocumentFileObject.getInstance().docsHolder.get(docNo);
-        //gets all of the entities in a doc
-        String[] splitter = splitByEntities.split(docData);
-        if (splitter.length == 1)
-            return new ArrayList<>();
-        String strEntities = splitter[1];
-        String[] mayEntitiesWithCount = splitByDotCom.split(strEntities);
-        TermBuilder builder = new TermBuilder();
-        HashMap<Term, Integer> realEntities = new HashMap<>();
-        ArrayList<Term> topFive = new ArrayList<>();
-        HashMap<String, Integer> mayEntries = new HashMap<>();
-        for(int i = 0; i < mayEntitiesWithCount.length; i++){
-            String currentUnited = mayEntitiesWithCount[i];
-            String[] splited = stickPattern.split(currentUnited);
-            int apperancesInDoc = Integer.parseInt(splited[1]);
-            mayEntries.put(splited[0], apperancesInDoc);
-        }
-        //keeping only the right entities
-        for (Map.Entry<String, Integer> entry : mayEntries.entrySet()) {
-            Term t = builder.buildTerm("EntityTerm", entry.getKey());
-            if (dictionary.contains(t)) {
-                realEntities.put(t, entry.getValue());
-                topFive.add(t);
-            }
-        }
-        if (realEntities.size() <= 5) {
-            return topFive;
-        } else {
-            ArrayList<Pair<Term,Double>> scores = calculateScores(realEntities, docNo);
-            return extractBiggestScore(scores);
-        }
-    }
-    /**
-     * this method is responsible for returning the scores for all the entity terms in a document
-     * score is calculated by : ((size of term (num of words)) * (number of appearances in the doc)) / log(appearances in corpus)
-     * @param realEntities
-     * @param docNo
-     * @return array list of scores for each entity
+     * @return the five (if exists) most dominating entities in the doc, precomputed when the index was built
      */
-    private ArrayList<Pair<Term, Double>> calculateScores(HashMap<Term, Integer> realEntities, String docNo) {
-        ArrayList<Pair<Term,Double>> scores = new ArrayList<>();
-        for (Map.Entry<Term, Integer> entry : realEntities.entrySet()) {
-            Term currentEntity = entry.getKey();
-            String[] strEntitySize = escape.split(currentEntity.getData());
-
-            int entitySize = strEntitySize.length;
-            int appearancesInDoc = entry.getValue();
-            int appearancesInCorpus = dictionary.get(currentEntity).getTotalCount();
-
-            //calculating by formula
-            double score = entitySize * appearancesInDoc;
-            score = score / Math.log(appearancesInCorpus);
-            scores.add(new Pair<>(currentEntity, score));
-        }
-        return scores;
+    public String[] fiveTopEntities(String docNo) {
+        return TopEntities.get(docNo, dictionary);
     }
 
-    /**
-     * this method is responsible for extracting and returning
-     * the biggest score of term from the scores and realEntities arrays
-     * @param scores
-     * @return term with the biggest score
-     */
-    private ArrayList<Term> extractBiggestScore(ArrayList<Pair<Term, Double>> scores) {
-        Collections.sort(scores, new Comparator<Pair<Term, Double>>() {
-            @Override
-            public int compare(Pair<Term, Double> o1, Pair<Term, Double> o2) {
-                return o2.getValue().compareTo(o1.getValue());
-            }
-        });
-        ArrayList<Term> ans = new ArrayList<>();
-        for (int i = 0; i <= 4; i++) {
-            ans.add(scores.get(i).getKey());
-        }
-        return ans;
-    }
-
-
     /**
      * function that adds all the strings of a given string array to the given list
      */
@@ -16,8 +16,7 @@ public class SearcherParse extends Parse {
 
     public HashMap<Term, TermDocPair> parseForSearcher(ArrayList<String> query, int k){
         String text =getTextFromQuery(query);
-        text = deleteTitlesFunc(text);
-        query = splitBySpaceToArrayList(text);
+        query = splitText(text);
         HashMap<Term, TermDocPair> pairs = new HashMap<>();//output list
         ArrayList<String> initialWords = new ArrayList<>();
         for(String word : query){
@@ -0,0 +1,239 @@
+package Model.HandleSearch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.regex.Pattern;
+
+/**
+ * The word2vec model of the offline semantic search, loaded once for the whole program and only read.
+ * the text model is converted on the first load to a binary file of unit length vectors, that is read in bulk to one
+ * float array from then on instead of being parsed again (not mapped, a mapped file stays locked on Windows until GC).
+ * a model that failed to load isn't loaded again. the closest words are found by
+ * NearestNeighbors, or for a single word of a query by the HnswIndex of the model when it has one (built with the
+ * index for a big model).
+ * binary file: magic, number of words, vector size, the vectors (floats), the words.
+ */
+public class SemanticModel {
+    public static final String textModelPath = "data\\model\\word2vec.c.output.model.txt";
+    public static final String binaryModelPath = "data\\model\\word2vec.c.output.model.vectors";
+    public static final String graphPath = "data\\model\\word2vec.c.output.model.hnsw";
+    private static final int graphMinWords = 50000; //smaller models are searched whole fast enough
+    private static final int graphLinks = 16;
+    private static final int binaryMagic = 0x57325631; //"W2V1"
+    private static Pattern spaces = Pattern.compile("[ ]+");
+    private static final int readBytes = 1 << 20; //bytes of the vectors that are read together
+    private static SemanticModel instance;
+    private static boolean loadFailed;
+
+    private String[] words;
+    private HashMap<String, Integer> wordIndexes;
+    private NearestNeighbors nearestNeighbors;
+    private HnswIndex graph; //null if the model has no graph
+
+    private SemanticModel(String[] words, NearestNeighbors nearestNeighbors) {
+        this.words = words;
+        this.nearestNeighbors = nearestNeighbors;
+        this.wordIndexes = new HashMap<>(words.length * 2);
+        for (int i = 0; i < words.length; i++) {
+            wordIndexes.put(words[i], i);
+        }
+    }
+
+    /**
+     * @return the model, loaded on the first call. null if there is no model file or it failed to load
+     */
+    public static synchronized SemanticModel getInstance() {
+        if (instance != null || loadFailed)
+            return instance;
+        try {
+            if (!new File(binaryModelPath).exists()) {
+                if (!new File(textModelPath).exists())
+                    return null;
+                convertTextModel(textModelPath, binaryModelPath);
+            }
+            instance = readBinaryModel(binaryModelPath);
+            if (new File(graphPath).exists())
+                instance.graph = HnswIndex.read(graphPath, instance.nearestNeighbors);
+        } catch (Exception e) {
+            e.printStackTrace();
+            loadFailed = true;
+        }
+        return instance;
+    }
+
+    /**
+     * builds the graph of the model and writes it, if the model is big and has no graph yet
+     */
+    public static void buildGraph() {
+        SemanticModel model = getInstance();
+        if (model == null || model.graph != null || model.words.length < graphMinWords)
+            return;
+        model.graph = HnswIndex.build(model.nearestNeighbors, graphLinks);
+        model.graph.write(graphPath);
+    }
+
+    /**
+     * @return true if there is a model to load
+     */
+    public static boolean exists() {
+        return instance != null || new File(binaryModelPath).exists() || new File(textModelPath).exists();
+    }
+
+    /**
+     * @param word
+     * @return true if the model has a vector for the word
+     */
+    public boolean contains(String word) {
+        return wordIndexes.containsKey(word);
+    }
+
+    /**
+     * @return the words of the model
+     */
+    public String[] getWords() {
+        return words;
+    }
+
+    /**
+     * @param word
+     * @param numOfResults
+     * @return the closest words to the word by the cosine of their vectors, closest first (the word itself is the
+     * closest). empty if the model doesn't have the word
+     */
+    public ArrayList<String> closestWords(String word, int numOfResults) {
+        Integer index = wordIndexes.get(word);
+        if (graph != null && index != null) { //about the closest, much faster
+            ArrayList<String> closest = new ArrayList<>();
+            for (int row : graph.search(index, numOfResults)) {
+                closest.add(words[row]);
+            }
+            return closest;
+        }
+        ArrayList<String> words = new ArrayList<>();
+        words.add(word);
+        return closestWords(words, numOfResults).get(0);
+    }
+
+    /**
+     * the exact closest words. the words are compared to the model together, every vector of the model is read once
+     * for a few words
+     *
+     * @param words
+     * @param numOfResults
+     * @return the closest words of every word, like closestWords of one word
+     */
+    public ArrayList<ArrayList<String>> closestWords(ArrayList<String> words, int numOfResults) {
+        ArrayList<ArrayList<String>> closest = new ArrayList<>();
+        int[] rows = new int[words.size()];
+        int known = 0;
+        for (String word : words) {
+            Integer index = wordIndexes.get(word);
+            if (index != null)
+                rows[known++] = index;
+        }
+        int[][] found = nearestNeighbors.search(Arrays.copyOf(rows, known), numOfResults);
+        int next = 0;
+        for (String word : words) {
+            ArrayList<String> wordClosest = new ArrayList<>();
+            if (wordIndexes.containsKey(word)) {
+                for (int row : found[next])
+                    wordClosest.add(this.words[row]);
+                next++;
+            }
+            closest.add(wordClosest);
+        }
+        return closest;
+    }
+
+    /**
+     * converts the text model ("count size" then "word v1 v2...") to the binary file, with unit length vectors
+     *
+     * @param textPath
+     * @param binaryPath
+     * @throws IOException
+     */
+    private static void convertTextModel(String textPath, String binaryPath) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(textPath), 1 << 16);
+        String[] header = spaces.split(reader.readLine().trim());
+        int count = Integer.parseInt(header[0]);
+        int layerSize = Integer.parseInt(header[1]);
+        ArrayList<String> words = new ArrayList<>(count);
+        File temp = new File(binaryPath + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+        out.writeInt(binaryMagic);
+        out.writeInt(count);
+        out.writeInt(layerSize);
+        float[] vector = new float[layerSize];
+        String line;
+        while (words.size() < count && (line = reader.readLine()) != null) {
+            String[] splitter = spaces.split(line.trim());
+            if (splitter.length < layerSize + 1)
+                continue;
+            double norm = 0;
+            for (int d = 0; d < layerSize; d++) {
+                vector[d] = Float.parseFloat(splitter[d + 1]);
+                norm += vector[d] * vector[d];
+            }
+            norm = norm == 0 ? 1 : Math.sqrt(norm);
+            for (int d = 0; d < layerSize; d++) {
+                out.writeFloat((float) (vector[d] / norm));
+            }
+            words.add(splitter[0]);
+        }
+        reader.close();
+        for (String word : words) {
+            out.writeUTF(word);
+        }
+        out.close();
+        if (words.size() < count) { //fewer words than the header, fixing the count
+            RandomAccessFile file = new RandomAccessFile(temp, "rw");
+            file.seek(4);
+            file.writeInt(words.size());
+            file.close();
+        }
+        File binary = new File(binaryPath);
+        binary.delete();
+        temp.renameTo(binary);
+    }
+
+    private static SemanticModel readBinaryModel(String binaryPath) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(binaryPath), 1 << 16));
+        int magic = in.readInt();
+        int count = in.readInt();
+        int layerSize = in.readInt();
+        if (magic != binaryMagic) {
+            in.close();
+            throw new IOException("not a model file: " + binaryPath);
+        }
+        float[] matrix = new float[count * layerSize];
+        byte[] bytes = new byte[readBytes];
+        FloatBuffer floats = ByteBuffer.wrap(bytes).asFloatBuffer();
+        for (int read = 0; read < matrix.length; ) {
+            int length = Math.min(readBytes / 4, matrix.length - read);
+            in.readFully(bytes, 0, length * 4);
+            floats.clear();
+            floats.get(matrix, read, length);
+            read += length;
+        }
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = in.readUTF();
+        }
+        in.close();
+        return new SemanticModel(words, new NearestNeighbors(matrix, layerSize));
+    }
+}
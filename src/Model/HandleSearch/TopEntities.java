@@ -0,0 +1,189 @@
+package Model.HandleSearch;
+
+import Model.IndexerAndDictionary.Dictionary;
+import Model.OuputFiles.DocumentFile.DocumentFileObject;
+import Model.TermsAndDocs.Terms.EntityTerm;
+import javafx.util.Pair;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * The five (if exists) most dominating entities of every document, found when the index is built - after the
+ * dictionary is final, so it is known which candidates are entities - and written next to the docs files.
+ * a document that isn't in the table (an index that was built before) is computed when it is shown, and kept.
+ * file: a line for every document that has entities - "docNo;entity;entity...".
+ */
+public class TopEntities {
+    private static final int numOfEntities = 5;
+    private static Pattern stickPattern = Pattern.compile("[\\|]");
+    private static Pattern escape = Pattern.compile("[ ]");
+    private static Pattern splitByEntities = Pattern.compile("[E][N][T][I][T][I][E][S][:]");
+    private static Pattern splitByDotCom = Pattern.compile("[\\;]");
+    private static ConcurrentHashMap<String, String[]> table = new ConcurrentHashMap<>();
+
+    /**
+     * @param docNo
+     * @param dictionary the dictionary of the index of the document
+     * @return the top entities of the document, most dominating first
+     */
+    public static String[] get(String docNo, Dictionary dictionary) {
+        String[] entities = table.get(docNo);
+        if (entities != null)
+            return entities;
+        String docData = DocumentFileObject.getInstance().docsHolder.get(docNo);
+        if (docData == null)
+            return new String[0];
+        entities = findTopEntities(docData, dictionary);
+        table.put(docNo, entities);
+        return entities;
+    }
+
+    /**
+     * @param outputPath
+     * @param toStem
+     * @return path of the table of the index
+     */
+    public static String tablePath(String outputPath, boolean toStem) {
+        return outputPath + (toStem ? "\\stemOur" : "\\noStemOur") + "\\DocsFiles\\topEntities";
+    }
+
+    /**
+     * finds the top entities of every document of the docs files and writes them
+     *
+     * @param dictionary the final dictionary of the index
+     * @param docsPath
+     * @param path
+     */
+    public static void build(final Dictionary dictionary, ArrayList<String> docsPath, String path) {
+        table.clear();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(docsPath.size(), Runtime.getRuntime().availableProcessors()));
+        for (final String docsFile : docsPath) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        BufferedReader reader = new BufferedReader(new FileReader(docsFile), 1 << 16);
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            int docNoEnd = line.indexOf(';');
+                            if (docNoEnd < 0)
+                                continue;
+                            String[] entities = findTopEntities(line.substring(docNoEnd + 1), dictionary);
+                            table.put(line.substring(0, docNoEnd), entities);
+                        }
+                        reader.close();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+        }
+        try {
+            executor.shutdown();
+            executor.awaitTermination(200000, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        write(path);
+    }
+
+    /**
+     * replaces the table with the table of the loaded index, if it has one
+     *
+     * @param path
+     */
+    public static void load(String path) {
+        table.clear();
+        if (!new File(path).exists())
+            return;
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(path), 1 << 16);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] splitter = splitByDotCom.split(line);
+                String[] entities = new String[splitter.length - 1];
+                System.arraycopy(splitter, 1, entities, 0, entities.length);
+                table.put(splitter[0], entities);
+            }
+            reader.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void clear() {
+        table.clear();
+    }
+
+    /**
+     * documents without entities aren't written, they are found empty when they are shown
+     */
+    private static void write(String path) {
+        try {
+            BufferedWriter writer = new BufferedWriter(new FileWriter(path), 1 << 16);
+            for (Map.Entry<String, String[]> entry : table.entrySet()) {
+                if (entry.getValue().length == 0)
+                    continue;
+                writer.write(entry.getKey());
+                for (String entity : entry.getValue()) {
+                    writer.write(';');
+                    writer.write(entity);
+                }
+                writer.newLine();
+            }
+            writer.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * the candidates of the document that are entities in the dictionary, and if there are more than five - the five
+     * with the biggest score: ((size of term (num of words)) * (number of appearances in the doc)) / log(appearances in corpus)
+     *
+     * @param docData line of the document in the docs files, without the docNo
+     * @param dictionary
+     * @return the top entities, most dominating first
+     */
+    private static String[] findTopEntities(String docData, Dictionary dictionary) {
+        String[] splitter = splitByEntities.split(docData);
+        if (splitter.length == 1 || splitter[1].length() == 0)
+            return new String[0];
+        String[] mayEntitiesWithCount = splitByDotCom.split(splitter[1]);
+        ArrayList<Pair<String, Double>> scores = new ArrayList<>();
+        for (String currentUnited : mayEntitiesWithCount) {
+            String[] splited = stickPattern.split(currentUnited);
+            EntityTerm term = new EntityTerm(splited[0]);
+            if (!dictionary.contains(term))
+                continue;
+            int appearancesInDoc = Integer.parseInt(splited[1]);
+            int appearancesInCorpus = dictionary.get(term).getTotalCount();
+            double score = escape.split(splited[0]).length * appearancesInDoc;
+            scores.add(new Pair<>(splited[0], score / Math.log(appearancesInCorpus)));
+        }
+        Collections.sort(scores, new Comparator<Pair<String, Double>>() {
+            @Override
+            public int compare(Pair<String, Double> o1, Pair<String, Double> o2) {
+                return o2.getValue().compareTo(o1.getValue());
+            }
+        });
+        String[] top = new String[Math.min(numOfEntities, scores.size())];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = scores.get(i).getKey();
+        }
+        return top;
+    }
+}
@@ -0,0 +1,149 @@
+package Model.HandleSearch;
+
+import Model.IndexerAndDictionary.SortedTermDictionary;
+import Model.TermsAndDocs.Terms.Term;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Expands wildcard query words (nuclear*, *ization, nucl?ar, inter*tion) to dictionary terms.
+ * the fixed start of the word is looked up as a prefix in the sorted term dictionary, the fixed end as a suffix
+ * (whichever is longer, so fewer terms are checked), and only the terms in that range are matched against the word.
+ * a word with no fixed start or end (*clear*) isn't expanded, it would have to check every term.
+ * the expansion keeps the most frequent matching terms of the whole range, up to maxExpansions.
+ */
+public class WildcardExpander {
+    private static final int maxExpansions = 30;
+    private static final int termsPerRead = 4096; //terms of the prefix range that are decoded together
+
+    private SortedTermDictionary sortedTerms;
+
+    public WildcardExpander(SortedTermDictionary sortedTerms) {
+        this.sortedTerms = sortedTerms;
+    }
+
+    /**
+     * @param word
+     * @return true if the word has a wildcard ('*' any chars, '?' one char)
+     */
+    public static boolean isWildcard(String word) {
+        return word.indexOf('*') >= 0 || word.indexOf('?') >= 0;
+    }
+
+    /**
+     * @param word query word with wildcards
+     * @return dictionary terms that match the word (lower case words and capital terms), most frequent first
+     */
+    public ArrayList<Term> expand(String word) {
+        Comparator<Integer> byCount = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Integer.compare(sortedTerms.getCount(o1), sortedTerms.getCount(o2));
+            }
+        };
+        //the least frequent of the best matches so far is on top
+        PriorityQueue<Integer> matches = new PriorityQueue<>(maxExpansions + 1, byCount);
+        String lower = word.toLowerCase();
+        String upper = word.toUpperCase();
+        addMatches(lower, matches);
+        if (!upper.equals(lower))
+            addMatches(upper, matches);
+        ArrayList<Integer> best = new ArrayList<>(matches);
+        Collections.sort(best, Collections.reverseOrder(byCount));
+        ArrayList<Term> output = new ArrayList<>();
+        for (int ordinal : best) {
+            output.add(sortedTerms.getTerm(ordinal));
+        }
+        return output;
+    }
+
+    /**
+     * keeps the ordinals of the most frequent terms that match the pattern (case sensitive)
+     */
+    private void addMatches(String pattern, PriorityQueue<Integer> matches) {
+        int first = firstWildcard(pattern);
+        int last = lastWildcard(pattern);
+        String prefix = pattern.substring(0, first);
+        String suffix = pattern.substring(last + 1);
+        if (prefix.length() == 0 && suffix.length() == 0)
+            return;
+        if (prefix.length() >= suffix.length()) {
+            int[] range = sortedTerms.prefixRange(prefix);
+            for (int from = range[0]; from < range[1]; from += termsPerRead) {
+                ArrayList<String> terms = sortedTerms.terms(from, Math.min(range[1], from + termsPerRead));
+                for (int i = 0; i < terms.size(); i++) {
+                    if (matches(pattern, terms.get(i)))
+                        keep(from + i, matches);
+                }
+            }
+        } else {
+            int[] range = sortedTerms.suffixRange(suffix);
+            for (int position = range[0]; position < range[1]; position++) {
+                int ordinal = sortedTerms.suffixOrdinal(position);
+                if (matches(pattern, sortedTerms.term(ordinal)))
+                    keep(ordinal, matches);
+            }
+        }
+    }
+
+    /**
+     * adds the term to the best matches if it is more frequent than the least frequent of them
+     */
+    private void keep(int ordinal, PriorityQueue<Integer> matches) {
+        if (matches.size() < maxExpansions) {
+            matches.add(ordinal);
+        } else if (sortedTerms.getCount(ordinal) > sortedTerms.getCount(matches.peek())) {
+            matches.poll();
+            matches.add(ordinal);
+        }
+    }
+
+    private static int firstWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?')
+                return i;
+        }
+        return pattern.length();
+    }
+
+    private static int lastWildcard(String pattern) {
+        for (int i = pattern.length() - 1; i >= 0; i--) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?')
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param pattern word with wildcards
+     * @param term
+     * @return true if the whole term matches the pattern
+     */
+    public static boolean matches(String pattern, String term) {
+        int p = 0;
+        int t = 0;
+        int star = -1; //position of the last '*' in the pattern
+        int starTerm = 0; //position in the term when that '*' was reached
+        while (t < term.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == term.charAt(t))) {
+                p++;
+                t++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                starTerm = t;
+            } else if (star >= 0) { //let the last '*' take one more char
+                p = star + 1;
+                t = ++starTerm;
+            } else
+                return false;
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*')
+            p++;
+        return p == pattern.length();
+    }
+}
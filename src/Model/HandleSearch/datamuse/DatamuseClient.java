@@ -0,0 +1,163 @@
+package Model.HandleSearch.datamuse;
+
+import javafx.util.Pair;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the similar words of many words at once with the Datamuse api.
+ * the words that were already asked are answered from a cache that is kept in a file, so they are asked once ever.
+ * the rest are asked together, every word in its own request, and the batch waits for all of them up to a time
+ * limit. a word whose request failed or didn't return in time isn't in the answer (and isn't cached), and isn't
+ * asked again for a minute, so a search without internet doesn't wait for it in every query.
+ * only the first words of every answer are read and kept.
+ * cache file: a line for every word - "word[tab]similar[tab]similar...".
+ */
+public class DatamuseClient {
+    public static final String defaultCachePath = "data\\datamuseCache.txt";
+    public static final int defaultNumOfWords = 2;
+    private static final int threads = 16;
+    private static final long batchTimeout = 10000; //milliseconds
+    private static final long retryAfter = 60000;
+    private static ConcurrentHashMap<String, Long> failures = new ConcurrentHashMap<>(); //word -> time it failed
+    private static Pattern tab = Pattern.compile("\t");
+    private static HashMap<String, ConcurrentHashMap<String, String[]>> caches = new HashMap<>(); //by cache file
+    private static ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "datamuse");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private DatamuseQuery datamuseQuery;
+    private String cachePath;
+    private int numOfWords;
+    private ConcurrentHashMap<String, String[]> cache;
+
+    public DatamuseClient() {
+        this(new DatamuseQuery(), defaultCachePath, defaultNumOfWords);
+    }
+
+    /**
+     * @param datamuseQuery the api to ask
+     * @param cachePath file of the cache of the answers of the api
+     * @param numOfWords similar words to read of every answer
+     */
+    public DatamuseClient(DatamuseQuery datamuseQuery, String cachePath, int numOfWords) {
+        this.datamuseQuery = datamuseQuery;
+        this.cachePath = cachePath;
+        this.numOfWords = numOfWords;
+        this.cache = loadCache(cachePath);
+    }
+
+    /**
+     * @param words
+     * @return the similar words of every word that was answered, most similar first
+     */
+    public HashMap<String, String[]> findSimilar(Collection<String> words) {
+        HashMap<String, String[]> similar = new HashMap<>();
+        HashMap<String, CompletableFuture<String[]>> requests = new HashMap<>();
+        for (final String word : new LinkedHashSet<>(words)) {
+            String[] cached = cache.get(word);
+            if (cached != null) {
+                similar.put(word, cached);
+                continue;
+            }
+            Long failed = failures.get(word);
+            if (failed != null && System.currentTimeMillis() - failed < retryAfter)
+                continue;
+            requests.put(word, CompletableFuture.supplyAsync(new Supplier<String[]>() {
+                @Override
+                public String[] get() {
+                    Pair<String[], int[]> found = datamuseQuery.findSimilar(word, numOfWords);
+                    return found == null ? null : found.getKey();
+                }
+            }, executor));
+        }
+        if (requests.size() == 0)
+            return similar;
+
+        long deadline = System.currentTimeMillis() + batchTimeout;
+        HashMap<String, String[]> answered = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<String[]>> request : requests.entrySet()) {
+            try {
+                long left = Math.max(1, deadline - System.currentTimeMillis());
+                String[] found = request.getValue().get(left, TimeUnit.MILLISECONDS);
+                if (found != null)
+                    answered.put(request.getKey(), found);
+                else
+                    failures.put(request.getKey(), System.currentTimeMillis());
+            } catch (Exception e) { //failed or too slow, the word is left out
+                request.getValue().cancel(true);
+                failures.put(request.getKey(), System.currentTimeMillis());
+            }
+        }
+        similar.putAll(answered);
+        cache.putAll(answered);
+        appendToCache(answered);
+        return similar;
+    }
+
+    private static synchronized ConcurrentHashMap<String, String[]> loadCache(String path) {
+        ConcurrentHashMap<String, String[]> cache = caches.get(path);
+        if (cache != null)
+            return cache;
+        cache = new ConcurrentHashMap<>();
+        caches.put(path, cache);
+        if (!new File(path).exists())
+            return cache;
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(path));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] splitter = tab.split(line, -1);
+                String[] similar = new String[splitter.length - 1];
+                System.arraycopy(splitter, 1, similar, 0, similar.length);
+                cache.put(splitter[0], similar);
+            }
+            reader.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return cache;
+    }
+
+    private void appendToCache(HashMap<String, String[]> answered) {
+        if (answered.size() == 0)
+            return;
+        synchronized (DatamuseClient.class) {
+            try {
+                BufferedWriter writer = new BufferedWriter(new FileWriter(cachePath, true));
+                for (Map.Entry<String, String[]> entry : answered.entrySet()) {
+                    StringBuilder line = new StringBuilder(entry.getKey());
+                    for (String word : entry.getValue()) {
+                        line.append('\t').append(word);
+                    }
+                    writer.write(line.toString());
+                    writer.newLine();
+                }
+                writer.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -7,11 +7,16 @@
 
 package Model.HandleSearch.datamuse;
 
+import javafx.util.Pair;
+
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.Scanner;
+import java.nio.charset.StandardCharsets;
 
 /**
  * A handler for making calls to the Datamuse RESTful API.
@@ -20,9 +25,21 @@ import java.util.Scanner;
  * @since 21/02/15
  */
 public class DatamuseQuery {
+    public static final String defaultBaseUrl = System.getProperty("datamuseUrl", "http://api.datamuse.com");
+    private static final int connectTimeout = 3000; //milliseconds
+    private static final int readTimeout = 5000;
+
+    private String baseUrl;
 
     public DatamuseQuery() {
+        this(defaultBaseUrl);
+    }
 
+    /**
+     * @param baseUrl address of the api, like http://api.datamuse.com (a local server for tests)
+     */
+    public DatamuseQuery(String baseUrl) {
+        this.baseUrl = baseUrl;
     }
 
     /**
@@ -32,7 +49,26 @@ public class DatamuseQuery {
      */
     public String findSimilar(String word) {
         String s = word.replaceAll(" ", "+");
-        return getJSON("http://api.datamuse.com/words?rd="+s);
+        return getJSON(baseUrl + "/words?rd="+s);
+    }
+
+    /**
+     * Returns the most similar words to the word/phrase supplied, parsed while they are read.
+     * @param word A word or phrase.
+     * @param max The number of words to read, the rest of the data isn't read.
+     * @return The similar words and their scores, most similar first, or null if the call failed.
+     */
+    public Pair<String[], int[]> findSimilar(String word, int max) {
+        String s = word.replaceAll(" ", "+");
+        try {
+            InputStream inStream = open(baseUrl + "/words?rd="+s).getInputStream();
+            Reader reader = new BufferedReader(new InputStreamReader(inStream, StandardCharsets.UTF_8));
+            Pair<String[], int[]> similar = new JSONParse().parse(reader, max);
+            reader.close();
+            return similar;
+        } catch (IOException ex) {
+            return null;
+        }
     }
 
     /**
@@ -43,7 +79,7 @@ public class DatamuseQuery {
      */
     public String findSimilarStartsWith(String word, String startLetter) {
         String s = word.replaceAll(" ", "+");
-        return getJSON("http://api.datamuse.com/words?rd="+s+"&sp="+startLetter+"*");
+        return getJSON(baseUrl + "/words?rd="+s+"&sp="+startLetter+"*");
     }
 
     /**
@@ -54,7 +90,7 @@ public class DatamuseQuery {
      */
     public String findSimilarEndsWith(String word, String endLetter) {
         String s = word.replaceAll(" ", "+");
-        return getJSON("http://api.datamuse.com/words?rd="+s+"&sp=*"+endLetter);
+        return getJSON(baseUrl + "/words?rd="+s+"&sp=*"+endLetter);
     }
 
     /**
@@ -70,7 +106,7 @@ public class DatamuseQuery {
         for (int i = 0; i < numberMissing; i++) {
             sb.append("?");
         }
-        return getJSON("http://api.datamuse.com/words?sp=" + startLetter + sb + endLetter);
+        return getJSON(baseUrl + "/words?sp=" + startLetter + sb + endLetter);
     }
 
     /**
@@ -81,7 +117,7 @@ public class DatamuseQuery {
      * @return A list of matching words.
      */
     public String wordsStartingWithEndingWith(String startLetter, String endLetter) {
-        return getJSON("http://api.datamuse.com/words?sp=" + startLetter + "*" + endLetter);
+        return getJSON(baseUrl + "/words?sp=" + startLetter + "*" + endLetter);
     }
 
     /**
@@ -91,7 +127,7 @@ public class DatamuseQuery {
      */
     public String soundsSimilar(String word) {
         String s = word.replaceAll(" ", "+");
-        return getJSON("http://api.datamuse.com/words?sl=" + s);
+        return getJSON(baseUrl + "/words?sl=" + s);
     }
 
     /**
@@ -101,7 +137,7 @@ public class DatamuseQuery {
      */
     public String speltSimilar(String word) {
         String s = word.replaceAll(" ", "+");
-        return getJSON("http://api.datamuse.com/words?sp=" + s);
+        return getJSON(baseUrl + "/words?sp=" + s);
     }
 
     /**
@@ -112,7 +148,7 @@ public class DatamuseQuery {
      */
     public String prefixHintSuggestions(String word) {
         String s = word.replaceAll(" ", "+");
-        return getJSON("http://api.datamuse.com/sug?s=" + s);
+        return getJSON(baseUrl + "/sug?s=" + s);
     }
 
     /**
@@ -123,24 +159,37 @@ public class DatamuseQuery {
     private String getJSON(String urlStr) {
         String json = null;
         try {
-            URL url = new URL(urlStr);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setDoOutput(true);
-            connection.setInstanceFollowRedirects(false);
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("charset", "utf-8");
-            connection.connect();
-            InputStream inStream = connection.getInputStream();
+            InputStream inStream = open(urlStr).getInputStream();
             json = streamToString(inStream); // input stream to string
+            inStream.close();
         } catch (IOException ex) {
             //ex.printStackTrace();
         }
         return json;
     }
 
-    private String streamToString(InputStream inStream) {
-        String text = new Scanner(inStream, "UTF-8").useDelimiter("\\Z").next();
-        return text;
+    private HttpURLConnection open(String urlStr) throws IOException {
+        URL url = new URL(urlStr);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setDoOutput(true);
+        connection.setInstanceFollowRedirects(false);
+        connection.setRequestMethod("GET");
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setRequestProperty("charset", "utf-8");
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.connect();
+        return connection;
+    }
+
+    private String streamToString(InputStream inStream) throws IOException {
+        Reader reader = new InputStreamReader(inStream, StandardCharsets.UTF_8);
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[4096];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            text.append(buffer, 0, read);
+        }
+        return text.toString();
     }
 }
@@ -7,19 +7,25 @@
 
 package Model.HandleSearch.datamuse;
 
-import com.json.parsers.JSONParser;
-import com.json.parsers.JsonParserFactory;
+import javafx.util.Pair;
 
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * A JSON parser for the data returned from Datamuse.
+ * the data is read a char at a time from the start, only the "word" and "score" fields of the objects of the
+ * array are kept and the rest is skipped, and the reading stops after the wanted number of words.
  *
  * @author sjblair
  * @since 21/02/15
  */
 public class JSONParse {
+    private Reader in;
+    private int peeked = -2; //-2 - nothing was peeked
 
     public JSONParse() {
 
@@ -31,15 +37,12 @@ public class JSONParse {
      * @return An array of the words.
      */
     public String[] parseWords(String in) {
-        JsonParserFactory factory=JsonParserFactory.getInstance();
-        JSONParser parser=factory.newJsonParser();
-        Map jsonData=parser.parseJson(in);
-        List al= (List) jsonData.get("root");
-        String[] results = new String[al.size()];
-        for (int i = 0; i < al.size(); i++) {
-            results[i] = (String) ((Map)al.get(i)).get("word");
+        try {
+            return parse(new StringReader(in), Integer.MAX_VALUE).getKey();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new String[0];
         }
-        return results;
     }
 
     /**
@@ -48,14 +51,184 @@ public class JSONParse {
      * @return An array of the scores.
      */
     public int[] parseScores(String in) {
-        JsonParserFactory factory=JsonParserFactory.getInstance();
-        JSONParser parser=factory.newJsonParser();
-        Map jsonData=parser.parseJson(in);
-        List al= (List) jsonData.get("root");
-        int[] results = new int[al.size()];
-        for (int i = 0; i < al.size(); i++) {
-            results[i] = Integer.parseInt((String) ((Map) al.get(i)).get("score"));
+        try {
+            return parse(new StringReader(in), Integer.MAX_VALUE).getValue();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new int[0];
         }
-        return results;
     }
-}
\ No newline at end of file
+
+    /**
+     * reads the array of the data up to the max word
+     *
+     * @param in JSON data, better buffered
+     * @param max number of words to read
+     * @return the words and their scores (0 for a word without a score), in the order of the data
+     */
+    public Pair<String[], int[]> parse(Reader in, int max) throws IOException {
+        this.in = in;
+        this.peeked = -2;
+        ArrayList<String> words = new ArrayList<>();
+        int[] scores = new int[16];
+        if (skipSpaces() != '[')
+            return new Pair<>(new String[0], new int[0]);
+        read();
+        while (words.size() < max) {
+            int c = skipSpaces();
+            if (c == ']' || c == -1)
+                break;
+            if (c == ',') {
+                read();
+            } else if (c == '{') {
+                read();
+                String word = null;
+                int score = 0;
+                while (true) { //the fields of the object
+                    c = skipSpaces();
+                    if (c == '}' || c == -1) {
+                        read();
+                        break;
+                    }
+                    if (c != '"') { //a ',' between fields
+                        read();
+                        continue;
+                    }
+                    String key = readString();
+                    if (skipSpaces() == ':')
+                        read();
+                    c = skipSpaces();
+                    if (key.equals("word") && c == '"')
+                        word = readString();
+                    else if (key.equals("score") && (c == '-' || (c >= '0' && c <= '9')))
+                        score = readNumber();
+                    else
+                        skipValue();
+                }
+                if (word != null) {
+                    if (words.size() == scores.length)
+                        scores = Arrays.copyOf(scores, scores.length * 2);
+                    scores[words.size()] = score;
+                    words.add(word);
+                }
+            } else {
+                skipValue();
+            }
+        }
+        return new Pair<>(words.toArray(new String[0]), Arrays.copyOf(scores, words.size()));
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2)
+            peeked = in.read();
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        peeked = -2;
+        return c;
+    }
+
+    /**
+     * @return the next char that isn't a white space (not read)
+     */
+    private int skipSpaces() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            read();
+            c = peek();
+        }
+        return c;
+    }
+
+    /**
+     * reads a string from its opening quote
+     */
+    private String readString() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        read();
+        int c;
+        while ((c = read()) != '"' && c != -1) {
+            if (c != '\\') {
+                builder.append((char) c);
+                continue;
+            }
+            c = read();
+            switch (c) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        code = code * 16 + Character.digit(read(), 16);
+                    }
+                    builder.append((char) code);
+                    break;
+                case -1:
+                    break;
+                default: //'"', '\\', '/'
+                    builder.append((char) c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private int readNumber() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int c = peek();
+        while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+            builder.append((char) read());
+            c = peek();
+        }
+        try {
+            return (int) Double.parseDouble(builder.toString());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * skips a value of a field that isn't needed: a string, a number, a literal, an array or an object
+     */
+    private void skipValue() throws IOException {
+        int c = peek();
+        if (c == '"') {
+            readString();
+            return;
+        }
+        if (c == '[' || c == '{') {
+            int depth = 0;
+            do {
+                c = peek();
+                if (c == '"') {
+                    readString();
+                    continue;
+                }
+                read();
+                if (c == '[' || c == '{')
+                    depth++;
+                else if (c == ']' || c == '}')
+                    depth--;
+            } while (depth > 0 && c != -1);
+            return;
+        }
+        while (c != ',' && c != '}' && c != ']' && c != -1) { //a number, true, false or null
+            read();
+            c = peek();
+        }
+    }
+}
@@ -10,6 +10,11 @@ public class CountAndPointerDicValue {
         this.totalCount=0;
     }
 
+    public CountAndPointerDicValue(int totalCount, PostingFilePointer pointer) {
+        this.pointer = pointer;
+        this.totalCount = totalCount;
+    }
+
     /**
      * increases counter by given value
      * @param toAdd
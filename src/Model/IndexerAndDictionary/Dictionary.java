@@ -10,17 +10,29 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * this class represent the dictionary of the search engine
- * contains Concurrent Hash Map of Terms, counter for each term, pointer for it's posting file
+ * contains Concurrent Hash Map of Terms, counter for each term, pointer for it's posting file.
+ * once the indexing is done (or when loaded from file) the dictionary is frozen - the table is replaced by a
+ * sorted term dictionary that takes a fraction of the memory and answers the same lookups
  */
 public class Dictionary {
 
     public ConcurrentHashMap<Term, CountAndPointerDicValue> dictionaryTable;
+    private SortedTermDictionary sortedTerms; //not null when frozen
     private static Mutex mutex = new Mutex();
 
     public Dictionary() {
         dictionaryTable = new ConcurrentHashMap<>();
     }
 
+    /**
+     * frozen dictionary of the given sorted terms
+     * @param sortedTerms
+     */
+    public Dictionary(SortedTermDictionary sortedTerms) {
+        dictionaryTable = new ConcurrentHashMap<>();
+        this.sortedTerms = sortedTerms;
+    }
+
     /**
      * @param term
      * @return if the term is inside the dictionary
@@ -28,9 +40,48 @@ public class Dictionary {
     public boolean contains(Term term) {
         if (term==null)
             return false;
+        if (sortedTerms != null)
+            return sortedTerms.find(term.getData()) >= 0;
         return dictionaryTable.containsKey(term);
     }
 
+    /**
+     * replaces the table by the sorted term dictionary (sorts the terms once), no terms can be added or removed after
+     * (the mutators throw IllegalStateException)
+     */
+    public void freeze() {
+        if (sortedTerms != null)
+            return;
+        sortedTerms = SortedTermDictionary.fromTable(dictionaryTable);
+        dictionaryTable = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @throws IllegalStateException if the dictionary is frozen, its terms can't be changed
+     */
+    private void checkNotFrozen() {
+        if (sortedTerms != null)
+            throw new IllegalStateException("the dictionary is frozen, its terms can't be changed");
+    }
+
+    /**
+     * @return the terms sorted, from the frozen dictionary or sorted now from the table
+     */
+    public SortedTermDictionary getSortedTerms() {
+        if (sortedTerms != null)
+            return sortedTerms;
+        return SortedTermDictionary.fromTable(dictionaryTable);
+    }
+
+    /**
+     * @return number of terms in the dictionary
+     */
+    public int size() {
+        if (sortedTerms != null)
+            return sortedTerms.size();
+        return dictionaryTable.size();
+    }
+
     public static void deleteMutex()
     {
         mutex= null;
@@ -53,6 +104,7 @@ public class Dictionary {
      * @param currentPairCounter
      */
     public void add(Term currentTerm, int currentPairCounter) {
+        checkNotFrozen();
         if (!dictionaryTable.containsKey(currentTerm)) {
             this.add(currentTerm);
             CountAndPointerDicValue dicValue = dictionaryTable.get(currentTerm);
@@ -84,6 +136,7 @@ public class Dictionary {
      * @param countAndPointerDicValue
      */
     public void add(Term currentTerm, CountAndPointerDicValue countAndPointerDicValue){
+        checkNotFrozen();
         this.dictionaryTable.put(currentTerm, countAndPointerDicValue);
     }
 
@@ -94,6 +147,7 @@ public class Dictionary {
      */
     public void remove(Term term)
     {
+        checkNotFrozen();
         if(dictionaryTable.containsKey(term))
             dictionaryTable.remove(term);
     }
@@ -103,6 +157,7 @@ public class Dictionary {
      * @param outPath
      */
     public void initializePointers(String outPath, Boolean toStem) {
+        checkNotFrozen();
         for (Map.Entry<Term, CountAndPointerDicValue> entry : dictionaryTable.entrySet()) {
             PostingFilePointer pointer = entry.getValue().pointer;
             Term term = entry.getKey();
@@ -114,6 +169,7 @@ public class Dictionary {
      * this method deletes every entity term that appeared only in one doc
      */
     public HashSet<String> deleteNotEntities() {
+        checkNotFrozen();
         HashSet<String> deletesEntities = new HashSet<>();
         for (Map.Entry<Term, CountAndPointerDicValue> entry : dictionaryTable.entrySet()) {
             Term term = entry.getKey();
@@ -140,25 +196,36 @@ public class Dictionary {
      */
     public CountAndPointerDicValue get(Term t)
     {
+        if (sortedTerms != null) {
+            int ordinal = sortedTerms.find(t.getData());
+            if (ordinal < 0)
+                return null;
+            return sortedTerms.getValue(ordinal);
+        }
         CountAndPointerDicValue countAndPointerDicValue = dictionaryTable.get(t);
         return countAndPointerDicValue;
     }
 
 
+    /**
+     * @param t - Term
+     * @return the place of the term in the sorted terms of the frozen dictionary (its id), -1 if it isn't in the
+     * dictionary or the dictionary isn't frozen
+     */
+    public int ordinal(Term t)
+    {
+        if (sortedTerms == null || t == null)
+            return -1;
+        return sortedTerms.find(t.getData());
+    }
+
+
     public ArrayList<Term> sortedKeys(){
-        ArrayList<Term> sortedKeys = new ArrayList<>();
-        for (Map.Entry<Term, CountAndPointerDicValue> entry : dictionaryTable.entrySet()) {
-            sortedKeys.add(entry.getKey());
+        SortedTermDictionary sorted = getSortedTerms();
+        ArrayList<Term> sortedKeys = new ArrayList<>(sorted.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            sortedKeys.add(sorted.getTerm(i));
         }
-        Collections.sort(sortedKeys, new Comparator() {
-            @Override
-            public int compare(Object o1, Object o2) {
-                Term s1 = (Term) o1;
-                Term s2 = (Term) o2;
-                return s1.getData().compareTo(s2.getData());
-            }
-        });
-
         return sortedKeys;
     }
 
@@ -168,15 +235,15 @@ public class Dictionary {
      */
     public String getTermCountStr() {
         StringBuilder output = new StringBuilder();
-        ArrayList<Term> sortedKeys = sortedKeys();
-        for (Term key : sortedKeys)
+        SortedTermDictionary sorted = getSortedTerms();
+        ArrayList<String> terms = sorted.terms(0, sorted.size());
+        for (int i = 0; i < terms.size(); i++)
         {
-            output.append(key.getData());
+            output.append(terms.get(i));
             output.append(" : ");
-            output.append(key.getType());
+            output.append(sorted.getType(i));
             output.append(": counter = ");
-            CountAndPointerDicValue countAndPointerDicValue = dictionaryTable.get(key);
-            output.append(countAndPointerDicValue.totalCount);
+            output.append(sorted.getCount(i));
             output.append("\n");
         }
         return output.toString();
@@ -0,0 +1,88 @@
+package Model.IndexerAndDictionary;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Entity candidates of one worker.
+ * an entity that this worker saw in only one doc is kept here instead of being written to the worker posting
+ * files - most of them never show up in another doc and deleteNotEntities drops them anyway.
+ * when the same entity shows up in another doc of the worker its postings are written before the new ones,
+ * and after all the workers are done the candidates that turned out to be entities are written to one more
+ * worker file, so the merge never reads the singletons.
+ */
+public class EntityCandidates {
+    private HashMap<String, String> deferred; //entity data -> postings "(docNo;tf)" of the only doc it was seen in
+    private HashSet<String> written; //entities this worker already wrote to its posting files
+    private String path;
+
+    /**
+     * @param path path of the file for the candidates that are written at the end
+     */
+    public EntityCandidates(String path) {
+        this.deferred = new HashMap<>();
+        this.written = new HashSet<>();
+        this.path = path;
+    }
+
+    /**
+     * decides if the posting line of an entity is written now or deferred
+     *
+     * @param data entity data
+     * @param line posting line of the entity in the current indexed batch ("data(docNo;tf)(docNo;tf)...")
+     * @return the line to write (the deferred postings of the entity first, if there were any), null if deferred
+     */
+    public String resolve(String data, String line) {
+        if (written.contains(data))
+            return line;
+        String postings = deferred.remove(data);
+        if (postings != null) {
+            written.add(data);
+            return data + postings + line.substring(data.length()); //the deferred doc came first
+        }
+        int first = line.indexOf('(', data.length());
+        if (line.indexOf('(', first + 1) >= 0) { //more than one doc in this batch
+            written.add(data);
+            return line;
+        }
+        deferred.put(data, line.substring(data.length()));
+        return null;
+    }
+
+    /**
+     * writes the deferred candidates that are entities after all (seen in other docs by other workers),
+     * the rest are dropped. call after the dictionary deleted its not entities
+     *
+     * @param deletedTerms data of the entities that appeared in one doc only
+     */
+    public void writeDeferred(HashSet<String> deletedTerms) {
+        ArrayList<String> entities = new ArrayList<>();
+        for (String data : deferred.keySet()) {
+            if (!deletedTerms.contains(data))
+                entities.add(data);
+        }
+        HashMap<String, String> postings = deferred;
+        deferred = new HashMap<>();
+        written = new HashSet<>();
+        if (entities.size() == 0)
+            return;
+        Collections.sort(entities); //the merge expects the lines sorted by term
+        try {
+            BufferedWriter writer = new BufferedWriter(new FileWriter(new File(path)));
+            for (String data : entities) {
+                writer.write(data);
+                writer.write(postings.get(data));
+                writer.newLine();
+            }
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package Model.IndexerAndDictionary;
 
+import Model.HandleSearch.Ranker;
+import Model.OuputFiles.PostingFile.ImpactPostings;
 import Model.TermsAndDocs.Terms.Term;
 import Model.TermsAndDocs.Terms.TermBuilder;
 
@@ -13,6 +15,8 @@ import java.util.regex.Pattern;
 @SuppressWarnings("DuplicatedCode")
 public class HandleMerge {
     private boolean toStem;
+    private boolean positional;
+    private ArrayList<String> docsPath; //docs files of the index, null if the impact ordered files aren't written
     private String outPath;
     private HashSet<String> deletedTerms;
     private Dictionary dictionary;
@@ -29,41 +33,191 @@ public class HandleMerge {
     private static String _NumericTerm_0T4 = "NumericTerm_0-4";
     private static String _NumericTerm_5T9 = "NumericTerm_5-9";
     private static Pattern countDF = Pattern.compile("[\\(]");
+    static final int minSkipDf = 32; //lines with fewer postings are written without skips
+    private static Pattern splitByDotCom = Pattern.compile("[\\;]");
 
-    public HandleMerge(HashSet<String> deletedTerms, Dictionary dictionary, String outPath, boolean toStem) {
+    /**
+     * @param deletedTerms
+     * @param dictionary
+     * @param outPath
+     * @param toStem
+     * @param positional true if the workers wrote positions files too
+     * @param docsPath docs files of the index, to write impact ordered files of the postings by their sizes.
+     *                 null to not write them
+     */
+    public HandleMerge(HashSet<String> deletedTerms, Dictionary dictionary, String outPath, boolean toStem, boolean positional,
+                       ArrayList<String> docsPath) {
         this.deletedTerms = deletedTerms;
         this.dictionary = dictionary;
         this.outPath = outPath;
         this.toStem = toStem;
+        this.positional = positional;
+        this.docsPath = docsPath;
 
     }
 
     public void merge() {
         long start = System.currentTimeMillis();
         dictionary.initializePointers(outPath, toStem);
-        mergePostingFiles(outPath, toStem);
+        String finalOutPath;
+        String stemRelatedFolder;
+        if(toStem)
+            stemRelatedFolder = "stemOur";
+        else
+            stemRelatedFolder = "noStemOur";
+        finalOutPath = outPath + "\\" + stemRelatedFolder;
+        mergePostingFiles(stemRelatedFolder + "\\workersFiles", finalOutPath, true);
+        if (positional)
+            mergePostingFiles(stemRelatedFolder + "\\workersPositions", finalOutPath + "Positions", false);
+        else
+            deleteFinalFiles(finalOutPath + "Positions"); //positions of an older index don't fit this one
+        if (docsPath != null)
+            writeImpactFiles(finalOutPath);
+        else
+            deleteFinalFiles(finalOutPath + "Impacts");
+        deleteFinalFiles(finalOutPath + "Pruned"); //the pruned files of an older index, IndexPruner writes them again
         long end = System.currentTimeMillis();
         System.out.println("time to merge: " + (end - start));
     }
 
+    /**
+     * deletes the final positions or impacts files if there are any
+     * @param finalOutPath start of the final files path
+     */
+    private void deleteFinalFiles(String finalOutPath) {
+        for (String fileName : fileNames()) {
+            File finalFile = new File(finalOutPath + "_" + fileName);
+            if (finalFile.exists())
+                finalFile.delete();
+        }
+    }
+
+    /**
+     * @return names of the final posting files (the end of their paths)
+     */
+    public static String[] fileNames() {
+        return new String[]{_NumNumTerm, _ExpressionTerm, _MeasurementTerm, _NumericTerm_0T4, _NumericTerm_5T9, _PercentageTerm,
+                _PriceTerm, _WordTerm_aTe, _WordTerm_fTj, _WordTerm_kTo, _WordTerm_pTt, _WordTerm_uTz};
+    }
+
+    /**
+     * writes an impact ordered file for every final posting file: the postings of every term are grouped by the BM25
+     * of the term in the doc, quantized to 8 bits, biggest first (see ImpactPostings).
+     * the BM25 is the plain one of the first stage of the ranking, by the sizes of the docs in the docs files.
+     * @param finalOutPath start of the final files path
+     */
+    private void writeImpactFiles(String finalOutPath) {
+        HashMap<String, Float> relativeLengths = readRelativeLengths(docsPath);
+        Ranker ranker = new Ranker(false, toStem);
+        double maxScore = ranker.getMaxPlainBM25();
+        for (String fileName : fileNames()) {
+            try {
+                BufferedReader reader = new BufferedReader(new FileReader(finalOutPath + "_" + fileName), 1 << 16);
+                BufferedWriter writer = new BufferedWriter(new FileWriter(finalOutPath + "Impacts_" + fileName), 1 << 16);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.indexOf('(') < 0)
+                        continue;
+                    writer.write(toImpactLine(line, relativeLengths, ranker, maxScore));
+                    writer.newLine();
+                }
+                reader.close();
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @param docsPath docs files of the index
+     * @return docNo -> size of the doc / average size of the docs
+     */
+    static HashMap<String, Float> readRelativeLengths(ArrayList<String> docsPath) {
+        HashMap<String, Float> relativeLengths = new HashMap<>();
+        long sumOfLengths = 0;
+        for (String docsFile : docsPath) {
+            try {
+                BufferedReader reader = new BufferedReader(new FileReader(docsFile), 1 << 16);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    //docNo;size;...
+                    String[] splitter = splitByDotCom.split(line, 3);
+                    if (splitter.length < 2)
+                        continue;
+                    int length = Integer.parseInt(splitter[1]);
+                    relativeLengths.put(splitter[0], (float) length);
+                    sumOfLengths += length;
+                }
+                reader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        float avgLength = relativeLengths.size() == 0 || sumOfLengths == 0 ? 1 : (float) ((double) sumOfLengths / relativeLengths.size());
+        for (Map.Entry<String, Float> entry : relativeLengths.entrySet()) {
+            entry.setValue(entry.getValue() / avgLength);
+        }
+        return relativeLengths;
+    }
+
+    /**
+     * @param line "term(docNo;tf)(docNo;tf)...,sk{..},df{..}"
+     * @param relativeLengths
+     * @param ranker
+     * @param maxScore
+     * @return "term{impact}docNo;tf,docNo;tf...{impact}docNo;tf...,df{..}" biggest impact first
+     */
+    public static String toImpactLine(String line, HashMap<String, Float> relativeLengths, Ranker ranker, double maxScore) {
+        int cut = line.indexOf('(');
+        //the tf of every doc (a doc can be written twice, for its lower and upper case words)
+        LinkedHashMap<String, Integer> tfs = new LinkedHashMap<>();
+        int df = 0;
+        int open = cut;
+        while (open >= 0) {
+            int semicolon = line.indexOf(';', open);
+            int close = line.indexOf(')', semicolon);
+            String docNo = line.substring(open + 1, semicolon);
+            int tf = Integer.parseInt(line.substring(semicolon + 1, close));
+            Integer previous = tfs.get(docNo);
+            tfs.put(docNo, previous == null ? tf : previous + tf);
+            df++;
+            open = line.indexOf('(', close);
+        }
+        double idf = ranker.getIdf(df);
+        StringBuilder[] segments = new StringBuilder[ImpactPostings.maxImpact + 1];
+        for (Map.Entry<String, Integer> entry : tfs.entrySet()) {
+            Float relativeLength = relativeLengths.get(entry.getKey());
+            double score = ranker.getPlainBM25(entry.getValue(), idf, relativeLength == null ? 1 : relativeLength);
+            int impact = ImpactPostings.quantize(score, maxScore);
+            if (segments[impact] == null)
+                segments[impact] = new StringBuilder();
+            else
+                segments[impact].append(',');
+            segments[impact].append(entry.getKey()).append(';').append(entry.getValue());
+        }
+        StringBuilder impactLine = new StringBuilder(line.substring(0, cut));
+        for (int impact = ImpactPostings.maxImpact; impact > 0; impact--) {
+            if (segments[impact] == null)
+                continue;
+            impactLine.append('{').append(impact).append('}');
+            impactLine.append(segments[impact]);
+        }
+        impactLine.append(",df{").append(df).append('}');
+        return impactLine.toString();
+    }
+
     /**
      * this method merges all the workers temp posting files to the final correct posting file
+     * @param workersDirPath folder of the workers temp files
+     * @param finalOutPath start of the final files path
+     * @param withDf true to add the df of the term to its line (posting files), false for positions files
      */
-    private void mergePostingFiles(String outPath, boolean toStem) {
+    private void mergePostingFiles(String workersDirPath, String finalOutPath, boolean withDf) {
         try {
             //creates and preparing post files
-            String finalOutPath;
-            if(toStem)
-                finalOutPath = outPath + "\\stemOur";
-            else
-                finalOutPath = outPath + "\\noStemOur";
             HashMap<String, BufferedWriter > buffWriters = initFinalPostFiles(finalOutPath);
-            String workersDirPath;
             //preparing to read from all the posting files
-            if (toStem)
-                workersDirPath = "stemOur\\workersFiles";
-            else
-                workersDirPath = "noStemOur\\workersFiles";
             File workerDir = new File(workersDirPath);
             LinkedList<File> postingFiles = new LinkedList<>();
             File[] workerPostings = workerDir.listFiles();
@@ -82,7 +236,7 @@ public class HandleMerge {
             //init list of smallest terms in each doc
             initSmallest(currentSmallests, buffers);
 
-            writeToPostings(buffWriters, currentSmallests, buffers, finalOutPath);
+            writeToPostings(buffWriters, currentSmallests, buffers, finalOutPath, withDf);
 
         } catch (IOException e1) {
             e1.printStackTrace();
@@ -156,7 +310,54 @@ public class HandleMerge {
         }
     }
 
-    private void writeToPostings(HashMap<String, BufferedWriter> buffWriters, String[] currentSmallests, BufferedReader[] buffers, String finalOutPath) {
+    /**
+     * @param sCount the line split by '(' - the term and then "docNo;tf)" of every posting
+     * @return the line with the postings sorted by docNo
+     */
+    private StringBuilder sortPostings(String[] sCount) {
+        ArrayList<String> postings = new ArrayList<>(Arrays.asList(sCount).subList(1, sCount.length));
+        Collections.sort(postings, new Comparator<String>() {
+            @Override
+            public int compare(String o1, String o2) {
+                return o1.substring(0, o1.indexOf(';')).compareTo(o2.substring(0, o2.indexOf(';')));
+            }
+        });
+        StringBuilder line = new StringBuilder(sCount[0]);
+        for (String posting : postings) {
+            line.append('(');
+            line.append(posting);
+        }
+        return line;
+    }
+
+    /**
+     * appends the skips of a sorted line: the index of the first posting of every block of postings,
+     * as gaps from the previous skip (blocks of about the square root of the df)
+     * @param line
+     * @param df
+     */
+    static void appendSkips(StringBuilder line, int df) {
+        int blockSize = Math.max(minSkipDf / 2, (int) Math.sqrt(df));
+        line.append(",sk{");
+        int posting = 0;
+        int previous = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) != '(')
+                continue;
+            if (posting % blockSize == 0) {
+                if (posting > 0)
+                    line.append(',');
+                line.append(i - previous);
+                previous = i;
+            }
+            posting++;
+            if (posting == df)
+                break;
+        }
+        line.append('}');
+    }
+
+    private void writeToPostings(HashMap<String, BufferedWriter> buffWriters, String[] currentSmallests, BufferedReader[] buffers, String finalOutPath, boolean withDf) {
         try {
             TermBuilder termBuilder = new TermBuilder();
             String currentLine;
@@ -210,10 +411,16 @@ public class HandleMerge {
                         fileWrite.append(appender);
 
                         //countDF
-                        String [] sCount = countDF.split(fileWrite);
-                        fileWrite.append(",df{");
-                        fileWrite.append(sCount.length - 1);
-                        fileWrite.append("}");
+                        if (withDf) {
+                            String[] sCount = countDF.split(fileWrite);
+                            if (sCount.length - 1 >= minSkipDf) {
+                                fileWrite = sortPostings(sCount);
+                                appendSkips(fileWrite, sCount.length - 1);
+                            }
+                            fileWrite.append(",df{");
+                            fileWrite.append(sCount.length - 1);
+                            fileWrite.append("}");
+                        }
                         fileWrite.append("\n");
                         String writeNow = fileWrite.toString();
 
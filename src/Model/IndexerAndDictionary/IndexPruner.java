@@ -0,0 +1,153 @@
+package Model.IndexerAndDictionary;
+
+import Model.HandleSearch.Ranker;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Static pruning of the final posting files, after HandleMerge: the postings whose BM25 (the plain BM25 of the first
+ * stage of the ranking) is too small to get their doc into the results are dropped, and the rest are written to
+ * smaller posting files next to the full ones - the searcher reads them instead when running with -DprunedIndex=true.
+ * a posting is kept if it is one of the best 50 of its term, or if its score is at least the global threshold and at
+ * least epsilon times the score of the 50th best posting of its term.
+ * the lines keep the df of the full lines, so the idf of the terms doesn't change, and the full posting files are
+ * kept for the queries that the pruned lines can't answer (see Searcher).
+ */
+public class IndexPruner {
+    private static final int keptPerTerm = 50;
+    private String finalOutPath;
+    private boolean toStem;
+    private ArrayList<String> docsPath;
+    private double threshold;
+    private double epsilon;
+    private long fullPostings;
+    private long keptPostings;
+    private long fullBytes;
+    private long prunedBytes;
+
+    /**
+     * @param outPath
+     * @param toStem
+     * @param docsPath docs files of the index, for the sizes of the docs
+     * @param threshold global threshold, 0 for none
+     * @param epsilon part of the score of the 50th best posting of a term, 0 for none
+     */
+    public IndexPruner(String outPath, boolean toStem, ArrayList<String> docsPath, double threshold, double epsilon) {
+        this.finalOutPath = outPath + "\\" + (toStem ? "stemOur" : "noStemOur");
+        this.toStem = toStem;
+        this.docsPath = docsPath;
+        this.threshold = threshold;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * writes a pruned file for every final posting file
+     */
+    public void prune() {
+        HashMap<String, Float> relativeLengths = HandleMerge.readRelativeLengths(docsPath);
+        Ranker ranker = new Ranker(false, toStem);
+        fullPostings = keptPostings = fullBytes = prunedBytes = 0;
+        for (String fileName : HandleMerge.fileNames()) {
+            File fullFile = new File(finalOutPath + "_" + fileName);
+            File prunedFile = new File(finalOutPath + "Pruned_" + fileName);
+            if (!fullFile.exists())
+                continue;
+            try {
+                BufferedReader reader = new BufferedReader(new FileReader(fullFile), 1 << 16);
+                BufferedWriter writer = new BufferedWriter(new FileWriter(prunedFile), 1 << 16);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.indexOf('(') < 0)
+                        continue;
+                    writer.write(pruneLine(line, relativeLengths, ranker));
+                    writer.newLine();
+                }
+                reader.close();
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            fullBytes += fullFile.length();
+            prunedBytes += prunedFile.length();
+        }
+    }
+
+    /**
+     * @param line "term(docNo;tf)(docNo;tf)...,sk{..},df{..}"
+     * @return the line with the kept postings, with new skips and the df of the full line
+     */
+    private String pruneLine(String line, HashMap<String, Float> relativeLengths, Ranker ranker) {
+        int dfStart = line.lastIndexOf(",df{");
+        int df = Integer.parseInt(line.substring(dfStart + 4, line.length() - 1));
+        double idf = ranker.getIdf(df);
+        ArrayList<Integer> opens = new ArrayList<>();
+        int open = line.indexOf('(');
+        while (open >= 0) {
+            opens.add(open);
+            open = line.indexOf('(', open + 1);
+        }
+        fullPostings += opens.size();
+        if (opens.size() <= keptPerTerm) {
+            keptPostings += opens.size();
+            return line;
+        }
+        double[] scores = new double[opens.size()];
+        for (int i = 0; i < scores.length; i++) {
+            int semicolon = line.indexOf(';', opens.get(i));
+            int close = line.indexOf(')', semicolon);
+            int tf = Integer.parseInt(line.substring(semicolon + 1, close));
+            Float relativeLength = relativeLengths.get(line.substring(opens.get(i) + 1, semicolon));
+            scores[i] = ranker.getPlainBM25(tf, idf, relativeLength == null ? 1 : relativeLength);
+        }
+        double[] sorted = Arrays.copyOf(scores, scores.length);
+        Arrays.sort(sorted);
+        double lastKept = sorted[sorted.length - keptPerTerm];
+        double minScore = Math.min(lastKept, Math.max(threshold, epsilon * lastKept));
+
+        StringBuilder pruned = new StringBuilder(line.substring(0, opens.get(0)));
+        int kept = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] < minScore)
+                continue;
+            pruned.append(line, opens.get(i), line.indexOf(')', opens.get(i)) + 1);
+            kept++;
+        }
+        keptPostings += kept;
+        if (kept >= HandleMerge.minSkipDf)
+            HandleMerge.appendSkips(pruned, kept);
+        pruned.append(",df{").append(df).append('}');
+        return pruned.toString();
+    }
+
+    public long getFullPostings() {
+        return fullPostings;
+    }
+
+    public long getKeptPostings() {
+        return keptPostings;
+    }
+
+    public long getFullBytes() {
+        return fullBytes;
+    }
+
+    public long getPrunedBytes() {
+        return prunedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "postings kept " + keptPostings + " of " + fullPostings
+                + String.format(" (%.1f%%)", fullPostings == 0 ? 100 : 100.0 * keptPostings / fullPostings)
+                + ", bytes " + prunedBytes + " of " + fullBytes
+                + String.format(" (%.1f%%)", fullBytes == 0 ? 100 : 100.0 * prunedBytes / fullBytes);
+    }
+}
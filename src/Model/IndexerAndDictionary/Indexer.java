@@ -13,19 +13,34 @@ public class Indexer {
     public static Dictionary dictionary = new Dictionary();
     private ArrayList<HashMap<Term, TermDocPair>> pairsMapsList;
     private HashMap<Term, String> termDescriptionMap; //term, term description of current file
+    private HashMap<Term, String> termPositionsMap; //term, positions description of current file (positional index only)
     private TermBuilder termBuilder;
     private DocumentFileHandler documentFileHandler;
     private WorkerPostingFileHandler postFile;
+    private WorkerPostingFileHandler positionsFile;
+    private EntityCandidates entityCandidates;
     String documentDataFilePath;
 
 
-    public Indexer(ArrayList<HashMap<Term, TermDocPair>> pairsMapsList, String documentDataFilePath, String postFilePath) {
+    /**
+     * @param pairsMapsList
+     * @param documentDataFilePath
+     * @param postFilePath
+     * @param positionsFilePath path of the worker positions file, null if the index isn't positional
+     * @param entityCandidates
+     */
+    public Indexer(ArrayList<HashMap<Term, TermDocPair>> pairsMapsList, String documentDataFilePath, String postFilePath, String positionsFilePath, EntityCandidates entityCandidates) {
         this.pairsMapsList = pairsMapsList;
         termDescriptionMap = new HashMap<>();
+        if (positionsFilePath != null) {
+            termPositionsMap = new HashMap<>();
+            positionsFile = new WorkerPostingFileHandler(positionsFilePath);
+        }
         termBuilder = new TermBuilder();
         documentFileHandler = new DocumentFileHandler();
         this.documentDataFilePath = documentDataFilePath;
         postFile = new WorkerPostingFileHandler(postFilePath);
+        this.entityCandidates = entityCandidates;
     }
 
     /**
@@ -84,6 +99,13 @@ public class Indexer {
                     termDataEntry = addPairToDataString(currentPair, currentTerm.getData());
                     termDescriptionMap.put(currentTerm, termDataEntry); //add to files map
                 }
+                //handles the output positions file (entities are phrases themselves, no positions for them)
+                if (termPositionsMap != null && !(currentTerm instanceof EntityTerm)) {
+                    String positionsEntry = termPositionsMap.get(currentTerm);
+                    if (positionsEntry == null)
+                        positionsEntry = currentTerm.getData();
+                    termPositionsMap.put(currentTerm, addPositionsToDataString(currentPair, positionsEntry));
+                }
             }
             try {
                 documentFileHandler.writeDocumentDataToFile(this.documentDataFilePath, document.getDocNo(), numOfUniqueTerms, mostCommonTermCounter, mostCommmonTerm, documentDateTerm, document.getHeader(), docSize, docEntities);
@@ -94,9 +116,31 @@ public class Indexer {
         }
         ArrayList<String> sortedValues = new ArrayList<>();
         for (Map.Entry<Term, String> entry : termDescriptionMap.entrySet()) {
-            sortedValues.add(entry.getValue());
+            String line = entry.getValue();
+            if (entry.getKey() instanceof EntityTerm) { //entities seen in one doc of the worker so far are deferred
+                line = entityCandidates.resolve(entry.getKey().getData(), line);
+                if (line == null)
+                    continue;
+            }
+            sortedValues.add(line);
+        }
+        sortLines(sortedValues);
+        postFile.writeWorkerFile(sortedValues);
+
+        if (termPositionsMap != null) {
+            ArrayList<String> sortedPositions = new ArrayList<>(termPositionsMap.values());
+            termPositionsMap = new HashMap<>();
+            sortLines(sortedPositions);
+            positionsFile.writeWorkerFile(sortedPositions);
         }
-        Collections.sort(sortedValues, new Comparator() {
+    }
+
+    /**
+     * sorts worker file lines by their term, from the last to the first (the file is written from the end of the list)
+     * @param lines
+     */
+    private void sortLines(ArrayList<String> lines) {
+        Collections.sort(lines, new Comparator() {
             @Override
             public int compare(Object o1, Object o2) {
                 String s1 = (String) o1;
@@ -112,8 +156,6 @@ public class Indexer {
                 return s1.compareTo(s2);
             }
         });
-
-        postFile.writeWorkerFile(sortedValues);
     }
 
     /**
@@ -183,6 +225,30 @@ public class Indexer {
         return appender.toString();
     }
 
+    /**
+     * @param pair
+     * @param positionsEntry
+     * @return the positions line of the term with the positions of the pair doc, as gaps from the previous
+     * position: "(docNo;first,gap,gap...)"
+     */
+    private String addPositionsToDataString(TermDocPair pair, String positionsEntry) {
+        int[] positions = pair.getPositions();
+        StringBuilder appender = new StringBuilder();
+        appender.append(positionsEntry);
+        appender.append("(");
+        appender.append(pair.getDoc().getDocNo());
+        appender.append(";");
+        int previous = 0;
+        for (int i = 0; positions != null && i < positions.length; i++) {
+            if (i > 0)
+                appender.append(",");
+            appender.append(positions[i] - previous);
+            previous = positions[i];
+        }
+        appender.append(")");
+        return appender.toString();
+    }
+
     /**
      * set dictionary to null
      */
@@ -36,6 +36,16 @@ public class PostingFilePointer {
         this.fileStr = "";
     }
 
+    /**
+     * pointer with a known file name (no need to split the path)
+     * @param fileStr path of the posting file
+     * @param fileStrName name of the posting file
+     */
+    public PostingFilePointer(String fileStr, String fileStrName) {
+        this.fileStr = fileStr;
+        this.fileStrName = fileStrName;
+    }
+
     /**
      * this method finds the pointer string for term
      * @param term
@@ -107,6 +117,27 @@ public class PostingFilePointer {
         return fileStr;
     }
 
+    /**
+     * @return path of the positions file matching the posting file (written only for a positional index)
+     */
+    public String getPositionsFileStr() {
+        return fileStr.substring(0, fileStr.length() - fileStrName.length() - 1) + "Positions_" + fileStrName;
+    }
+
+    /**
+     * @return path of the impact ordered file matching the posting file (written only for an impact ordered index)
+     */
+    public String getImpactsFileStr() {
+        return fileStr.substring(0, fileStr.length() - fileStrName.length() - 1) + "Impacts_" + fileStrName;
+    }
+
+    /**
+     * @return path of the pruned posting file matching the posting file (written only by IndexPruner)
+     */
+    public String getPrunedFileStr() {
+        return fileStr.substring(0, fileStr.length() - fileStrName.length() - 1) + "Pruned_" + fileStrName;
+    }
+
 
     /**
      * getter for fileStrName
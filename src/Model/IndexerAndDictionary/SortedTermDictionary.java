@@ -0,0 +1,493 @@
+package Model.IndexerAndDictionary;
+
+import Model.TermsAndDocs.Terms.Term;
+import Model.TermsAndDocs.Terms.TermBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable sorted term dictionary.
+ * the terms are kept as UTF-8 bytes in front coded blocks - the first term of a block is written whole and every
+ * other term only as the length of the prefix it shares with the term before it plus the rest of its bytes.
+ * the offset of every block is the sparse index for the binary search, and type, posting file and count of
+ * every term are kept in arrays by the term's ordinal (its place in the sorted order).
+ * supports exact, prefix, suffix and range lookup and gives the terms in sorted order without sorting.
+ * suffix lookup uses the ordinals sorted by the reversed terms (saved with the dictionary, or sorted on first use).
+ * terms are ordered by their UTF-8 bytes (unsigned), which is the String order for every term without surrogate chars.
+ */
+public class SortedTermDictionary {
+    private static final int blockSize = 16;
+    private static TermBuilder termBuilder = new TermBuilder();
+
+    private int size;
+    private byte[] blocks; //front coded terms
+    private int[] blockOffsets; //offset of every block in blocks
+    private byte[] types;
+    private String[] typeNames;
+    private byte[] files;
+    private PostingFilePointer[] pointers; //one pointer per posting file, shared by its terms
+    private int[] counts;
+    private int[] suffixOrder; //ordinals sorted by the reversed term bytes, for suffix lookup (built on first use)
+
+    /**
+     * @param termBytes  UTF-8 bytes of all the terms one after the other
+     * @param offsets    start of every term in termBytes, offsets[n] is the end of the last term
+     * @param types      type code of every term
+     * @param typeNames  term type by type code
+     * @param files      posting file code of every term
+     * @param pointers   pointer by posting file code
+     * @param counts     count of every term
+     *                   the terms are expected sorted, if they aren't they are sorted here
+     */
+    public SortedTermDictionary(byte[] termBytes, int[] offsets, byte[] types, String[] typeNames, byte[] files,
+                                PostingFilePointer[] pointers, int[] counts) {
+        this.size = offsets.length - 1;
+        this.typeNames = typeNames;
+        this.pointers = pointers;
+        if (!isSorted(termBytes, offsets)) {
+            Integer[] order = sortedOrder(termBytes, offsets);
+            byte[] sortedBytes = new byte[termBytes.length];
+            int[] sortedOffsets = new int[size + 1];
+            byte[] sortedTypes = new byte[size];
+            byte[] sortedFiles = new byte[size];
+            int[] sortedCounts = new int[size];
+            for (int i = 0; i < size; i++) {
+                int from = order[i];
+                int length = offsets[from + 1] - offsets[from];
+                System.arraycopy(termBytes, offsets[from], sortedBytes, sortedOffsets[i], length);
+                sortedOffsets[i + 1] = sortedOffsets[i] + length;
+                sortedTypes[i] = types[from];
+                sortedFiles[i] = files[from];
+                sortedCounts[i] = counts[from];
+            }
+            termBytes = sortedBytes;
+            offsets = sortedOffsets;
+            types = sortedTypes;
+            files = sortedFiles;
+            counts = sortedCounts;
+        }
+        this.types = types;
+        this.files = files;
+        this.counts = counts;
+        frontCode(termBytes, offsets);
+    }
+
+    /**
+     * builds the sorted dictionary of a dictionary table (sorts the terms once)
+     *
+     * @param table
+     * @return sorted term dictionary with the same terms
+     */
+    public static SortedTermDictionary fromTable(ConcurrentHashMap<Term, CountAndPointerDicValue> table) {
+        ArrayList<byte[]> terms = new ArrayList<>(table.size());
+        ArrayList<String> typeNames = new ArrayList<>();
+        HashMap<String, Integer> typeCodes = new HashMap<>();
+        ArrayList<PostingFilePointer> pointers = new ArrayList<>();
+        HashMap<String, Integer> fileCodes = new HashMap<>();
+        byte[] types = new byte[table.size()];
+        byte[] files = new byte[table.size()];
+        int[] counts = new int[table.size()];
+        int n = 0;
+        int length = 0;
+        for (Map.Entry<Term, CountAndPointerDicValue> entry : table.entrySet()) {
+            if (n == types.length) //table grew while copying
+                break;
+            byte[] bytes = entry.getKey().getData().getBytes(StandardCharsets.UTF_8);
+            terms.add(bytes);
+            length += bytes.length;
+            String type = entry.getKey().getType();
+            Integer typeCode = typeCodes.get(type);
+            if (typeCode == null) {
+                typeCode = typeNames.size();
+                typeNames.add(type);
+                typeCodes.put(type, typeCode);
+            }
+            PostingFilePointer pointer = entry.getValue().getPointer();
+            String fileKey = pointer.getFileStr() + ";" + pointer.getFileStrName();
+            Integer fileCode = fileCodes.get(fileKey);
+            if (fileCode == null) {
+                fileCode = pointers.size();
+                pointers.add(pointer);
+                fileCodes.put(fileKey, fileCode);
+            }
+            types[n] = (byte) (int) typeCode;
+            files[n] = (byte) (int) fileCode;
+            counts[n] = entry.getValue().getTotalCount();
+            n++;
+        }
+        byte[] termBytes = new byte[length];
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            byte[] bytes = terms.get(i);
+            System.arraycopy(bytes, 0, termBytes, offsets[i], bytes.length);
+            offsets[i + 1] = offsets[i] + bytes.length;
+        }
+        return new SortedTermDictionary(termBytes, offsets, Arrays.copyOf(types, n), typeNames.toArray(new String[0]),
+                Arrays.copyOf(files, n), pointers.toArray(new PostingFilePointer[0]), Arrays.copyOf(counts, n));
+    }
+
+    /**
+     * @return number of terms
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param term term data
+     * @return ordinal of the term, -1 if not in the dictionary
+     */
+    public int find(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int ordinal = search(key, false);
+        if (ordinal < size && compare(termBytes(ordinal), key) == 0)
+            return ordinal;
+        return -1;
+    }
+
+    /**
+     * @param prefix
+     * @return ordinals [from, to) of the terms that start with prefix
+     */
+    public int[] prefixRange(String prefix) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        return new int[]{search(key, false), search(key, true)};
+    }
+
+    /**
+     * @param from first term of the range (included)
+     * @param to   end of the range (not included)
+     * @return ordinals [first, last) of the terms between from and to
+     */
+    public int[] range(String from, String to) {
+        int first = search(from.getBytes(StandardCharsets.UTF_8), false);
+        int last = search(to.getBytes(StandardCharsets.UTF_8), false);
+        return new int[]{first, Math.max(first, last)};
+    }
+
+    /**
+     * @param suffix
+     * @return positions [from, to) in the suffix order of the terms that end with suffix
+     * (use {@link #suffixOrdinal(int)} to get the ordinal of a position)
+     */
+    public int[] suffixRange(String suffix) {
+        byte[] bytes = suffix.getBytes(StandardCharsets.UTF_8);
+        byte[] key = reverse(bytes, 0, bytes.length);
+        int[] order = getSuffixOrder();
+        return new int[]{searchSuffix(order, key, false), searchSuffix(order, key, true)};
+    }
+
+    /**
+     * @param position position in the suffix order
+     * @return ordinal of the term at that position
+     */
+    public int suffixOrdinal(int position) {
+        return getSuffixOrder()[position];
+    }
+
+    /**
+     * @return ordinals sorted by the reversed terms, sorted now if it wasn't given or sorted before
+     */
+    public synchronized int[] getSuffixOrder() {
+        if (suffixOrder == null) {
+            ArrayList<String> terms = terms(0, size);
+            byte[][] reversed = new byte[size][];
+            for (int i = 0; i < size; i++) {
+                byte[] bytes = terms.get(i).getBytes(StandardCharsets.UTF_8);
+                reversed[i] = reverse(bytes, 0, bytes.length);
+            }
+            suffixOrder = sortedOrder(reversed);
+        }
+        return suffixOrder;
+    }
+
+    /**
+     * @param suffixOrder ordinals sorted by the reversed terms (saved with the dictionary)
+     */
+    public synchronized void setSuffixOrder(int[] suffixOrder) {
+        if (suffixOrder != null && suffixOrder.length == size)
+            this.suffixOrder = suffixOrder;
+    }
+
+    /**
+     * @param ordinal
+     * @return data of the term
+     */
+    public String term(int ordinal) {
+        return new String(termBytes(ordinal), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param from first ordinal
+     * @param to   end ordinal (not included)
+     * @return data of the terms from the ordinal from to the ordinal to, in sorted order
+     */
+    public ArrayList<String> terms(int from, int to) {
+        ArrayList<String> output = new ArrayList<>(Math.max(to - from, 0));
+        if (from >= to)
+            return output;
+        byte[] current = new byte[64];
+        int[] position = new int[1];
+        for (int ordinal = (from / blockSize) * blockSize; ordinal < to; ordinal++) {
+            if (ordinal % blockSize == 0)
+                position[0] = blockOffsets[ordinal / blockSize];
+            int shared = ordinal % blockSize == 0 ? 0 : readVInt(position);
+            int suffix = readVInt(position);
+            int length = shared + suffix;
+            if (current.length < length)
+                current = Arrays.copyOf(current, Math.max(length, current.length * 2));
+            System.arraycopy(blocks, position[0], current, shared, suffix);
+            position[0] += suffix;
+            if (ordinal >= from)
+                output.add(new String(current, 0, length, StandardCharsets.UTF_8));
+        }
+        return output;
+    }
+
+    /**
+     * @param ordinal
+     * @return the term (with its type)
+     */
+    public Term getTerm(int ordinal) {
+        return termBuilder.buildTerm(typeNames[types[ordinal]], term(ordinal));
+    }
+
+    /**
+     * @param ordinal
+     * @return type of the term
+     */
+    public String getType(int ordinal) {
+        return typeNames[types[ordinal]];
+    }
+
+    /**
+     * @param ordinal
+     * @return count of the term
+     */
+    public int getCount(int ordinal) {
+        return counts[ordinal];
+    }
+
+    /**
+     * @param ordinal
+     * @return pointer to the posting file of the term
+     */
+    public PostingFilePointer getPointer(int ordinal) {
+        return pointers[files[ordinal]];
+    }
+
+    /**
+     * @param ordinal
+     * @return dictionary value (count and pointer) of the term
+     */
+    public CountAndPointerDicValue getValue(int ordinal) {
+        return new CountAndPointerDicValue(counts[ordinal], pointers[files[ordinal]]);
+    }
+
+    /**
+     * first ordinal whose term is >= key, or (if afterPrefix) whose term is after all the terms starting with key
+     */
+    private int search(byte[] key, boolean afterPrefix) {
+        int lo = 0;
+        int hi = blockOffsets.length; //first block whose first term passes
+        int[] position = new int[1];
+        while (lo < hi) {
+            int middle = (lo + hi) >>> 1;
+            position[0] = blockOffsets[middle];
+            int length = readVInt(position);
+            if (passes(blocks, position[0], length, key, afterPrefix))
+                hi = middle;
+            else
+                lo = middle + 1;
+        }
+        if (lo == 0)
+            return 0;
+        //the answer is in the block before, or it's the first term of block lo
+        int from = (lo - 1) * blockSize;
+        int to = Math.min(lo * blockSize, size);
+        byte[] current = new byte[64];
+        position[0] = blockOffsets[lo - 1];
+        for (int ordinal = from; ordinal < to; ordinal++) {
+            int shared = ordinal == from ? 0 : readVInt(position);
+            int suffix = readVInt(position);
+            if (current.length < shared + suffix)
+                current = Arrays.copyOf(current, Math.max(shared + suffix, current.length * 2));
+            System.arraycopy(blocks, position[0], current, shared, suffix);
+            position[0] += suffix;
+            if (passes(current, 0, shared + suffix, key, afterPrefix))
+                return ordinal;
+        }
+        return to;
+    }
+
+    /**
+     * same as search, on the reversed terms in the suffix order
+     */
+    private int searchSuffix(int[] order, byte[] key, boolean afterPrefix) {
+        int lo = 0;
+        int hi = order.length;
+        while (lo < hi) {
+            int middle = (lo + hi) >>> 1;
+            byte[] term = termBytes(order[middle]);
+            byte[] reversed = reverse(term, 0, term.length);
+            if (passes(reversed, 0, reversed.length, key, afterPrefix))
+                hi = middle;
+            else
+                lo = middle + 1;
+        }
+        return lo;
+    }
+
+    private static byte[] reverse(byte[] bytes, int from, int to) {
+        byte[] reversed = new byte[to - from];
+        for (int i = 0; i < reversed.length; i++) {
+            reversed[i] = bytes[to - 1 - i];
+        }
+        return reversed;
+    }
+
+    private static int[] sortedOrder(final byte[][] terms) {
+        Integer[] order = new Integer[terms.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return SortedTermDictionary.compare(terms[o1], terms[o2]);
+            }
+        });
+        int[] output = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            output[i] = order[i];
+        }
+        return output;
+    }
+
+    private static boolean passes(byte[] term, int from, int termLength, byte[] key, boolean afterPrefix) {
+        if (!afterPrefix)
+            return compare(term, from, from + termLength, key, 0, key.length) >= 0;
+        int length = Math.min(termLength, key.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (term[from + i] & 0xFF) - (key[i] & 0xFF);
+            if (difference != 0)
+                return difference > 0;
+        }
+        return false; //starts with the key or is a prefix of it
+    }
+
+    /**
+     * @param ordinal
+     * @return UTF-8 bytes of the term
+     */
+    private byte[] termBytes(int ordinal) {
+        int block = ordinal / blockSize;
+        int[] position = new int[]{blockOffsets[block]};
+        byte[] current = new byte[64];
+        int length = 0;
+        for (int i = block * blockSize; i <= ordinal; i++) {
+            int shared = i == block * blockSize ? 0 : readVInt(position);
+            int suffix = readVInt(position);
+            length = shared + suffix;
+            if (current.length < length)
+                current = Arrays.copyOf(current, Math.max(length, current.length * 2));
+            System.arraycopy(blocks, position[0], current, shared, suffix);
+            position[0] += suffix;
+        }
+        return Arrays.copyOf(current, length);
+    }
+
+    /**
+     * writes the sorted terms to the front coded blocks
+     */
+    private void frontCode(byte[] termBytes, int[] offsets) {
+        int numOfBlocks = (size + blockSize - 1) / blockSize;
+        blockOffsets = new int[numOfBlocks];
+        byte[] output = new byte[termBytes.length + 2 * size + 16];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            int start = offsets[i];
+            int termLength = offsets[i + 1] - start;
+            int shared = 0;
+            if (i % blockSize == 0)
+                blockOffsets[i / blockSize] = length;
+            else {
+                int previous = offsets[i - 1];
+                int previousLength = start - previous;
+                while (shared < termLength && shared < previousLength && termBytes[start + shared] == termBytes[previous + shared])
+                    shared++;
+            }
+            if (output.length < length + termLength + 10)
+                output = Arrays.copyOf(output, Math.max(length + termLength + 10, output.length * 2));
+            if (i % blockSize != 0)
+                length = writeVInt(output, length, shared);
+            length = writeVInt(output, length, termLength - shared);
+            System.arraycopy(termBytes, start + shared, output, length, termLength - shared);
+            length += termLength - shared;
+        }
+        blocks = Arrays.copyOf(output, length);
+    }
+
+    private static int writeVInt(byte[] output, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            output[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output[position++] = (byte) value;
+        return position;
+    }
+
+    private int readVInt(int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = blocks[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        return compare(a, 0, a.length, b, 0, b.length);
+    }
+
+    private static int compare(byte[] a, int aFrom, int aTo, byte[] b, int bFrom, int bTo) {
+        int length = Math.min(aTo - aFrom, bTo - bFrom);
+        for (int i = 0; i < length; i++) {
+            int difference = (a[aFrom + i] & 0xFF) - (b[bFrom + i] & 0xFF);
+            if (difference != 0)
+                return difference;
+        }
+        return (aTo - aFrom) - (bTo - bFrom);
+    }
+
+    private static boolean isSorted(byte[] termBytes, int[] offsets) {
+        for (int i = 1; i < offsets.length - 1; i++) {
+            if (compare(termBytes, offsets[i - 1], offsets[i], termBytes, offsets[i], offsets[i + 1]) >= 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static Integer[] sortedOrder(final byte[] termBytes, final int[] offsets) {
+        Integer[] order = new Integer[offsets.length - 1];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return SortedTermDictionary.compare(termBytes, offsets[o1], offsets[o1 + 1], termBytes, offsets[o2], offsets[o2 + 1]);
+            }
+        });
+        return order;
+    }
+}
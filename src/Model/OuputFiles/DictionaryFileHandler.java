@@ -3,23 +3,42 @@ package Model.OuputFiles;
 import Model.IndexerAndDictionary.CountAndPointerDicValue;
 import Model.IndexerAndDictionary.Dictionary;
 import Model.IndexerAndDictionary.PostingFilePointer;
+import Model.IndexerAndDictionary.SortedTermDictionary;
 import Model.TermsAndDocs.Terms.Term;
 import Model.TermsAndDocs.Terms.TermBuilder;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.regex.Pattern;
 
 /**
  * This class is responsible for writing the dictionary to a file
+ * the dictionary is written twice - the text file (sDic/nsDic) and a binary snapshot next to it (sDic.bin/nsDic.bin)
+ * that is loaded with one read and no regex. binary snapshot layout:
+ * magic, version, length of the text file it was written with, number of terms, posting file names, term type names,
+ * then per term arrays - type code (byte), posting file code (byte), count (int), offset of the term in the term bytes (int),
+ * then the UTF-8 bytes of all the terms, sorted, and at the end the ordinals sorted by the reversed terms (for suffix queries)
+ * a snapshot that doesn't match its text file (written by an older version, or the text file was written again) is
+ * written again from the text file when the dictionary is read
  */
 public class DictionaryFileHandler {
+    private static final int binaryMagic = 0x44494331; //"DIC1"
+    private static final int binaryVersion = 3; //2 - suffix order at the end, 3 - length of the text file
+    private static final String binarySuffix = ".bin";
 
     private Dictionary dictionary;
     private Pattern pattern;
@@ -45,26 +64,105 @@ public class DictionaryFileHandler {
                 FileChannel.open(Paths.get(dictionaryPath), StandardOpenOption.WRITE).truncate(0).close();
             }
             catch (Exception e) {}
-            ArrayList<Term> sortedKeys = dictionary.sortedKeys();
+            SortedTermDictionary sorted = dictionary.getSortedTerms();
+            ArrayList<String> terms = sorted.terms(0, sorted.size());
             FileWriter fw = new FileWriter(dictionaryPath, true);
             BufferedWriter bw = new BufferedWriter(fw);
-            for (Term key : sortedKeys) {
+            for (int i = 0; i < terms.size(); i++) {
                 StringBuilder lineToWrite = new StringBuilder();
-                lineToWrite.append(key.getData());//term
+                lineToWrite.append(terms.get(i));//term
                 lineToWrite.append(";");
-                lineToWrite.append(key.getType());//instance
+                lineToWrite.append(sorted.getType(i));//instance
                 lineToWrite.append(";");
-                CountAndPointerDicValue countAndPointerDicValue = dictionary.get(key);
-                lineToWrite.append(countAndPointerDicValue.toString());//count;fileStrPointer
+                lineToWrite.append(sorted.getCount(i));//count
+                lineToWrite.append(";");
+                lineToWrite.append(sorted.getPointer(i).getFileStrName());//fileStrPointer
                 lineToWrite.append("\n");
                 bw.write(lineToWrite.toString());
             }
             bw.close();
+            writeBinaryFile(dictionaryPath + binarySuffix, sorted, terms, new File(dictionaryPath).length());
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * writes the binary snapshot of the dictionary
+     * @param binaryPath
+     * @param sorted the dictionary terms, sorted
+     * @param terms data of the sorted terms
+     * @param textLength length of the text file of the dictionary
+     */
+    private void writeBinaryFile(String binaryPath, SortedTermDictionary sorted, ArrayList<String> terms, long textLength) {
+        int n = sorted.size();
+        ArrayList<String> fileNames = new ArrayList<>();
+        HashMap<String, Integer> fileCodes = new HashMap<>();
+        ArrayList<String> typeNames = new ArrayList<>();
+        HashMap<String, Integer> typeCodes = new HashMap<>();
+        byte[] types = new byte[n];
+        byte[] files = new byte[n];
+        int[] counts = new int[n];
+        int[] offsets = new int[n + 1];
+        byte[][] termBytes = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            types[i] = (byte) code(sorted.getType(i), typeNames, typeCodes);
+            files[i] = (byte) code(String.valueOf(sorted.getPointer(i).getFileStrName()), fileNames, fileCodes);
+            counts[i] = sorted.getCount(i);
+            termBytes[i] = terms.get(i).getBytes(StandardCharsets.UTF_8);
+            offsets[i + 1] = offsets[i] + termBytes[i].length;
+        }
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryPath), 1 << 16));
+            out.writeInt(binaryMagic);
+            out.writeInt(binaryVersion);
+            out.writeLong(textLength);
+            out.writeInt(n);
+            writeNames(out, fileNames);
+            writeNames(out, typeNames);
+            out.write(types);
+            out.write(files);
+            for (int count : counts) {
+                out.writeInt(count);
+            }
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            for (byte[] bytes : termBytes) {
+                out.write(bytes);
+            }
+            for (int ordinal : sorted.getSuffixOrder()) {
+                out.writeInt(ordinal);
+            }
+            out.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @param name
+     * @param names names by code
+     * @param codes code of every name in names
+     * @return code of the name, a new one if it's the first time
+     */
+    private int code(String name, ArrayList<String> names, HashMap<String, Integer> codes) {
+        Integer code = codes.get(name);
+        if (code == null) {
+            code = names.size();
+            names.add(name);
+            codes.put(name, code);
+        }
+        return code;
+    }
+
+    private void writeNames(DataOutputStream out, ArrayList<String> names) throws java.io.IOException {
+        out.writeInt(names.size());
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
     /**
      * This method writes dictionary to file so we can upload it later
      * @param dictionaryPath
@@ -81,6 +179,10 @@ public class DictionaryFileHandler {
             dictionaryPath = dictionaryPath + "\\nsDic";
             outPath += "\\noStemOur_";
         }
+        File textFile = new File(dictionaryPath);
+        if (new File(dictionaryPath + binarySuffix).exists()
+                && readBinaryFile(dictionaryPath + binarySuffix, outPath, textFile.exists() ? textFile.length() : -1))
+            return this.dictionary;
         try  {
             BufferedReader br = new BufferedReader(new FileReader(dictionaryPath));
             String line;
@@ -101,10 +203,76 @@ public class DictionaryFileHandler {
                 dicValue.setPointer(pointer);
                 dictionary.add(term, dicValue);
             }
+            br.close();
+            dictionary.freeze();
+            //the snapshot is missing or stale, the next read loads the new one
+            SortedTermDictionary sorted = dictionary.getSortedTerms();
+            writeBinaryFile(dictionaryPath + binarySuffix, sorted, sorted.terms(0, sorted.size()), textFile.length());
         } catch (Exception e) {
             //e.printStackTrace();
         }
         return this.dictionary;
     }
 
+    /**
+     * loads the binary snapshot of the dictionary - the whole file in one read, then straight to a frozen dictionary
+     * @param binaryPath
+     * @param outPath prefix of the posting files paths
+     * @param textLength length of the text file of the dictionary, -1 if there is none
+     * @return true if loaded, false if the file isn't a snapshot of the text file (the text file is read instead)
+     */
+    private boolean readBinaryFile(String binaryPath, String outPath, long textLength) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(Paths.get(binaryPath)));
+            if (buffer.getInt() != binaryMagic)
+                return false;
+            //older snapshots don't know their text file, they are written again
+            if (buffer.getInt() != binaryVersion)
+                return false;
+            long snapshotTextLength = buffer.getLong();
+            if (textLength >= 0 && snapshotTextLength != textLength)
+                return false;
+            int n = buffer.getInt();
+            String[] fileNames = readNames(buffer);
+            String[] typeNames = readNames(buffer);
+            byte[] types = new byte[n];
+            byte[] files = new byte[n];
+            int[] counts = new int[n];
+            int[] offsets = new int[n + 1];
+            buffer.get(types);
+            buffer.get(files);
+            buffer.asIntBuffer().get(counts);
+            buffer.position(buffer.position() + 4 * n);
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + 4 * (n + 1));
+            byte[] termBytes = new byte[offsets[n]];
+            buffer.get(termBytes);
+
+            //all the terms of a posting file share one pointer
+            PostingFilePointer[] pointers = new PostingFilePointer[fileNames.length];
+            for (int i = 0; i < fileNames.length; i++) {
+                pointers[i] = new PostingFilePointer(outPath + fileNames[i], fileNames[i]);
+            }
+            SortedTermDictionary sorted = new SortedTermDictionary(termBytes, offsets, types, typeNames, files, pointers, counts);
+            int[] suffixOrder = new int[n];
+            buffer.asIntBuffer().get(suffixOrder);
+            sorted.setSuffixOrder(suffixOrder);
+            this.dictionary = new Dictionary(sorted);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private String[] readNames(ByteBuffer buffer) {
+        String[] names = new String[buffer.getInt()];
+        for (int i = 0; i < names.length; i++) {
+            int length = buffer.getShort() & 0xFFFF;
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            names[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return names;
+    }
 }
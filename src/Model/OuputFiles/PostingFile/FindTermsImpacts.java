@@ -0,0 +1,54 @@
+package Model.OuputFiles.PostingFile;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * this class is responsible for finding the impact ordered lines of terms in given impacts file
+ */
+public class FindTermsImpacts {
+
+    public FindTermsImpacts() { }
+
+    /**
+     * @param path impacts file
+     * @param sortedTermsData terms data to find, sorted
+     * @return term data -> its line, see {@link ImpactPostings}
+     */
+    public HashMap<String, String> searchAllTermsInImpactsFile(String path, ArrayList<String> sortedTermsData) {
+        HashMap<String, String> termsLines = new HashMap<>();
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(path));
+            String line = reader.readLine();
+            int i = 0;
+            while (line != null && i < sortedTermsData.size()) {
+                int cut = line.indexOf('{');
+                if (cut < 0) {
+                    line = reader.readLine();
+                    continue;
+                }
+                String lineTerm = line.substring(0, cut);
+                int compare = lineTerm.compareTo(sortedTermsData.get(i));
+                if (compare < 0) {
+                    line = reader.readLine();
+                } else if (compare > 0) { //the term isn't in the file
+                    i++;
+                } else {
+                    termsLines.put(lineTerm, line);
+                    i++;
+                    line = reader.readLine();
+                }
+            }
+            reader.close();
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return termsLines;
+    }
+}
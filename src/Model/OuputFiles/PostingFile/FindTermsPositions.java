@@ -0,0 +1,113 @@
+package Model.OuputFiles.PostingFile;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * this class is responsible for finding the word positions of terms in given positions file
+ * only the positions of the requested docs are decoded, the rest of the line is skipped
+ */
+public class FindTermsPositions {
+
+    public FindTermsPositions() { }
+
+    /**
+     * @param path positions file
+     * @param sortedTermsData terms data to find, sorted
+     * @param docNos docs to decode the positions of
+     * @return term data -> (docNo -> sorted positions of the term in the doc)
+     */
+    public HashMap<String, HashMap<String, int[]>> searchAllTermsInPositionsFile(String path, ArrayList<String> sortedTermsData, HashSet<String> docNos) {
+        HashMap<String, HashMap<String, int[]>> termsPositions = new HashMap<>();
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(path));
+            String line = reader.readLine();
+            int i = 0;
+            while (line != null && i < sortedTermsData.size()) {
+                int cut = line.indexOf('(');
+                if (cut < 0) {
+                    line = reader.readLine();
+                    continue;
+                }
+                String lineTerm = line.substring(0, cut);
+                int compare = lineTerm.compareTo(sortedTermsData.get(i));
+                if (compare < 0) {
+                    line = reader.readLine();
+                } else if (compare > 0) { //the term isn't in the file
+                    i++;
+                } else {
+                    termsPositions.put(lineTerm, decodeLine(line, cut, docNos));
+                    i++;
+                    line = reader.readLine();
+                }
+            }
+            reader.close();
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return termsPositions;
+    }
+
+    /**
+     * @param line "term(docNo;first,gap,gap...)(docNo;...)"
+     * @param start index of the first '('
+     * @param docNos
+     * @return positions of the term in the requested docs
+     */
+    private HashMap<String, int[]> decodeLine(String line, int start, HashSet<String> docNos) {
+        HashMap<String, int[]> docsPositions = new HashMap<>();
+        int open = start;
+        while (open >= 0 && open < line.length()) {
+            int semicolon = line.indexOf(';', open);
+            int close = line.indexOf(')', semicolon);
+            if (semicolon < 0 || close < 0)
+                break;
+            String docNo = line.substring(open + 1, semicolon);
+            if (docNos.contains(docNo)) {
+                int[] positions = decodeGaps(line, semicolon + 1, close);
+                int[] previous = docsPositions.get(docNo);
+                if (previous != null) //the term was written twice for the doc (lower and upper case words)
+                    positions = mergeSorted(previous, positions);
+                docsPositions.put(docNo, positions);
+            }
+            open = close + 1;
+        }
+        return docsPositions;
+    }
+
+    private int[] decodeGaps(String line, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (line.charAt(i) == ',')
+                count++;
+        }
+        int[] positions = new int[from < to ? count + 1 : 0];
+        int position = 0;
+        int value = 0;
+        int k = 0;
+        for (int i = from; i <= to && positions.length > 0; i++) {
+            if (i == to || line.charAt(i) == ',') {
+                position += value;
+                positions[k++] = position;
+                value = 0;
+            } else
+                value = value * 10 + (line.charAt(i) - '0');
+        }
+        return positions;
+    }
+
+    private int[] mergeSorted(int[] a, int[] b) {
+        int[] merged = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, merged, a.length, b.length);
+        Arrays.sort(merged);
+        return merged;
+    }
+}
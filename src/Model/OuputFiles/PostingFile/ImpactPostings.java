@@ -0,0 +1,176 @@
+package Model.OuputFiles.PostingFile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The postings of a term in an impact ordered file: the docs are grouped by their impact - the BM25 of the term in
+ * the doc quantized to 1-255 - biggest impact first, so the best docs of a term can be read without the rest.
+ * the tf of every doc (of both its postings in the posting line) and the df of the term are kept too, so a query can
+ * be ranked from these lines without the posting lines.
+ * line: "term{impact}docNo;tf,docNo;tf...{impact}docNo;tf...,df{N}". the segments are decoded one at a time, when
+ * asked.
+ */
+public class ImpactPostings {
+    public static final int maxImpact = 255;
+    private String line;
+    private int end; //index of the ',' before the df
+    private int df; //-1 for a line written without the tfs and the df
+    private int next; //index of the '{' of the next segment, -1 when all the segments were read
+    private int nextImpact;
+
+    /**
+     * @param line line of the term in the impacts file
+     */
+    public ImpactPostings(String line) {
+        this.line = line;
+        this.end = line.lastIndexOf(",df{");
+        if (end >= 0) {
+            this.df = Integer.parseInt(line.substring(end + 4, line.length() - 1));
+        } else {
+            this.end = line.length();
+            this.df = -1;
+        }
+        this.next = line.indexOf('{');
+        if (next >= end)
+            next = -1;
+        readImpact();
+    }
+
+    /**
+     * @param score
+     * @param maxScore the biggest score of the index
+     * @return the score as an impact, 1 to 255
+     */
+    public static int quantize(double score, double maxScore) {
+        int impact = (int) Math.ceil(score / maxScore * maxImpact);
+        return Math.max(1, Math.min(maxImpact, impact));
+    }
+
+    /**
+     * @return false if the line was written without the tfs of the docs and the df of the term
+     */
+    public boolean hasTfs() {
+        return df >= 0;
+    }
+
+    /**
+     * @return df of the term, as in its posting line
+     */
+    public int getDf() {
+        return df;
+    }
+
+    /**
+     * @return impact of the next segment, 0 if all the segments were read
+     */
+    public int getNextImpact() {
+        return nextImpact;
+    }
+
+    /**
+     * reads the docs of the next segment
+     * @param docNos filled with the docs of the segment
+     * @return impact of the docs
+     */
+    public int nextSegment(ArrayList<String> docNos) {
+        docNos.clear();
+        int impact = nextImpact;
+        if (next < 0)
+            return impact;
+        int start = line.indexOf('}', next) + 1;
+        int segmentEnd = line.indexOf('{', start);
+        if (segmentEnd < 0 || segmentEnd >= end) {
+            segmentEnd = end;
+            next = -1;
+        } else {
+            next = segmentEnd;
+        }
+        while (start < segmentEnd) {
+            int comma = line.indexOf(',', start);
+            if (comma < 0 || comma > segmentEnd)
+                comma = segmentEnd;
+            int semicolon = line.indexOf(';', start);
+            docNos.add(line.substring(start, semicolon < 0 || semicolon > comma ? comma : semicolon));
+            start = comma + 1;
+        }
+        readImpact();
+        return impact;
+    }
+
+    /**
+     * finds the tfs of the given docs in the whole line, without cutting the docNos of the other docs out of it (the
+     * docNos are compared by their hash first). stops once all the docs were found
+     * @param docNos docs to find, without repeats
+     * @param tfs filled with the tf of every doc, 0 for a doc that isn't in the line
+     */
+    public void findTfs(String[] docNos, int[] tfs) {
+        Arrays.fill(tfs, 0);
+        //hash of the docNo in the high bits, index of the doc in the low bits
+        long[] byHash = new long[docNos.length];
+        for (int i = 0; i < docNos.length; i++) {
+            byHash[i] = ((long) docNos[i].hashCode() << 32) | i;
+        }
+        Arrays.sort(byHash);
+        int left = docNos.length;
+        int i = line.indexOf('{');
+        while (i >= 0 && i < end && left > 0) {
+            if (line.charAt(i) == '{') {
+                i = line.indexOf('}', i) + 1;
+                continue;
+            }
+            //"docNo;tf", then ',' or the '{' of the next segment
+            int start = i;
+            int hash = 0;
+            char c;
+            while ((c = line.charAt(i)) != ';') {
+                hash = 31 * hash + c;
+                i++;
+            }
+            int semicolon = i++;
+            int tf = 0;
+            while (i < end && (c = line.charAt(i)) >= '0' && c <= '9') {
+                tf = tf * 10 + (c - '0');
+                i++;
+            }
+            int doc = find(byHash, hash, docNos, start, semicolon);
+            if (doc >= 0 && tfs[doc] == 0) {
+                tfs[doc] = tf;
+                left--;
+            }
+            if (i < end && line.charAt(i) == ',')
+                i++;
+        }
+    }
+
+    /**
+     * @return index of the doc whose docNo is the line from start to end, -1 if it isn't one of the docs
+     */
+    private int find(long[] byHash, int hash, String[] docNos, int start, int end) {
+        long key = (long) hash << 32;
+        int low = 0;
+        int high = byHash.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (byHash[middle] < key)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        for (int j = low; j < byHash.length && (int) (byHash[j] >> 32) == hash; j++) {
+            int doc = (int) byHash[j];
+            if (docNos[doc].length() == end - start && line.regionMatches(start, docNos[doc], 0, end - start))
+                return doc;
+        }
+        return -1;
+    }
+
+    private void readImpact() {
+        nextImpact = 0;
+        if (next < 0)
+            return;
+        for (int i = next + 1; i < line.length() && line.charAt(i) != '}'; i++) {
+            nextImpact = nextImpact * 10 + (line.charAt(i) - '0');
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package Model.OuputFiles.PostingFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Reads the docs of one posting line: "term(docNo;tf)(docNo;tf)...,sk{gap,gap...},df{N}".
+ * long lines have skips - the index in the line of the first posting of every block (as gaps from the previous
+ * skip), and their postings are sorted by docNo, so a doc can be found by jumping over whole blocks without
+ * reading their postings. lines without skips (short lines, or an index written before skips) are read whole.
+ */
+public class PostingList {
+    private String line;
+    private int end; //index of the ',' after the last posting
+    private int df;
+    private int[] skips; //index of the '(' that starts every block
+    private int cursor; //index of the '(' of the current posting
+    private int skip; //block of the cursor
+
+    /**
+     * @param line posting line of a term
+     */
+    public PostingList(String line) {
+        this.line = line;
+        int dfStart = line.lastIndexOf(",df{");
+        this.df = Integer.parseInt(line.substring(dfStart + 4, line.length() - 1));
+        int skipsStart = line.lastIndexOf(",sk{", dfStart);
+        if (skipsStart >= 0 && line.indexOf(')', skipsStart) < 0) {
+            this.end = skipsStart;
+            this.skips = readSkips(line.substring(skipsStart + 4, dfStart - 1));
+        } else {
+            this.end = dfStart;
+            this.skips = new int[0];
+        }
+        this.cursor = line.indexOf('(');
+    }
+
+    private static int[] readSkips(String gaps) {
+        if (gaps.length() == 0)
+            return new int[0];
+        String[] splitter = gaps.split(",");
+        int[] skips = new int[splitter.length];
+        int previous = 0;
+        for (int i = 0; i < splitter.length; i++) {
+            previous += Integer.parseInt(splitter[i]);
+            skips[i] = previous;
+        }
+        return skips;
+    }
+
+    /**
+     * @return number of postings in the line
+     */
+    public int getDf() {
+        return df;
+    }
+
+    /**
+     * @return the docs of the line, sorted and without repeats
+     */
+    public ArrayList<String> docNos() {
+        ArrayList<String> all = new ArrayList<>(df);
+        int open = line.indexOf('(');
+        while (open >= 0 && open < end) {
+            all.add(docNoAt(open));
+            open = line.indexOf('(', open + 1);
+        }
+        if (skips.length == 0)
+            Collections.sort(all);
+        ArrayList<String> docNos = new ArrayList<>(all.size());
+        for (String docNo : all) {
+            if (docNos.size() == 0 || !docNos.get(docNos.size() - 1).equals(docNo))
+                docNos.add(docNo);
+        }
+        return docNos;
+    }
+
+    /**
+     * @return true if the line has skips (and sorted postings)
+     */
+    public boolean hasSkips() {
+        return skips.length > 0;
+    }
+
+    /**
+     * moves forward to the first posting with a docNo that isn't smaller than the given one.
+     * only for a line with skips, calls must be made with increasing docNos
+     *
+     * @param docNo
+     * @return true if the line has the doc
+     */
+    public boolean advanceTo(String docNo) {
+        //galloping over the skips: 1, 2, 4... blocks ahead, then a binary search in the last jump. the block that is
+        //jumped to starts before the doc, so the cursor is at the first of its postings (a doc can have two)
+        if (skip + 1 < skips.length && docNoAt(skips[skip + 1]).compareTo(docNo) < 0) {
+            int low = skip + 1;
+            int step = 1;
+            while (low + step < skips.length && docNoAt(skips[low + step]).compareTo(docNo) < 0) {
+                low += step;
+                step *= 2;
+            }
+            int high = Math.min(low + step, skips.length) - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (docNoAt(skips[middle]).compareTo(docNo) < 0)
+                    low = middle;
+                else
+                    high = middle - 1;
+            }
+            skip = low;
+            if (skips[skip] > cursor)
+                cursor = skips[skip];
+        }
+        //scanning the postings of the block
+        while (cursor >= 0 && cursor < end) {
+            int compare = docNoAt(cursor).compareTo(docNo);
+            if (compare == 0)
+                return true;
+            if (compare > 0)
+                return false;
+            cursor = line.indexOf('(', cursor + 1);
+        }
+        return false;
+    }
+
+    /**
+     * moves forward to the doc like advanceTo, only for a line with skips
+     *
+     * @param docNo
+     * @return tf of the term in the doc - of all its postings, a doc can have two (for its lower and upper case
+     * words). 0 if the line doesn't have the doc
+     */
+    public int tf(String docNo) {
+        if (!advanceTo(docNo))
+            return 0;
+        int tf = 0;
+        int open = cursor;
+        while (open >= 0 && open < end && docNoAt(open).equals(docNo)) {
+            int semicolon = line.indexOf(';', open);
+            tf += Integer.parseInt(line.substring(semicolon + 1, line.indexOf(')', semicolon)));
+            open = line.indexOf('(', open + 1);
+        }
+        return tf;
+    }
+
+    /**
+     * @param sortedDocNos
+     * @return the given docs that are in the line (in the same order)
+     */
+    public ArrayList<String> intersect(ArrayList<String> sortedDocNos) {
+        ArrayList<String> output = new ArrayList<>();
+        if (!hasSkips()) {
+            HashSet<String> docNos = new HashSet<>(docNos());
+            for (String docNo : sortedDocNos) {
+                if (docNos.contains(docNo))
+                    output.add(docNo);
+            }
+            return output;
+        }
+        for (String docNo : sortedDocNos) {
+            if (advanceTo(docNo))
+                output.add(docNo);
+        }
+        return output;
+    }
+
+    /**
+     * @param sortedDocNos
+     * @return the given docs that aren't in the line (in the same order)
+     */
+    public ArrayList<String> subtractFrom(ArrayList<String> sortedDocNos) {
+        ArrayList<String> output = new ArrayList<>();
+        if (!hasSkips()) {
+            HashSet<String> docNos = new HashSet<>(docNos());
+            for (String docNo : sortedDocNos) {
+                if (!docNos.contains(docNo))
+                    output.add(docNo);
+            }
+            return output;
+        }
+        for (String docNo : sortedDocNos) {
+            if (!advanceTo(docNo))
+                output.add(docNo);
+        }
+        return output;
+    }
+
+    private String docNoAt(int open) {
+        return line.substring(open + 1, line.indexOf(';', open));
+    }
+}
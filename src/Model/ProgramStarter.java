@@ -1,19 +1,25 @@
 package Model;
 
+import Model.HandleParse.DocumentParsePool;
 import Model.HandleParse.Parse;
 import Model.HandleReadFiles.QueryFileUtil;
 import Model.HandleSearch.DocDataHolders.DocumentDataToView;
 import Model.HandleSearch.DocDataHolders.QueryIDDocDataToView;
+import Model.HandleSearch.DocNorms;
+import Model.HandleSearch.HeaderTerms;
+import Model.HandleSearch.NeighborTable;
 import Model.HandleSearch.Searcher;
-import Model.IndexerAndDictionary.CountAndPointerDicValue;
+import Model.HandleSearch.SemanticModel;
+import Model.HandleSearch.TopEntities;
 import Model.IndexerAndDictionary.Dictionary;
 import Model.IndexerAndDictionary.HandleMerge;
+import Model.IndexerAndDictionary.IndexPruner;
 import Model.IndexerAndDictionary.Indexer;
+import Model.IndexerAndDictionary.SortedTermDictionary;
 import Model.OuputFiles.DictionaryFileHandler;
 import Model.OuputFiles.DocumentFile.DocumentFileHandler;
 import Model.OuputFiles.DocumentFile.DocumentFileObject;
 import Model.TermsAndDocs.TermCounterPair;
-import Model.TermsAndDocs.Terms.Term;
 import View.AlertBox;
 import View.GUI;
 import javafx.scene.Scene;
@@ -25,7 +31,6 @@ import javafx.stage.Stage;
 
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -39,13 +44,14 @@ public class ProgramStarter {
      * @param inputPath
      * @param outputPath
      * @param toStemm
+     * @param positional true to keep the word positions of the terms too (needed for phrase and proximity queries)
      */
-    public static void startProgram(String inputPath, String outputPath, boolean toStemm) {
+    public static void startProgram(String inputPath, String outputPath, boolean toStemm, boolean positional) {
         dictionary = new Dictionary();
         Indexer.dictionary = new Dictionary();
         String pathFolder = inputPath + "\\corpus";
         String stemRelatedFolder = getStemRelatedFolder(toStemm);
-        initFolders(toStemm, outputPath);
+        initFolders(toStemm, outputPath, positional);
         File folder = new File(pathFolder);
         String[] folderFiles = folder.list();
         ThreadPoolExecutor executor;
@@ -58,12 +64,18 @@ public class ProgramStarter {
             e.printStackTrace();
         }
         ArrayList<String> docsPath = new ArrayList<>();
+        DocumentParsePool parsePool = new DocumentParsePool(stopWords, toStemm, positional);
+        ArrayList<WorkerThread> workers = new ArrayList<>();
         for (int i = 0; i < arrays.length; i++) {
             String[] readFilesPath = arrays[i];//302-305
             String sPostFilePath = stemRelatedFolder + "\\workersFiles\\workerArray" + i + "\\";
+            String positionsFilePath = null;
+            if (positional)
+                positionsFilePath = stemRelatedFolder + "\\workersPositions\\workerArray" + i + "\\";
             String docFilePath = outputPath + "\\" + stemRelatedFolder + "\\DocsFiles\\docFile" + i;
             docsPath.add(docFilePath);
-            WorkerThread wt = new WorkerThread(pathFolder, readFilesPath, sPostFilePath, docFilePath, stopWords, toStemm);
+            WorkerThread wt = new WorkerThread(pathFolder, readFilesPath, sPostFilePath, positionsFilePath, docFilePath, parsePool);
+            workers.add(wt);
             executor.execute(wt);
         }
         try {
@@ -72,16 +84,43 @@ public class ProgramStarter {
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        parsePool.shutdown();
 
         HashSet<String> deletedTerms = Indexer.dictionary.deleteNotEntities();
-        ConcurrentHashMap<Term, CountAndPointerDicValue> dic = Indexer.dictionary.dictionaryTable;
+        for (WorkerThread worker : workers) {
+            worker.getEntityCandidates().writeDeferred(deletedTerms);
+        }
         long end = System.currentTimeMillis();
 
-        HandleMerge handleMerge = new HandleMerge(deletedTerms, Indexer.dictionary, outputPath, toStemm);
+        //-DimpactOrdered=true writes the postings ordered by their BM25 too, for early termination of the first stage of the ranking
+        ArrayList<String> impactDocsPath = Boolean.getBoolean("impactOrdered") ? docsPath : null;
+        HandleMerge handleMerge = new HandleMerge(deletedTerms, Indexer.dictionary, outputPath, toStemm, positional, impactDocsPath);
         handleMerge.merge();
+        //-DpruneEpsilon=<part> and -DpruneThreshold=<score> write pruned posting files too, see IndexPruner
+        double pruneEpsilon = Double.parseDouble(System.getProperty("pruneEpsilon", "0"));
+        double pruneThreshold = Double.parseDouble(System.getProperty("pruneThreshold", "0"));
+        if (pruneEpsilon > 0 || pruneThreshold > 0) {
+            IndexPruner indexPruner = new IndexPruner(outputPath, toStemm, docsPath, pruneThreshold, pruneEpsilon);
+            indexPruner.prune();
+            System.out.println("pruned index: " + indexPruner);
+        }
+        Indexer.dictionary.freeze(); //read only from here, the sorted dictionary is what gets written and searched
+        Searcher.clearCaches();
 
         DictionaryFileHandler dictionaryFileHandler = new DictionaryFileHandler(Indexer.dictionary);
         dictionaryFileHandler.writeToFile(outputPath, toStemm);
+        //the entities of the docs are known only now, after the candidates that aren't entities were deleted
+        TopEntities.build(Indexer.dictionary, docsPath, TopEntities.tablePath(outputPath, toStemm));
+        //the header terms by their ids, which are known only after the dictionary is sorted
+        HeaderTerms.build(Indexer.dictionary, stopWords, toStemm, docsPath, HeaderTerms.tablePath(outputPath, toStemm));
+        //the norms of the docs for the cosine, from the final posting files (the df of the terms is known only now)
+        DocNorms.build(outputPath, toStemm, DocNorms.tablePath(outputPath, toStemm));
+
+        //the close words of the index words for the offline semantic search
+        if (SemanticModel.exists()) {
+            SemanticModel.buildGraph();
+            NeighborTable.build(Indexer.dictionary, toStemm, NeighborTable.tablePath(outputPath, toStemm));
+        }
 
 
     }
@@ -142,8 +181,9 @@ public class ProgramStarter {
      *
      * @param toStem
      * @param outputPath
+     * @param positional
      */
-    private static void initFolders(boolean toStem, String outputPath) {
+    private static void initFolders(boolean toStem, String outputPath, boolean positional) {
         //String sPostFilePath = stemRelatedFolder + "\\workersFiles\\workerArray" + i + "\\";
         //String docFilePath = outputPath + "\\" + stemRelatedFolder + "\\tempDocsFiles\\docFile" + i;
 
@@ -167,6 +207,20 @@ public class ProgramStarter {
             }
         }
 
+        if (positional) {
+            String positionsDirPath = getStemRelatedFolder(toStem) + "\\workersPositions";
+            File positionsDir = new File(positionsDirPath);
+            if (!positionsDir.exists()) {
+                positionsDir.mkdir();
+            }
+            for (int i = 0; i < 6; i++) {
+                File workerArrayDir = new File(positionsDirPath + "\\workerArray" + i);
+                if (!workerArrayDir.exists()) {
+                    workerArrayDir.mkdir();
+                }
+            }
+        }
+
         String tempDocFilesPath = outputPath + "\\" + getStemRelatedFolder(toStem);
         File tempDocFiles = new File(tempDocFilesPath);
         if (!tempDocFiles.exists()) {
@@ -201,9 +255,9 @@ public class ProgramStarter {
             boolean entities = showEntitiesCheckBoxIsSelected;
             boolean stemIsSelected = stemCheckBoxIsSelected;
             boolean onlineIsSelected = onlineSemanticIsSelected;
-            if (dictionary == null || dictionary.dictionaryTable.size() == 0) {
+            if (dictionary == null || dictionary.size() == 0) {
                 dictionary = Indexer.dictionary;
-                if(dictionary.dictionaryTable.size() == 0) {
+                if(dictionary.size() == 0) {
                     AlertBox.display("", "No dictionary in memory, please load dictionary!");
                     return;
                 }
@@ -216,6 +270,8 @@ public class ProgramStarter {
             Searcher searcher = new Searcher(similarWords, stemIsSelected, dictionary, generateStopWords(inputPath), queries, entities, onlineIsSelected);
             ArrayList<QueryIDDocDataToView> datas = new ArrayList<>();
             ArrayList<DocumentDataToView>[] queryAnswers = searcher.search();
+            if (Searcher.getRankAgreement().getNumOfQueries() > 0)
+                System.out.println("two stage ranking agreement: " + Searcher.getRankAgreement());
             for (int i = 0; i < queryAnswers.length; i++) {
                 for (DocumentDataToView docData : queryAnswers[i]) {
                     datas.add(new QueryIDDocDataToView(queriesID.get(i), docData.getDocNo(), docData.getDate(), docData.getEntities()));
@@ -259,9 +315,9 @@ public class ProgramStarter {
     public static void runSingleQuery(String query, boolean similarWords, boolean writeResultToFileIsSelected, boolean showEntitiesIsSelected, boolean stemCheckBoxIsSelected, boolean onlineSemanticIsSelected, String resultFileText, String resultFileName, boolean showDatesIsSelected, String inputPath) {
         boolean writeToFile = writeResultToFileIsSelected;
         boolean entities = showEntitiesIsSelected;
-        if (dictionary == null || dictionary.dictionaryTable.size() == 0) {
+        if (dictionary == null || dictionary.size() == 0) {
             dictionary = Indexer.dictionary;
-            if(dictionary.dictionaryTable.size() ==  0){
+            if(dictionary.size() ==  0){
                 AlertBox.display("", "No dictionary in memory, please load dictionary!");
                 return;
             }
@@ -374,7 +430,12 @@ public class ProgramStarter {
         return new HashSet<>();
     }
 
-    private static ArrayList<String> generateDocsFiles(boolean stemIsSelected, String outputPath) {
+    /**
+     * @param stemIsSelected
+     * @param outputPath
+     * @return paths of the docs files of the index
+     */
+    public static ArrayList<String> generateDocsFiles(boolean stemIsSelected, String outputPath) {
         ArrayList<String> output = new ArrayList<>();
         String stemRelatedFolder = getStemRelatedFolderForDocFiles(stemIsSelected);
 
@@ -406,7 +467,12 @@ public class ProgramStarter {
             boolean isWithStemming = stemIsSelected;
             DictionaryFileHandler dfh = new DictionaryFileHandler(new Model.IndexerAndDictionary.Dictionary());
             dictionary = dfh.readFromFile(outputPath, isWithStemming);
-            if(dictionary != null && dictionary.dictionaryTable.size() > 0 && documentFileObject.docsHolder != null && documentFileObject.docsHolder.size() > 0)
+            Searcher.clearCaches(); //results and posting lines of the last dictionary
+            NeighborTable.load(NeighborTable.tablePath(outputPath, isWithStemming));
+            TopEntities.load(TopEntities.tablePath(outputPath, isWithStemming));
+            HeaderTerms.load(HeaderTerms.tablePath(outputPath, isWithStemming));
+            DocNorms.load(DocNorms.tablePath(outputPath, isWithStemming));
+            if(dictionary != null && dictionary.size() > 0 && documentFileObject.docsHolder != null && documentFileObject.docsHolder.size() > 0)
                 AlertBox.display("Loaded", "Dictionary loaded!");
             else
                 AlertBox.display("", "No dictionary file! or docs files!");
@@ -430,8 +496,10 @@ public class ProgramStarter {
         tableView.getColumns().add(termCol);
         tableView.getColumns().add(countCol);
 
-        for (Map.Entry<Term, CountAndPointerDicValue> entry : dictionary.dictionaryTable.entrySet()) {
-            tableView.getItems().add(new TermCounterPair(entry.getKey().getData(), entry.getValue().getTotalCount()));
+        SortedTermDictionary sortedTerms = dictionary.getSortedTerms();
+        ArrayList<String> terms = sortedTerms.terms(0, sortedTerms.size());
+        for (int i = 0; i < terms.size(); i++) {
+            tableView.getItems().add(new TermCounterPair(terms.get(i), sortedTerms.getCount(i)));
         }
 
 
@@ -467,6 +535,11 @@ public class ProgramStarter {
         Dictionary.deleteMutex();
         Indexer.deleteDictionary();
         dictionary = null;
+        Searcher.clearCaches();
+        TopEntities.clear();
+        HeaderTerms.clear();
+        DocNorms.clear();
+        NeighborTable.clear();
     }
 
     public static boolean deleteDir(File dir) {
@@ -3,11 +3,15 @@ package Model.TermsAndDocs.Pairs;
 import Model.TermsAndDocs.Docs.Document;
 import Model.TermsAndDocs.Terms.Term;
 
+import java.util.Arrays;
+
 public class TermDocPair {
 
     private Term term;
     public Document doc;
     private int counter;
+    private int[] positions; //word positions of the term in the doc, only kept for a positional index
+    private int positionsCount;
 
     /**
      * constructor
@@ -27,6 +31,27 @@ public class TermDocPair {
         this.counter++;
     }
 
+    /**
+     * adds a word position of the term in the doc (positions are added in increasing order)
+     * @param position
+     */
+    public void addPosition(int position) {
+        if (positions == null)
+            positions = new int[4];
+        else if (positionsCount == positions.length)
+            positions = Arrays.copyOf(positions, positionsCount * 2);
+        positions[positionsCount++] = position;
+    }
+
+    /**
+     * @return word positions of the term in the doc, null if positions weren't kept
+     */
+    public int[] getPositions() {
+        if (positions == null)
+            return null;
+        return Arrays.copyOf(positions, positionsCount);
+    }
+
     /**
      * getter for term field
      * @return
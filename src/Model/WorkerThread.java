@@ -1,7 +1,8 @@
 package Model;
 
-import Model.HandleParse.Parse;
+import Model.HandleParse.DocumentParsePool;
 import Model.HandleReadFiles.ReadFile;
+import Model.IndexerAndDictionary.EntityCandidates;
 import Model.IndexerAndDictionary.Indexer;
 import Model.TermsAndDocs.Docs.Document;
 import Model.TermsAndDocs.Pairs.TermDocPair;
@@ -9,24 +10,24 @@ import Model.TermsAndDocs.Terms.Term;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 
 public class WorkerThread implements Runnable{
-    public  HashSet<String> stopWords;
     private String pathFolder;
     private String[] readFilesPath;
     private String docFilePath;
     private String sPostFilePath;
-    private Boolean toStem;
+    private String positionsFilePath; //folder of the worker positions files, null without a positional index
+    private DocumentParsePool parsePool;
+    private EntityCandidates entityCandidates;
 
-
-    public WorkerThread(String pathFolder, String[] readFilePath, String sPostFilePath, String docFilePath, HashSet<String> stopWords, Boolean toStem) {
+    public WorkerThread(String pathFolder, String[] readFilePath, String sPostFilePath, String positionsFilePath, String docFilePath, DocumentParsePool parsePool) {
         this.pathFolder = pathFolder;
         this.readFilesPath = readFilePath;
         this.docFilePath = docFilePath;
         this.sPostFilePath = sPostFilePath;
-        this.stopWords = stopWords;
-        this.toStem = toStem;
+        this.positionsFilePath = positionsFilePath;
+        this.parsePool = parsePool;
+        this.entityCandidates = new EntityCandidates(sPostFilePath + "deferredEntities");
     }
 
     /**
@@ -42,23 +43,30 @@ public class WorkerThread implements Runnable{
             workerID++;
             ArrayList<HashMap<Term, TermDocPair>> docsPairsList = new ArrayList<>();
             String workerPostPath = sPostFilePath + "partitionWorker" + workerID;
+            String workerPositionsPath = null;
+            if (positionsFilePath != null)
+                workerPositionsPath = positionsFilePath + "partitionWorker" + workerID;
             for (String pathFile : currentFiles) {
                 String readFilePath = pathFolder + "\\" + pathFile;
                 //reads a file and creates a list of docs to parser
                 ArrayList<Document> docList = new ArrayList<>();
                 ReadFile readFile = new ReadFile(readFilePath, docList);
                 readFile.readTheFile();
-                //sends docs to parser and creates pairs list of <term,doc>
-                Parse parser = new Parse(stopWords, toStem);
-                while (docList.size() > 0) {
-                    docsPairsList.add(parser.parseDocument(docList.remove(docList.size() - 1)));
-                }
+                //sends docs to the parsing pool and creates pairs list of <term,doc>
+                docsPairsList.addAll(parsePool.parseDocuments(docList));
             }
-            Indexer indexer = new Indexer(docsPairsList, docFilePath, workerPostPath);
+            Indexer indexer = new Indexer(docsPairsList, docFilePath, workerPostPath, workerPositionsPath, entityCandidates);
             indexer.index();
         }
     }
 
+    /**
+     * @return entities this worker saw in only one doc, written after all the workers are done
+     */
+    public EntityCandidates getEntityCandidates() {
+        return entityCandidates;
+    }
+
 
 
 
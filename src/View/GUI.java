@@ -63,6 +63,7 @@ public class GUI extends Application implements EventHandler<ActionEvent> {
     DirectoryChooser resultsFilePathChooser;
 
     CheckBox stemCheckBox;
+    CheckBox positionalCheckBox;
     //part 2
     CheckBox semanticallySimilarCheckBox;
     CheckBox showEntitiesCheckBox;
@@ -96,6 +97,7 @@ public class GUI extends Application implements EventHandler<ActionEvent> {
         HBox resultFileHBox;
         HBox resultTableExtrasHBox;
         HBox semanitcsHBox;
+        HBox indexOptionsHBox;
 
         // set Dictionary
         ProgramStarter.dictionary = dictionary;
@@ -159,6 +161,7 @@ public class GUI extends Application implements EventHandler<ActionEvent> {
 
         //checkBox
         stemCheckBox = new CheckBox("Stemming");
+        positionalCheckBox = new CheckBox("Keep word positions (phrase queries)");
         semanticallySimilarCheckBox = new CheckBox("Include sematically similar words");
         showEntitiesCheckBox = new CheckBox("Show top entities for results");
         showDateCheckBox = new CheckBox("Show document dates");
@@ -186,7 +189,9 @@ public class GUI extends Application implements EventHandler<ActionEvent> {
         outputHBox = new HBox(outputPathTextField, outputPathBrowseButton);
         mainVBox.getChildren().add(inputHBox);
         mainVBox.getChildren().add(outputHBox);
-        mainVBox.getChildren().add(stemCheckBox);
+        indexOptionsHBox = new HBox(stemCheckBox, positionalCheckBox);
+        indexOptionsHBox.setSpacing(15);
+        mainVBox.getChildren().add(indexOptionsHBox);
         mainVBox.getChildren().add(startButton);
         extraButtonsHBox = new HBox(resetButton, viewDictionaryButton, loadDictionaryToMemoryButton);
         extraButtonsHBox.setSpacing(5);
@@ -230,9 +235,9 @@ public class GUI extends Application implements EventHandler<ActionEvent> {
                 AlertBox.display("Alert", "Please choose paths and try again.");
             else {
                 long time1=System.currentTimeMillis();
-                ProgramStarter.startProgram(inputPath, outputPath, isWithStemming);
+                ProgramStarter.startProgram(inputPath, outputPath, isWithStemming, positionalCheckBox.isSelected());
                 long time2=System.currentTimeMillis();
-                AlertBox.display("Done", "Docs: " + DocumentFileHandler.countDocs + " terms: "+ Indexer.dictionary.dictionaryTable.size()+ " time: " +(time2-time1)/1000);
+                AlertBox.display("Done", "Docs: " + DocumentFileHandler.countDocs + " terms: "+ Indexer.dictionary.size()+ " time: " +(time2-time1)/1000);
             }
 
         }
@@ -15,6 +15,8 @@ public class ReadmeViewer {
             "2. It is necessary to load a dictionary by clicking \"Load dictionary to memory\" every time the stemming setting is changed.\n" +
             "3. If the ipnut path will not contain a directory with \"5 stop_words\" file, the stop words that will be taken into account are the words from the original stop words file.\n" +
             "4. In case of no active internet connection, a non-online semantically similar words finding method will be used, regardless of user's selection.\n" +
+            "5. Phrase and proximity queries: \"oil spill\" finds the words one after the other, oil NEAR/5 spill finds them at most 5 words apart. They need an index built with \"Keep word positions\" checked.\n" +
+            "6. Boolean queries: AND, OR, NOT (in upper case) and parentheses, like (oil OR gas) AND spill NOT alaska. Only the docs that match the query are ranked.\n" +
             "\n" +
             "\n" +
             "\n" +